@@ -0,0 +1,164 @@
+package bischemes.bench;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bischemes.engine.GObject;
+import bischemes.engine.physics.Broadphase;
+import bischemes.engine.physics.Primitive;
+import bischemes.engine.physics.RigidBody;
+import bischemes.engine.physics.RigidBodyProperties;
+import bischemes.engine.physics.Surface;
+import bischemes.level.Level;
+import bischemes.level.Room;
+import bischemes.level.parts.RObject;
+import bischemes.level.util.LColour;
+import processing.core.PVector;
+
+/**
+ * Compares broadphases on the rooms of the shipped levels, and on generated
+ * large rooms with long boundary walls, scattered static blocks and many
+ * movable blocks. A frame moves every movable body then queries collisions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BroadphaseBenchmark {
+	private static final String[] LEVEL_DIRECTORIES = { "levels", "../levels", "game/levels" };
+
+	@Param({ "GRID", "SWEEP_AND_PRUNE", "AABB_TREE" })
+	public Broadphase.Type type;
+
+	@Param({ "level_1", "level_2", "large" })
+	public String room;
+
+	private List<Broadphase> broadphases = new ArrayList<>();
+	private List<List<GObject>> movables = new ArrayList<>();
+	private int frame;
+
+	@Setup
+	public void setup() {
+		if (room.equals("large")) {
+			setupLargeRoom(new PVector(256, 64), 2000, 500);
+		} else {
+			setupLevel(room);
+		}
+	}
+
+	@Benchmark
+	public void frame(Blackhole bh) {
+		float d = (frame++ & 1) == 0 ? 0.05f : -0.05f;
+		for (int i = 0; i < broadphases.size(); i++) {
+			Broadphase b = broadphases.get(i);
+			List<GObject> moving = movables.get(i);
+			for (int j = 0; j < moving.size(); j++) {
+				GObject o = moving.get(j);
+				o.setLocalPosition(o.getLocalPosition().x + d, o.getLocalPosition().y);
+				b.move(o.getRigidBody());
+			}
+			bh.consume(b.getCollisions());
+		}
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// One broadphase per room, holding the primary geometry and objects.
+	private void setupLevel(String name) {
+		Level level = Level.parseLevel(findLevelDirectory(name), "info.json", false);
+		for (Room r : level.getRooms()) {
+			PVector dims = PVector.add(r.getDimensions(), new PVector(2, 2));
+			Broadphase b = Broadphase.create(type, dims, new PVector(-1, -1));
+			List<GObject> moving = new ArrayList<>();
+
+			List<GObject> roots = new ArrayList<>(List.of(r.getPrimaryGeometry()));
+			for (RObject o : r.getObjects()) {
+				if (o.getLColour() == LColour.PRIMARY) {
+					roots.add(o);
+				}
+			}
+			ArrayDeque<GObject> q = new ArrayDeque<>(roots);
+			while (!q.isEmpty()) {
+				GObject current = q.pollFirst();
+				RigidBody rb = current.getRigidBody();
+				if (rb != null) {
+					b.move(rb);
+					if (rb.getProperties().isMovable) {
+						moving.add(current);
+					}
+				} else {
+					q.addAll(current.getChildren());
+				}
+			}
+
+			// A player-sized body walking through the room
+			GObject player = makeBlock(r.getSpawnPosition(), new PVector(0.8f, 0.8f), true);
+			b.move(player.getRigidBody());
+			moving.add(player);
+
+			broadphases.add(b);
+			movables.add(moving);
+		}
+	}
+
+	private void setupLargeRoom(PVector dims, int statics, int movable) {
+		Random random = new Random(4303);
+		Broadphase b = Broadphase.create(type, PVector.add(dims, new PVector(2, 2)), new PVector(-1, -1));
+		List<GObject> moving = new ArrayList<>();
+
+		// Boundary walls, as made by Room.parseRoom
+		b.move(makeBlock(new PVector(-0.5f, dims.y / 2), new PVector(1, dims.y), false).getRigidBody());
+		b.move(makeBlock(new PVector(dims.x + 0.5f, dims.y / 2), new PVector(1, dims.y), false).getRigidBody());
+		b.move(makeBlock(new PVector(dims.x / 2, -0.5f), new PVector(dims.x, 1), false).getRigidBody());
+		b.move(makeBlock(new PVector(dims.x / 2, dims.y + 0.5f), new PVector(dims.x, 1), false).getRigidBody());
+
+		for (int i = 0; i < statics; i++) {
+			PVector size = new PVector(0.5f + 3 * random.nextFloat(), 0.5f + random.nextFloat());
+			PVector pos = new PVector(random.nextFloat() * dims.x, random.nextFloat() * dims.y);
+			b.move(makeBlock(pos, size, false).getRigidBody());
+		}
+		for (int i = 0; i < movable; i++) {
+			PVector pos = new PVector(1 + random.nextFloat() * (dims.x - 2), 1 + random.nextFloat() * (dims.y - 2));
+			GObject o = makeBlock(pos, new PVector(0.8f, 0.8f), true);
+			b.move(o.getRigidBody());
+			moving.add(o);
+		}
+		broadphases.add(b);
+		movables.add(moving);
+	}
+
+	private static GObject makeBlock(PVector position, PVector size, boolean movable) {
+		float w = size.x / 2, h = size.y / 2;
+		Primitive p = new Primitive(new Surface(0, 0, 0), Arrays.asList(new PVector(-w, -h), new PVector(-w, h),
+				new PVector(w, h), new PVector(w, -h)));
+		GObject o = new GObject(null, position, 0);
+		o.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("move", movable, "mesh", p))));
+		return o;
+	}
+
+	private static String findLevelDirectory(String name) {
+		for (String dir : LEVEL_DIRECTORIES) {
+			if (new File(dir, name).isDirectory()) {
+				return dir + "/" + name;
+			}
+		}
+		throw new IllegalStateException("Could not find level directory " + name);
+	}
+}
@@ -0,0 +1,68 @@
+package bischemes.bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bischemes.game.Game;
+import bischemes.level.Level;
+import bischemes.level.Room;
+
+/**
+ * A full engine update on a room of the shipped levels: object behaviours,
+ * integration, broadphase, narrowphase and resolution. The game runs headless,
+ * so a frame is a single fixed step and nothing is drawn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EngineStepBenchmark {
+	private static final String[] LEVEL_DIRECTORIES = { "levels", "../levels", "game/levels" };
+
+	// Level directory and room id
+	@Param({ "level_1:0", "level_1:1", "level_1:2", "level_1:3", "level_2:0", "level_2:1", "level_2:2" })
+	public String room;
+
+	private Game game;
+
+	@Setup
+	public void setup() {
+		String[] names = room.split(":");
+		Level l = Level.parseLevel(findLevelDirectory(names[0]), "info.json", false);
+		game = new Game();
+		game.setLevel(l);
+		Room r = l.getRoom(Integer.parseInt(names[1]));
+		if (r != l.getInitRoom()) {
+			game.loadRoom(r, r.getSpawnPosition());
+		}
+
+		// Let bodies settle, so the measure is not of the initial fall
+		game.simulate(120);
+	}
+
+	@Benchmark
+	public int update() {
+		return game.simulate(1);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static String findLevelDirectory(String name) {
+		for (String dir : LEVEL_DIRECTORIES) {
+			if (new File(dir, name).isDirectory()) {
+				return dir + "/" + name;
+			}
+		}
+		throw new IllegalStateException("Could not find level directory " + name);
+	}
+}
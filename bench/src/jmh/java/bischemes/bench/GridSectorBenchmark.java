@@ -0,0 +1,97 @@
+package bischemes.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import bischemes.engine.GObject;
+import bischemes.engine.physics.GridSector;
+import bischemes.engine.physics.Primitive;
+import bischemes.engine.physics.RigidBody;
+import bischemes.engine.physics.RigidBodyProperties;
+import bischemes.engine.physics.Surface;
+import processing.core.PVector;
+
+/**
+ * Per-frame broadphase work of a room full of movable blocks: moving every
+ * body through the grid, then querying its collisions. Run with the gc
+ * profiler to read allocations per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GridSectorBenchmark {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 36;
+
+	@Param({ "16", "128", "512" })
+	public int bodies;
+
+	private GridSector grid;
+	private List<GObject> objects;
+	private PVector[] origins;
+	private int frame;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		grid = new GridSector(new PVector(WIDTH, HEIGHT), new PVector(0, 0), WIDTH, HEIGHT);
+		objects = new ArrayList<>();
+		origins = new PVector[bodies];
+		Primitive block = new Primitive(new Surface(0, 0, 0), Arrays.asList(new PVector(-0.4f, -0.4f),
+				new PVector(-0.4f, 0.4f), new PVector(0.4f, 0.4f), new PVector(0.4f, -0.4f)));
+
+		// Lay blocks out on a grid, close enough for neighbours to touch
+		int perRow = (int) Math.ceil(Math.sqrt(bodies));
+		for (int i = 0; i < bodies; i++) {
+			origins[i] = new PVector(2 + (i % perRow) * 0.75f, 2 + (i / perRow) * 0.75f);
+			GObject o = new GObject(null, origins[i].copy(), 0);
+			o.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("move", true, "mesh", block.copy()))));
+			grid.move(o.getRigidBody());
+			objects.add(o);
+		}
+	}
+
+	/**
+	 * Bodies jitter in place, staying in the cells they already cover.
+	 */
+	@Benchmark
+	public void moveWithinCells() {
+		float d = (frame++ & 1) == 0 ? 0.01f : -0.01f;
+		for (int i = 0; i < objects.size(); i++) {
+			GObject o = objects.get(i);
+			o.setLocalPosition(origins[i].x + d, origins[i].y);
+			grid.move(o.getRigidBody());
+		}
+	}
+
+	/**
+	 * Bodies step by half a cell each frame, regularly crossing cell borders.
+	 */
+	@Benchmark
+	public void moveAcrossCells() {
+		float d = (frame++ & 1) == 0 ? 0.5f : 0f;
+		for (int i = 0; i < objects.size(); i++) {
+			GObject o = objects.get(i);
+			o.setLocalPosition(origins[i].x + d, origins[i].y);
+			grid.move(o.getRigidBody());
+		}
+	}
+
+	@Benchmark
+	public void getCollisions(Blackhole bh) {
+		bh.consume(grid.getCollisions());
+	}
+}
@@ -0,0 +1,74 @@
+package bischemes.bench;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bischemes.engine.GObject;
+import bischemes.engine.physics.Manifold;
+import bischemes.engine.physics.Primitive;
+import bischemes.engine.physics.RigidBody;
+import bischemes.engine.physics.RigidBodyProperties;
+import bischemes.engine.physics.Surface;
+import processing.core.PVector;
+
+/**
+ * Impulse resolution of a block landing on the floor, with friction and
+ * positional correction. Bodies are put back in place before every
+ * resolution, so each one resolves the same contact.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ManifoldBenchmark {
+	private static final PVector BLOCK_POSITION = new PVector(0.3f, 0.95f);
+	private static final PVector BLOCK_VELOCITY = new PVector(1, -2);
+
+	private GObject block;
+	private GObject floor;
+	private Manifold manifold;
+
+	@Setup
+	public void setup() {
+		block = makeBlock(BLOCK_POSITION.copy(), Map.of("mass", 1.0, "inertia", 1.0, "move",
+				true, "rotate", true, "mesh", makeRect(new PVector(1, 1))));
+		floor = makeBlock(new PVector(0, 0), Map.of("mesh", makeRect(new PVector(4, 1))));
+		manifold = floor.getRigidBody().getProperties().mesh.getCollision(block.getRigidBody().getProperties().mesh);
+		if (!manifold.isCollision()) {
+			throw new IllegalStateException("Benchmark bodies do not collide");
+		}
+	}
+
+	@Benchmark
+	public Manifold applyImpulse() {
+		block.setLocalPosition(BLOCK_POSITION.x, BLOCK_POSITION.y);
+		block.getRigidBody().setVelocity(BLOCK_VELOCITY);
+		block.getRigidBody().setRotation(0);
+		manifold.applyImpulse();
+		return manifold;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static GObject makeBlock(PVector position, Map<String, Object> properties) {
+		GObject o = new GObject(null, position, 0);
+		o.setRigidBody(new RigidBody(new RigidBodyProperties(properties)));
+		return o;
+	}
+
+	private static Primitive makeRect(PVector size) {
+		float w = size.x / 2, h = size.y / 2;
+		return new Primitive(new Surface(0.2, 1, 1), Arrays.asList(new PVector(-w, -h), new PVector(-w, h),
+				new PVector(w, h), new PVector(w, -h)));
+	}
+}
@@ -0,0 +1,104 @@
+package bischemes.bench;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bischemes.engine.GObject;
+import bischemes.engine.physics.Manifold;
+import bischemes.engine.physics.PhysicsMesh;
+import bischemes.engine.physics.Primitive;
+import bischemes.engine.physics.PrimitiveAssembly;
+import bischemes.engine.physics.RigidBody;
+import bischemes.engine.physics.RigidBodyProperties;
+import bischemes.engine.physics.Surface;
+import processing.core.PVector;
+
+/**
+ * Narrowphase collision tests between every kind of mesh, for pairs that
+ * either overlap or only have overlapping bounding boxes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NarrowphaseBenchmark {
+	// Spikes made by the level parts factory hold one triangle per tile
+	private static final int SPIKE_LENGTH = 4;
+
+	@Param({ "true", "false" })
+	public boolean overlapping;
+
+	private PhysicsMesh circleA, circleB;
+	private PhysicsMesh boxA, boxB;
+	private PhysicsMesh spikesA, spikesB;
+
+	@Setup
+	public void setup() {
+		// Boxes and circles are 1 wide, spikes are SPIKE_LENGTH wide
+		float distance = overlapping ? 0.9f : 1.05f;
+		circleA = makeBody(new PVector(0, 0), 0.2f, new Primitive(new Surface(0.2, 1, 1), 0.5));
+		circleB = makeBody(new PVector(distance, 0.1f), 0, new Primitive(new Surface(0.2, 1, 1), 0.5));
+		boxA = makeBody(new PVector(0, 0), 0.2f, makeBox());
+		boxB = makeBody(new PVector(distance, 0.1f), 0, makeBox());
+		spikesA = makeBody(new PVector(0, 0), 0, makeSpikes());
+		spikesB = makeBody(new PVector(0.5f, distance), 0, makeSpikes());
+	}
+
+	@Benchmark
+	public Manifold circleToCircle() {
+		return circleA.getCollision(circleB);
+	}
+
+	@Benchmark
+	public Manifold circleToPolygon() {
+		return circleA.getCollision(boxB);
+	}
+
+	@Benchmark
+	public Manifold polygonToPolygon() {
+		return boxA.getCollision(boxB);
+	}
+
+	@Benchmark
+	public Manifold assemblyToPolygon() {
+		return spikesA.getCollision(boxB);
+	}
+
+	@Benchmark
+	public Manifold assemblyToAssembly() {
+		return spikesA.getCollision(spikesB);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static PhysicsMesh makeBody(PVector position, float orientation, PhysicsMesh mesh) {
+		GObject o = new GObject(null, position, orientation);
+		o.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("move", true, "mesh", mesh))));
+		return o.getRigidBody().getProperties().mesh;
+	}
+
+	private static Primitive makeBox() {
+		return new Primitive(new Surface(0.2, 1, 1), Arrays.asList(new PVector(-0.5f, -0.5f),
+				new PVector(-0.5f, 0.5f), new PVector(0.5f, 0.5f), new PVector(0.5f, -0.5f)));
+	}
+
+	private static PrimitiveAssembly makeSpikes() {
+		PrimitiveAssembly assembly = new PrimitiveAssembly();
+		for (int i = 0; i < SPIKE_LENGTH; i++) {
+			assembly.addPrimitive(new Primitive(new Surface(0.2, 1, 1), Arrays.asList(new PVector(-0.5f, 0.5f),
+					new PVector(0.5f, 0.5f), new PVector(0f, -0.5f))), new PVector(i, 0));
+		}
+		return assembly;
+	}
+}
@@ -2,14 +2,15 @@ package bischemes.engine;
 
 import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 
+import bischemes.engine.FrameProfiler.Counter;
+import bischemes.engine.FrameProfiler.Phase;
+import bischemes.engine.physics.ContactSolver;
+import bischemes.engine.physics.Islands;
 import bischemes.engine.physics.Manifold;
 import bischemes.engine.physics.RigidBody;
 import processing.core.PApplet;
@@ -20,6 +21,7 @@ public class EngineRuntime {
 	public static PApplet applet;
 	private PGraphics g;
 	private Set<SceneGridPair> scenes = new HashSet<>();
+	private RenderList renderList = new RenderList();
 
 	// Camera Variables
 	private PVector cameraPosition = new PVector(0, 0);
@@ -27,102 +29,309 @@ public class EngineRuntime {
 	private float cameraRotation = 0;
 
 	// Time Variables
+	public static final double DEFAULT_TIMESTEP = 1.0 / 60.0;
+	private static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+	private static final float MAX_INTERPOLATION_DISTANCE = 1;
 	private boolean paused = true;
-	private double deltaT = 0;
-	private long lastTimeStamp = new Date().getTime();
+	private double timestep = DEFAULT_TIMESTEP;
+	private int substeps = 1;
+	private int solverIterations = ContactSolver.DEFAULT_ITERATIONS;
+	private int maxStepsPerFrame = DEFAULT_MAX_STEPS_PER_FRAME;
+	private double accumulator = 0;
+	private double interpolationAlpha = 1;
+	private long lastTimeStamp = System.nanoTime();
+
+	// Instrumentation, disabled unless asked for
+	private FrameProfiler profiler = new FrameProfiler();
 
 	public void setPause(boolean pause) {
 		if (this.paused != pause) {
 			this.paused = pause;
-			if (pause = false) {
-				System.out.println("Unpaused!");
-				lastTimeStamp = new Date().getTime();
+			if (!pause) {
+				lastTimeStamp = System.nanoTime();
+				accumulator = 0;
 			}
 		}
 	}
 
+	/**
+	 * Set the duration of a physics step. Object updates run once per step.
+	 *
+	 * @param timestep The duration of a step, in seconds.
+	 */
+	public void setTimestep(double timestep) {
+		this.timestep = timestep;
+	}
+
+	public double getTimestep() {
+		return timestep;
+	}
+
+	/**
+	 * Set the number of integration and collision substeps per physics step.
+	 *
+	 * @param substeps The number of substeps, at least 1.
+	 */
+	public void setSubsteps(int substeps) {
+		this.substeps = Math.max(1, substeps);
+	}
+
+	public int getSubsteps() {
+		return substeps;
+	}
+
+	/**
+	 * Set the number of contact solver iterations per substep. More iterations
+	 * give stiffer stacks at a higher cost.
+	 *
+	 * @param solverIterations The number of iterations, at least 1.
+	 */
+	public void setSolverIterations(int solverIterations) {
+		this.solverIterations = Math.max(1, solverIterations);
+	}
+
+	public int getSolverIterations() {
+		return solverIterations;
+	}
+
+	/**
+	 * Set the maximum number of physics steps run in a single frame. Time left
+	 * over once the cap is reached is dropped, so that slow frames cannot snowball.
+	 *
+	 * @param maxStepsPerFrame The maximum number of steps per frame, at least 1.
+	 */
+	public void setMaxStepsPerFrame(int maxStepsPerFrame) {
+		this.maxStepsPerFrame = Math.max(1, maxStepsPerFrame);
+	}
+
+	/**
+	 * @return The progress between the last two physics steps that is drawn.
+	 */
+	public double getInterpolationAlpha() {
+		return interpolationAlpha;
+	}
+
+	/**
+	 * @return The visual attributes of all attached scenes, in drawing order.
+	 */
+	public RenderList getRenderList() {
+		return renderList;
+	}
+
+	/**
+	 * Draw another render list, once the attached scenes were swapped with scenes
+	 * drawn through it.
+	 *
+	 * @param renderList The render list all attached scenes now draw through.
+	 * @see SceneGridPair#swap(SceneGridPair)
+	 */
+	public void setRenderList(RenderList renderList) {
+		this.renderList = renderList;
+	}
+
+	/**
+	 * @return The profiler measuring the phases of each frame.
+	 */
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * @return Whether the runtime simulates its scenes without drawing them.
+	 */
+	public boolean isHeadless() {
+		return g == null;
+	}
+
 	public void draw() {
+		if (g == null) {
+			return;
+		}
+		profiler.begin(Phase.DRAW);
 		PVector scale = new PVector(applet.width / cameraBounds.x, applet.height / cameraBounds.y);
 		PVector posAnchored = new PVector(cameraPosition.x - cameraBounds.x / 2, cameraPosition.y + cameraBounds.y / 2);
 
-		// Order all visual attributes in all scenes into an array.
-		ArrayList<VisualAttribute> visuals = new ArrayList<>();
+		// Draw moving bodies between their last two physics states
 		for (SceneGridPair scene : scenes) {
-			ArrayDeque<GObject> q = new ArrayDeque<>(Arrays.asList(scene.scene));
-			while (!q.isEmpty()) {
-				GObject current = q.pollFirst();
-				visuals.addAll(current.getVisualAttributes());
-				q.addAll(current.getChildren());
-			}
-		}
-		Collections.sort(visuals, new Comparator<VisualAttribute>() {
-			@Override
-			public int compare(VisualAttribute a, VisualAttribute b) {
-				if (a.visibilityPriority != b.visibilityPriority) {
-					return a.visibilityPriority ? Integer.MAX_VALUE : -Integer.MAX_VALUE;
-				} else {
-					return (int) (b.getSize().x * b.getSize().y - a.getSize().x * a.getSize().y);
+			for (RigidBody rb : scene.bodies) {
+				if (rb.getProperties().isMovable) {
+					rb.getParent().interpolateTransform((float) interpolationAlpha, MAX_INTERPOLATION_DISTANCE);
 				}
 			}
-		});
+		}
+
+		// Only draw what the camera sees. A rotated camera sees at most the circle
+		// around its rectangle.
+		PVector halfView = PVector.div(cameraBounds, 2);
+		if (cameraRotation != 0) {
+			halfView.set(halfView.mag(), halfView.mag());
+		}
+		int drawn = renderList.cull(cameraPosition.x - halfView.x, cameraPosition.y - halfView.y,
+				cameraPosition.x + halfView.x, cameraPosition.y + halfView.y);
 
 		// Set up Matrix
 		g.pushMatrix();
 		g.rotate(-cameraRotation);
 		g.scale(scale.x, -scale.y);
 		g.translate(-posAnchored.x, -posAnchored.y);
-		visuals.stream().forEach((v) -> v.draw(g));
+		List<VisualAttribute> visuals = renderList.getVisuals();
+		for (int i = 0; i < visuals.size(); i++) {
+			if (renderList.isVisible(visuals.get(i))) {
+				visuals.get(i).draw(g);
+			}
+		}
 		g.popMatrix();
+		profiler.count(Counter.VISUALS_DRAWN, drawn);
+
+		for (SceneGridPair scene : scenes) {
+			for (RigidBody rb : scene.bodies) {
+				rb.getParent().restoreStepTransform();
+			}
+		}
+		profiler.end(Phase.DRAW);
+		profiler.drawOverlay(g);
 	}
 
 	public void update() {
-		long currentTime = new Date().getTime();
-		deltaT = (double) (currentTime - lastTimeStamp) / 1000.0;
+		long currentTime = System.nanoTime();
+		double frameTime = (currentTime - lastTimeStamp) / 1e9;
 		lastTimeStamp = currentTime;
+		profiler.beginFrame();
 
 		if (paused) {
 			draw();
+			profiler.endFrame();
 			return;
 		}
 
-		// 1. GObject per-frame Update
+		// Run as many fixed steps as the elapsed time allows, up to the cap
+		accumulator += frameTime;
+		int steps = 0;
+		while (accumulator >= timestep && steps < maxStepsPerFrame) {
+			step();
+			accumulator -= timestep;
+			steps++;
+		}
+		if (accumulator >= timestep) {
+			accumulator %= timestep;
+		}
+		interpolationAlpha = accumulator / timestep;
+
+		// 6. Draw
+		draw();
+		profiler.endFrame();
+	}
+
+	/**
+	 * Advance the simulation by a duration of simulated time, as fast as possible
+	 * and without drawing. Time that does not fill a whole step is carried over to
+	 * the next call.
+	 *
+	 * @param duration The simulated time to advance, in seconds.
+	 * @return The number of steps run.
+	 */
+	public int simulate(double duration) {
+		if (paused) {
+			return 0;
+		}
+		profiler.beginFrame();
+		double remaining = accumulator + duration;
+		int steps = 0;
+		while (remaining >= timestep && !paused) {
+			step();
+			remaining -= timestep;
+			steps++;
+		}
+		accumulator = remaining;
+		interpolationAlpha = accumulator / timestep;
+		profiler.endFrame();
+		return steps;
+	}
+
+	/**
+	 * Run a single fixed physics step on all scenes.
+	 */
+	public void step() {
+		double h = timestep / substeps;
+		profiler.count(Counter.STEPS, 1);
 		for (SceneGridPair s : scenes) {
+			// 1. GObject per-step Update
+			profiler.begin(Phase.UPDATE);
 			ArrayDeque<GObject> q = new ArrayDeque<>(Arrays.asList(s.scene));
 			while (!q.isEmpty()) {
 				GObject current = q.pollFirst();
 				current.update();
 				q.addAll(current.children);
 			}
-
-			// 2. Movement Integration
 			for (RigidBody rb : s.bodies) {
+				if (rb.getProperties().isMovable) {
+					rb.getParent().storePreviousTransform();
+				}
+			}
+			s.applyForceFields();
+			profiler.end(Phase.UPDATE);
+
+			HashMap<Pair<RigidBody>, Manifold> hits = new HashMap<>();
+			for (int i = 0; i < substeps; i++) {
+				// 2. Movement Integration
+				profiler.begin(Phase.INTEGRATION);
+				long broadphaseWork = s.grid.getWorkCount();
+				s.store.integrate(h);
+				for (int j = 0; j < s.store.size(); j++) {
+					RigidBody rb = s.store.get(j);
+					if (rb.hasMoved) {
+						rb.derive();
+						s.grid.move(rb);
+						rb.hasMoved = false;
+						profiler.count(Counter.BODIES_MOVED, 1);
+					}
+				}
+				profiler.count(Counter.BROADPHASE_WORK, s.grid.getWorkCount() - broadphaseWork);
+				profiler.end(Phase.INTEGRATION);
+
+				// 3. Collision Detection
+				profiler.begin(Phase.COLLISION_DETECTION);
+				s.grid.resolveImpacts();
+				HashMap<Pair<RigidBody>, Manifold> collisions = s.grid.getCollisions();
+				profiler.count(Counter.CANDIDATE_PAIRS, s.grid.getPairCount());
+				profiler.count(Counter.MANIFOLDS, collisions.size());
+				profiler.end(Phase.COLLISION_DETECTION);
 
-				rb.integrate(deltaT);
-				if (rb.hasMoved) {
-					s.grid.move(rb);
+				// 4. Collision Resolution
+				profiler.begin(Phase.RESOLUTION);
+				s.solver.solve(collisions, solverIterations);
+				for (Manifold m : collisions.values()) {
+					profiler.count(Counter.CONTACTS, m.getContactCount());
 				}
-				rb.initUpdate();
+				hits.putAll(collisions);
+				profiler.end(Phase.RESOLUTION);
 			}
 
-			// 4. Collision Resolution
-			HashMap<Pair<RigidBody>, Manifold> collisions = s.grid.getCollisions();
-			for (var entry : collisions.entrySet()) {
-				entry.getValue().applyImpulse();
+			// Put resting islands to sleep, and wake those touched by an awake body
+			int sleeping = Islands.update(s.bodies, hits.keySet());
+			profiler.count(Counter.BODIES_SLEEPING, sleeping);
+			s.store.clearForces();
+
+			// 5. Hit callbacks, once per step for every colliding pair
+			profiler.begin(Phase.CALLBACKS);
+			for (var entry : hits.entrySet()) {
 				entry.getKey().a.getParent().onHit(entry.getKey().b.getParent(), entry.getValue());
 				entry.getKey().b.getParent().onHit(entry.getKey().a.getParent(), entry.getValue());
 			}
+			profiler.end(Phase.CALLBACKS);
 		}
-
-		// 6. Draw
-		draw();
 	}
 
 	public void attachScene(SceneGridPair scene) {
-		scenes.add(scene);
+		if (scenes.add(scene)) {
+			scene.setRenderList(renderList);
+		}
 	}
 
 	public void removeScene(SceneGridPair scene) {
-		scenes.remove(scene);
+		if (scenes.remove(scene)) {
+			scene.setRenderList(null);
+		}
 	}
 
 	public void setCameraPosition(PVector position) {
@@ -145,6 +354,15 @@ public class EngineRuntime {
 		this.cameraRotation = rotation;
 	}
 
+	/**
+	 * Constructor for a headless runtime, which simulates its scenes without a
+	 * window. Steps are driven by {@link #simulate(double)} or {@link #step()}
+	 * rather than by the wall clock.
+	 */
+	public EngineRuntime() {
+		this.g = null;
+	}
+
 	public EngineRuntime(PApplet applet, PGraphics g) {
 		EngineRuntime.applet = applet;
 		this.g = g;
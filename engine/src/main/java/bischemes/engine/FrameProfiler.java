@@ -0,0 +1,228 @@
+package bischemes.engine;
+
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+/**
+ * Per-frame instrumentation of the engine runtime: time spent in each phase,
+ * counters of the work done, and rolling histograms of both over the latest
+ * frames.
+ *
+ * The profiler is disabled by default. While disabled, every call returns
+ * straight away, without reading the clock.
+ */
+public class FrameProfiler {
+	private static final int DEFAULT_WINDOW = 120;
+	private static final float OVERLAY_TEXT_SIZE = 14;
+	private static final float OVERLAY_MARGIN = 8;
+
+	public enum Phase {
+		UPDATE, INTEGRATION, COLLISION_DETECTION, RESOLUTION, CALLBACKS, DRAW
+	}
+
+	public enum Counter {
+		STEPS, BODIES_MOVED, BODIES_SLEEPING, BROADPHASE_WORK, CANDIDATE_PAIRS, MANIFOLDS, CONTACTS, VISUALS_DRAWN
+	}
+
+	private boolean enabled = false;
+	private boolean overlayVisible = false;
+
+	// Measures of the frame in progress
+	private long[] phaseStarts = new long[Phase.values().length];
+	private long[] phaseNanos = new long[Phase.values().length];
+	private long[] counts = new long[Counter.values().length];
+	private long frameStart = 0;
+
+	// Measures of the latest frames
+	private RollingHistogram frameHistogram;
+	private RollingHistogram[] phaseHistograms = new RollingHistogram[Phase.values().length];
+	private RollingHistogram[] counterHistograms = new RollingHistogram[Counter.values().length];
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enable or disable the profiler. Enabling it starts the history afresh.
+	 *
+	 * @param enabled Whether the profiler records measures.
+	 */
+	public void setEnabled(boolean enabled) {
+		if (enabled && !this.enabled) {
+			reset();
+		}
+		this.enabled = enabled;
+	}
+
+	public boolean isOverlayVisible() {
+		return overlayVisible;
+	}
+
+	public void setOverlayVisible(boolean overlayVisible) {
+		this.overlayVisible = overlayVisible;
+	}
+
+	/**
+	 * @return The time taken by the latest frames, in nanoseconds.
+	 */
+	public RollingHistogram getFrameHistogram() {
+		return frameHistogram;
+	}
+
+	/**
+	 * @return The time spent in a phase on the latest frames, in nanoseconds.
+	 */
+	public RollingHistogram getHistogram(Phase phase) {
+		return phaseHistograms[phase.ordinal()];
+	}
+
+	/**
+	 * @return The value of a counter on the latest frames.
+	 */
+	public RollingHistogram getHistogram(Counter counter) {
+		return counterHistograms[counter.ordinal()];
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	public void beginFrame() {
+		if (enabled) {
+			frameStart = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Close the frame in progress, recording its measures in the histograms.
+	 */
+	public void endFrame() {
+		if (!enabled) {
+			return;
+		}
+		frameHistogram.record(System.nanoTime() - frameStart);
+		for (int i = 0; i < phaseNanos.length; i++) {
+			phaseHistograms[i].record(phaseNanos[i]);
+			phaseNanos[i] = 0;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counterHistograms[i].record(counts[i]);
+			counts[i] = 0;
+		}
+	}
+
+	/**
+	 * Start timing a phase. A phase may run several times in a frame, e.g. once
+	 * per scene or step, in which case its times add up.
+	 */
+	public void begin(Phase phase) {
+		if (enabled) {
+			phaseStarts[phase.ordinal()] = System.nanoTime();
+		}
+	}
+
+	public void end(Phase phase) {
+		if (enabled) {
+			phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStarts[phase.ordinal()];
+		}
+	}
+
+	public void count(Counter counter, long amount) {
+		if (enabled) {
+			counts[counter.ordinal()] += amount;
+		}
+	}
+
+	public void reset() {
+		frameHistogram.clear();
+		for (int i = 0; i < phaseNanos.length; i++) {
+			phaseHistograms[i].clear();
+			phaseNanos[i] = 0;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counterHistograms[i].clear();
+			counts[i] = 0;
+		}
+	}
+
+	/**
+	 * @return A table of the mean, 95th percentile and maximum of every measure
+	 *         over the latest frames, one measure per line.
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-20s %9s %9s %9s%n", "ms", "mean", "p95", "max"));
+		appendTime(sb, "FRAME", frameHistogram);
+		for (Phase p : Phase.values()) {
+			appendTime(sb, p.name(), getHistogram(p));
+		}
+		sb.append(String.format("%-20s %9s %9s %9s%n", "count", "mean", "p95", "max"));
+		for (Counter c : Counter.values()) {
+			RollingHistogram h = getHistogram(c);
+			sb.append(String.format("%-20s %9.1f %9d %9d%n", c.name(), h.getMean(), h.getPercentile(95),
+					h.getMax()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Draw the summary in the top-left corner of the screen, if the overlay is
+	 * visible.
+	 *
+	 * @param g The graphics to draw with, in screen coordinates.
+	 */
+	public void drawOverlay(PGraphics g) {
+		if (!overlayVisible || !enabled) {
+			return;
+		}
+		String summary = getSummary();
+		int lines = summary.split("\n").length;
+
+		g.pushStyle();
+		g.textSize(OVERLAY_TEXT_SIZE);
+		g.noStroke();
+		g.fill(0, 180);
+		g.rect(0, 0, g.textWidth("x") * 50 + 2 * OVERLAY_MARGIN,
+				lines * g.textLeading + 2 * OVERLAY_MARGIN);
+		g.fill(255);
+		g.textAlign(PConstants.LEFT, PConstants.TOP);
+		g.text(summary, OVERLAY_MARGIN, OVERLAY_MARGIN);
+		g.popStyle();
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static void appendTime(StringBuilder sb, String name, RollingHistogram h) {
+		sb.append(String.format("%-20s %9.3f %9.3f %9.3f%n", name, h.getMean() / 1e6, h.getPercentile(95) / 1e6,
+				h.getMax() / 1e6));
+	}
+
+	//////////////////
+	// Constructors //
+	//////////////////
+
+	public FrameProfiler() {
+		this(DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Constructor for a frame profiler.
+	 *
+	 * @param window The number of latest frames kept in the histograms.
+	 */
+	public FrameProfiler(int window) {
+		frameHistogram = new RollingHistogram(window);
+		for (int i = 0; i < phaseHistograms.length; i++) {
+			phaseHistograms[i] = new RollingHistogram(window);
+		}
+		for (int i = 0; i < counterHistograms.length; i++) {
+			counterHistograms[i] = new RollingHistogram(window);
+		}
+	}
+}
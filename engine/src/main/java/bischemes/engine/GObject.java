@@ -2,7 +2,7 @@ package bischemes.engine;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import bischemes.engine.physics.Manifold;
@@ -12,46 +12,85 @@ import processing.core.PVector;
 
 public class GObject {
 	protected GObject parent;
-	protected Set<GObject> children = new HashSet<>();
+	// Kept in the order they were added, so that the same scene is always built and drawn the same way
+	protected Set<GObject> children = new LinkedHashSet<>();
 	protected PVector position;
 	protected double orientation;
 	protected RigidBody rigidBody = null;
 	protected List<VisualAttribute> visualAttributes = new ArrayList<>();
 
+	// Render list of the scene the object is attached to, if any, and whether
+	// the list is yet to see the object's latest transform
+	RenderList renderList = null;
+	boolean isRenderBoundsDirty = false;
+
+	// Cached world transform, valid while not dirty
+	private PVector worldPosition = new PVector();
+	private double worldOrientation = 0;
+	private boolean isTransformDirty = true;
+
+	// Local transform before the last physics step, and the step's own while
+	// an interpolated one is drawn
+	private PVector previousPosition = null;
+	private double previousOrientation = 0;
+	private PVector stepPosition = null;
+	private double stepOrientation = 0;
+
 	/////////////////////////
 	// Getters And Setters //
 	/////////////////////////
 
+	/**
+	 * Get the world position of the object. The world transform is cached, and
+	 * only recomputed after this object or one of its ancestors moved.
+	 *
+	 * @return The world position of the object. The vector is the cache itself,
+	 *         and changes as the object moves: it is read-only, and must be copied
+	 *         to be modified or kept.
+	 */
 	public PVector getPosition() {
-		PVector globalPosition = new PVector();
-		GObject currentObject = this;
-		while (currentObject != null) {
-			globalPosition.add(currentObject.position);
-			currentObject = currentObject.parent;
-		}
-		return globalPosition;
+		updateTransform();
+		return worldPosition;
 	}
 
 	public void setLocalPosition(PVector newLocalPosition) {
 		this.position = newLocalPosition;
+		invalidateTransform();
+		if (rigidBody != null) {
+			rigidBody.hasMoved = true;
+			rigidBody.wake();
+		}
 	}
 
+	/**
+	 * Set the local position of the object. Unlike
+	 * {@link #setLocalPosition(PVector)}, this does not flag the rigid body as
+	 * moved, as it is meant for the physics integration itself.
+	 *
+	 * @param x The new local x coordinate.
+	 * @param y The new local y coordinate.
+	 */
+	public void setLocalPosition(float x, float y) {
+		this.position = new PVector(x, y);
+		invalidateTransform();
+	}
+
+	/**
+	 * @return The local position of the object. Use
+	 *         {@link #setLocalPosition(PVector)} rather than modifying it in place.
+	 */
 	public PVector getLocalPosition() {
 		return position;
 	}
 
 	public double getOrientation() {
-		GObject currentObject = this;
-		float globalRotation = 0;
-		while (currentObject != null) {
-			globalRotation += currentObject.orientation;
-			currentObject = currentObject.parent;
-		}
-		return globalRotation;
+		updateTransform();
+		return worldOrientation;
 	}
 
 	public void setLocalOrientation(double orientation) {
 		this.orientation = orientation;
+		invalidateTransform();
 	}
 
 	public double getLocalOrientation() {
@@ -87,6 +126,9 @@ public class GObject {
 			a.activate(this);
 			visualAttributes.add(a);
 			ret.add(visualAttributes.size() - 1);
+			if (renderList != null) {
+				renderList.add(a);
+			}
 		}
 		return ret;
 	}
@@ -100,15 +142,28 @@ public class GObject {
 	}
 
 	public void removeVisualAttributes(int... indices) {
-		for (int i : indices)
-			visualAttributes.remove(i);
+		for (int i : indices) {
+			VisualAttribute a = visualAttributes.remove(i);
+			if (renderList != null) {
+				renderList.remove(a);
+			}
+		}
 	}
 
 	public void removeVisualAttributes(VisualAttribute... attributes) {
-		visualAttributes.removeAll(List.of(attributes));
+		for (VisualAttribute a : attributes) {
+			if (visualAttributes.remove(a) && renderList != null) {
+				renderList.remove(a);
+			}
+		}
 	}
 
 	public void removeAllVisualAttributes() {
+		if (renderList != null) {
+			for (VisualAttribute a : visualAttributes) {
+				renderList.remove(a);
+			}
+		}
 		visualAttributes.clear();
 	}
 
@@ -140,9 +195,95 @@ public class GObject {
 	public void removeChild(GObject child) {
 		if (children.contains(child)) {
 			children.remove(child);
+			child.setRenderList(null);
+		}
+	}
+
+	/**
+	 * Mark the world transform of this object and all of its descendants as out
+	 * of date. Called whenever the local transform or the parent changes.
+	 */
+	public void invalidateTransform() {
+		if (isTransformDirty) {
+			// Descendants of a dirty object are always dirty
+			return;
+		}
+		isTransformDirty = true;
+		if (renderList != null && !visualAttributes.isEmpty()) {
+			renderList.markMoved(this);
+		}
+		for (GObject child : children) {
+			child.invalidateTransform();
+		}
+	}
+
+	/**
+	 * Move the visual attributes of this object and all of its descendants to
+	 * another render list, e.g. when attached to or detached from a scene.
+	 *
+	 * @param list The new render list, or null if the object is not drawn.
+	 */
+	void setRenderList(RenderList list) {
+		if (renderList == list) {
+			// Descendants always share the render list of their parent
+			return;
+		}
+		for (VisualAttribute a : visualAttributes) {
+			if (renderList != null) {
+				renderList.remove(a);
+			}
+			if (list != null) {
+				list.add(a);
+			}
+		}
+		renderList = list;
+		for (GObject child : children) {
+			child.setRenderList(list);
 		}
 	}
 
+	/**
+	 * Store the local transform before a physics step, to interpolate from it when
+	 * drawing.
+	 */
+	public void storePreviousTransform() {
+		if (previousPosition == null) {
+			previousPosition = new PVector();
+		}
+		previousPosition.set(position);
+		previousOrientation = orientation;
+	}
+
+	/**
+	 * Replace the local transform with one blended between the previous physics
+	 * step and the current one, until {@link #restoreStepTransform()} is called.
+	 * Jumps longer than the given distance (teleports) are not blended.
+	 *
+	 * @param alpha       The progress between the previous and current step.
+	 * @param maxDistance The longest distance to blend over.
+	 */
+	public void interpolateTransform(float alpha, float maxDistance) {
+		if (previousPosition == null || stepPosition != null
+				|| PVector.dist(previousPosition, position) > maxDistance) {
+			return;
+		}
+		stepPosition = position;
+		stepOrientation = orientation;
+		position = PVector.lerp(previousPosition, stepPosition, alpha);
+		orientation = previousOrientation + (stepOrientation - previousOrientation) * alpha;
+		invalidateTransform();
+	}
+
+	public void restoreStepTransform() {
+		if (stepPosition == null) {
+			return;
+		}
+		position = stepPosition;
+		orientation = stepOrientation;
+		stepPosition = null;
+		invalidateTransform();
+	}
+
 	/////////////////////
 	// Private Methods //
 	/////////////////////
@@ -150,6 +291,24 @@ public class GObject {
 	private void addChild(GObject child) {
 		child.parent = this;
 		children.add(child);
+		child.invalidateTransform();
+		child.setRenderList(renderList);
+	}
+
+	// Recompute the world transform from the parent's, if out of date.
+	private void updateTransform() {
+		if (!isTransformDirty) {
+			return;
+		}
+		if (parent == null) {
+			worldPosition.set(position);
+			worldOrientation = orientation;
+		} else {
+			parent.updateTransform();
+			worldPosition.set(parent.worldPosition.x + position.x, parent.worldPosition.y + position.y);
+			worldOrientation = parent.worldOrientation + orientation;
+		}
+		isTransformDirty = false;
 	}
 
 	public GObject(GObject parent, PVector position, float rotation) {
@@ -0,0 +1,116 @@
+package bischemes.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bischemes.engine.physics.RigidBodyProperties;
+import processing.core.PConstants;
+import processing.core.PVector;
+
+/**
+ * Merges the static, untextured visual attributes of a tree of objects into one
+ * triangle list per colour, so that the tree draws with a handful of shapes
+ * rather than one shape and transform per object.
+ */
+public final class GeometryBaker {
+
+	private GeometryBaker() {
+	}
+
+	/**
+	 * Bake the static geometry under a root object. Baked attributes are removed
+	 * from their objects and replaced by merged ones on the root, so baking the
+	 * same tree again does nothing.
+	 *
+	 * Objects with a movable or rotatable rigid body, textured attributes,
+	 * hidden attributes and attributes of less than 3 vertices are left alone.
+	 * Polygons are expected to be convex, as made by the level part factory.
+	 *
+	 * @param root The root of the geometry, which must not move afterwards.
+	 * @return The number of attributes that were merged.
+	 */
+	public static int bake(GObject root) {
+		Map<Integer, List<PVector>> triangles = new LinkedHashMap<>();
+		int merged = 0;
+
+		// Transform of every object relative to the root, composed as GObject does
+		ArrayDeque<GObject> q = new ArrayDeque<>(root.children);
+		ArrayDeque<PVector> positions = new ArrayDeque<>();
+		ArrayDeque<Double> orientations = new ArrayDeque<>();
+		for (GObject child : root.children) {
+			positions.add(child.position.copy());
+			orientations.add(child.orientation);
+		}
+		while (!q.isEmpty()) {
+			GObject current = q.pollFirst();
+			PVector position = positions.pollFirst();
+			double orientation = orientations.pollFirst();
+			for (GObject child : current.children) {
+				q.add(child);
+				positions.add(PVector.add(position, child.position));
+				orientations.add(orientation + child.orientation);
+			}
+			if (!isStatic(current)) {
+				continue;
+			}
+
+			List<VisualAttribute> baked = new ArrayList<>();
+			for (VisualAttribute a : current.visualAttributes) {
+				if (a.getVisualKind() != VisualAttribute.VisualKind.UNTEXTURED || !a.visible
+						|| a.getVertices().size() < 3) {
+					continue;
+				}
+				List<PVector> out = triangles.computeIfAbsent(a.getColour(), c -> new ArrayList<>());
+				addTriangleFan(out, a, position, (float) orientation);
+				baked.add(a);
+			}
+			if (!baked.isEmpty()) {
+				current.removeVisualAttributes(baked.toArray(new VisualAttribute[0]));
+				merged += baked.size();
+			}
+		}
+
+		for (Map.Entry<Integer, List<PVector>> entry : triangles.entrySet()) {
+			VisualAttribute batch = new VisualAttribute(entry.getValue(), entry.getKey());
+			batch.setShapeKind(PConstants.TRIANGLES);
+			root.addVisualAttributes(batch);
+		}
+		return merged;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static boolean isStatic(GObject o) {
+		if (o.rigidBody == null) {
+			return true;
+		}
+		RigidBodyProperties properties = o.rigidBody.getProperties();
+		return !properties.isMovable && !properties.isRotatable;
+	}
+
+	// Transform the attribute's polygon as VisualAttribute.draw does, and split
+	// it into triangles.
+	private static void addTriangleFan(List<PVector> out, VisualAttribute a, PVector position, float orientation) {
+		PVector scaling = a.getScaling() == null ? new PVector(1, 1) : a.getScaling();
+		float sx = scaling.x * (a.mirrorX ? -1 : 1), sy = scaling.y * (a.mirrorY ? -1 : 1);
+		PVector origin = PVector.add(position, a.getOffset());
+
+		List<PVector> vertices = a.getVertices();
+		PVector[] transformed = new PVector[vertices.size()];
+		for (int i = 0; i < vertices.size(); i++) {
+			PVector v = new PVector(vertices.get(i).x * sx, vertices.get(i).y * sy);
+			v.rotate(orientation);
+			transformed[i] = v.add(origin);
+		}
+		for (int i = 1; i < transformed.length - 1; i++) {
+			out.add(transformed[0]);
+			out.add(transformed[i]);
+			out.add(transformed[i + 1]);
+		}
+	}
+}
@@ -4,9 +4,10 @@ public class Pair<T> {
 	public T a;
 	public T b;
 
+	// Symmetric, as pairs are equal whatever the order of their elements
 	@Override
 	public int hashCode() {
-		return a.hashCode() + 97 * b.hashCode();
+		return a.hashCode() + b.hashCode();
 	}
 
 	@Override
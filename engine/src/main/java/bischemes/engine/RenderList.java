@@ -0,0 +1,238 @@
+package bischemes.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import processing.core.PVector;
+
+/**
+ * Visual attributes of all the objects attached to the runtime's scenes, in
+ * drawing order. Objects register their attributes as they are attached,
+ * detached, or have attributes added and removed, so the list never needs to
+ * be rebuilt from the scene trees. It is only sorted again after attributes
+ * were added or their priority changed.
+ *
+ * Attributes are also bucketed in a uniform grid over their world bounds, like
+ * the physics grid does with primitives, so that the attributes on screen can
+ * be found from the camera rectangle alone. Objects flag themselves when their
+ * transform changes, and only flagged objects get bucketed again.
+ */
+public class RenderList {
+	private static final float CELL_SIZE = 4;
+
+	// Backgrounds, then normal attributes, then high priority ones - larger ones
+	// first within each
+	private static final Comparator<VisualAttribute> DRAWING_ORDER = new Comparator<VisualAttribute>() {
+		@Override
+		public int compare(VisualAttribute a, VisualAttribute b) {
+			if (a.background != b.background) {
+				return a.background ? -1 : 1;
+			}
+			if (a.visibilityPriority != b.visibilityPriority) {
+				return a.visibilityPriority ? 1 : -1;
+			}
+			return Float.compare(b.getSize().x * b.getSize().y, a.getSize().x * a.getSize().y);
+		}
+	};
+
+	private ArrayList<VisualAttribute> visuals = new ArrayList<>();
+	private boolean isSorted = true;
+
+	// Objects whose attributes need to be bucketed again
+	private ArrayList<GObject> moved = new ArrayList<>();
+
+	// Grid of cells, grown to cover every attribute - first cell and size
+	private ArrayList<VisualAttribute>[] cells = newCells(0);
+	private int originCol = 0;
+	private int originRow = 0;
+	private int ncols = 0;
+	private int nrows = 0;
+
+	// Culling pass, stamped on the attributes it finds on screen
+	private int stamp = 0;
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	/**
+	 * @return The visual attributes in drawing order. The list is shared and must
+	 *         not be modified.
+	 */
+	public List<VisualAttribute> getVisuals() {
+		if (!isSorted) {
+			visuals.sort(DRAWING_ORDER);
+			isSorted = true;
+		}
+		return visuals;
+	}
+
+	public int size() {
+		return visuals.size();
+	}
+
+	/**
+	 * @return Whether the attribute was found on screen by the last call to
+	 *         {@link #cull(float, float, float, float)}.
+	 */
+	public boolean isVisible(VisualAttribute a) {
+		return a.cullStamp == stamp;
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	public void add(VisualAttribute a) {
+		visuals.add(a);
+		isSorted = false;
+		if (a.obj != null) {
+			markMoved(a.obj);
+		}
+	}
+
+	// Removing keeps the remaining attributes in order.
+	public void remove(VisualAttribute a) {
+		if (visuals.remove(a)) {
+			setCells(a, 0, 0, -1, -1);
+		}
+	}
+
+	/**
+	 * Sort the list again before the next draw, e.g. after the priority of one of
+	 * its attributes changed.
+	 */
+	public void invalidateOrder() {
+		isSorted = false;
+	}
+
+	/**
+	 * Have the attributes of an object bucketed again before the next culling
+	 * pass, as its transform or their bounds changed.
+	 *
+	 * @param o The object that moved.
+	 */
+	public void markMoved(GObject o) {
+		if (!o.isRenderBoundsDirty) {
+			o.isRenderBoundsDirty = true;
+			moved.add(o);
+		}
+	}
+
+	/**
+	 * Find the attributes that overlap a rectangle of the world, usually the
+	 * camera's, after which {@link #isVisible(VisualAttribute)} tells whether an
+	 * attribute is worth drawing.
+	 *
+	 * @return The number of attributes found.
+	 */
+	public int cull(float minX, float minY, float maxX, float maxY) {
+		for (int i = 0; i < moved.size(); i++) {
+			GObject o = moved.get(i);
+			o.isRenderBoundsDirty = false;
+			if (o.renderList == this) {
+				for (VisualAttribute a : o.visualAttributes) {
+					bucket(a);
+				}
+			}
+		}
+		moved.clear();
+
+		stamp++;
+		int found = 0;
+		int minCol = Math.max(originCol, cellOf(minX)), maxCol = Math.min(originCol + ncols - 1, cellOf(maxX));
+		int minRow = Math.max(originRow, cellOf(minY)), maxRow = Math.min(originRow + nrows - 1, cellOf(maxY));
+		for (int j = minRow; j <= maxRow; j++) {
+			for (int i = minCol; i <= maxCol; i++) {
+				ArrayList<VisualAttribute> cell = cells[(j - originRow) * ncols + i - originCol];
+				if (cell == null) {
+					continue;
+				}
+				for (int k = 0; k < cell.size(); k++) {
+					VisualAttribute a = cell.get(k);
+					if (a.cullStamp != stamp) {
+						a.cullStamp = stamp;
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Put an attribute in the cells its world bounds cover.
+	private void bucket(VisualAttribute a) {
+		PVector position = a.obj.getPosition();
+		float x = position.x + a.getOffset().x, y = position.y + a.getOffset().y;
+		float r = a.getBoundingRadius();
+		setCells(a, cellOf(x - r), cellOf(y - r), cellOf(x + r), cellOf(y + r));
+	}
+
+	// Move an attribute from the cells it covers to the given range of cells.
+	private void setCells(VisualAttribute a, int minCol, int minRow, int maxCol, int maxRow) {
+		int[] old = a.cullCells;
+		if (old[0] == minCol && old[1] == minRow && old[2] == maxCol && old[3] == maxRow) {
+			return;
+		}
+		for (int j = old[1]; j <= old[3]; j++) {
+			for (int i = old[0]; i <= old[2]; i++) {
+				cells[(j - originRow) * ncols + i - originCol].remove(a);
+			}
+		}
+		if (minCol <= maxCol && minRow <= maxRow) {
+			cover(minCol, minRow, maxCol, maxRow);
+		}
+		for (int j = minRow; j <= maxRow; j++) {
+			for (int i = minCol; i <= maxCol; i++) {
+				int c = (j - originRow) * ncols + i - originCol;
+				if (cells[c] == null) {
+					cells[c] = new ArrayList<>();
+				}
+				cells[c].add(a);
+			}
+		}
+		old[0] = minCol;
+		old[1] = minRow;
+		old[2] = maxCol;
+		old[3] = maxRow;
+	}
+
+	// Grow the grid so that it covers the given range of cells.
+	private void cover(int minCol, int minRow, int maxCol, int maxRow) {
+		if (ncols > 0 && minCol >= originCol && minRow >= originRow && maxCol < originCol + ncols
+				&& maxRow < originRow + nrows) {
+			return;
+		}
+		int newOriginCol = ncols > 0 ? Math.min(originCol, minCol) : minCol;
+		int newOriginRow = nrows > 0 ? Math.min(originRow, minRow) : minRow;
+		int newCols = (ncols > 0 ? Math.max(originCol + ncols - 1, maxCol) : maxCol) - newOriginCol + 1;
+		int newRows = (nrows > 0 ? Math.max(originRow + nrows - 1, maxRow) : maxRow) - newOriginRow + 1;
+
+		ArrayList<VisualAttribute>[] newCells = newCells(newCols * newRows);
+		for (int j = 0; j < nrows; j++) {
+			for (int i = 0; i < ncols; i++) {
+				int col = originCol + i - newOriginCol, row = originRow + j - newOriginRow;
+				newCells[row * newCols + col] = cells[j * ncols + i];
+			}
+		}
+		cells = newCells;
+		originCol = newOriginCol;
+		originRow = newOriginRow;
+		ncols = newCols;
+		nrows = newRows;
+	}
+
+	private static int cellOf(float coordinate) {
+		return (int) Math.floor(coordinate / CELL_SIZE);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static ArrayList<VisualAttribute>[] newCells(int count) {
+		return new ArrayList[count];
+	}
+}
@@ -0,0 +1,98 @@
+package bischemes.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size window over the latest samples of a measure, such as the time a
+ * phase took on each of the last frames. Recording a sample does not allocate.
+ */
+public class RollingHistogram {
+	private long[] samples;
+	private long[] sorted;
+	private int next = 0;
+	private int count = 0;
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getCapacity() {
+		return samples.length;
+	}
+
+	/**
+	 * @return The latest sample recorded, or 0 if there are none.
+	 */
+	public long getLast() {
+		return count == 0 ? 0 : samples[(next + samples.length - 1) % samples.length];
+	}
+
+	public double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += samples[i];
+		}
+		return (double) sum / count;
+	}
+
+	public long getMax() {
+		long max = 0;
+		for (int i = 0; i < count; i++) {
+			max = Math.max(max, samples[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Get a percentile of the samples in the window.
+	 *
+	 * @param percentile The percentile to get, between 0 and 100.
+	 * @return The smallest sample that is greater or equal to the given
+	 *         percentage of samples, or 0 if there are none.
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		System.arraycopy(samples, 0, sorted, 0, count);
+		Arrays.sort(sorted, 0, count);
+		int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+		return sorted[Math.min(count - 1, Math.max(0, rank))];
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	public void record(long sample) {
+		samples[next] = sample;
+		next = (next + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+	}
+
+	public void clear() {
+		next = 0;
+		count = 0;
+	}
+
+	//////////////////
+	// Constructors //
+	//////////////////
+
+	/**
+	 * Constructor for a rolling histogram.
+	 *
+	 * @param capacity The number of latest samples kept.
+	 */
+	public RollingHistogram(int capacity) {
+		samples = new long[capacity];
+		sorted = new long[capacity];
+	}
+}
@@ -1,21 +1,35 @@
 package bischemes.engine;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.ArrayDeque;
 import java.util.HashSet;
+import java.util.List;
 import processing.core.PVector;
 
-import bischemes.engine.physics.GridSector;
+import bischemes.engine.physics.BodyStore;
+import bischemes.engine.physics.Broadphase;
+import bischemes.engine.physics.ContactSolver;
 import bischemes.engine.physics.RigidBody;
+import bischemes.engine.physics.ForceGenerators.ForceGenerator;
 
 public class SceneGridPair {
 	public GObject scene;
-	public GridSector grid;
+	public Broadphase grid;
 	public HashSet<RigidBody> bodies;
+	public BodyStore store = new BodyStore();
+	public ContactSolver solver = new ContactSolver();
+	// Forces applied to every body of the scene, kept when contents are swapped
+	private List<ForceGenerator> forceFields = new ArrayList<>();
+
+	// Render list of the runtime the scene is attached to, if any
+	RenderList renderList = null;
 
 	public void attachToGObject(GObject object, GObject child) {
 		object.children.add(child);
 		child.parent = object;
+		child.invalidateTransform();
+		child.setRenderList(object.renderList);
 
 		addRigidBodiesFromTree(child);
 	}
@@ -26,6 +40,7 @@ public class SceneGridPair {
 			GObject current = q.pollFirst();
 			if (current.getRigidBody() != null) {
 				bodies.add(current.getRigidBody());
+				store.add(current.getRigidBody());
 				grid.move(current.getRigidBody());
 			} else {
 				q.addAll(current.children);
@@ -34,30 +49,133 @@ public class SceneGridPair {
 	}
 
 	public void addRigidBody(RigidBody b) {
-		if (bodies.contains(b)) {
+		if (!bodies.contains(b)) {
 			bodies.add(b);
+			store.add(b);
 			grid.move(b);
+			wakeBodies();
 		}
 	}
 
 	public void removeRigidBody(RigidBody b) {
 		if (bodies.contains(b)) {
 			bodies.remove(b);
+			store.remove(b);
 			grid.remove(b);
+			wakeBodies();
+		}
+	}
+
+	/**
+	 * Apply a force to every body of the scene, e.g. its gravity, until the field
+	 * is removed. Fields stay with the scene when its contents are swapped.
+	 *
+	 * @param field The force to apply.
+	 */
+	public void addForceField(ForceGenerator field) {
+		if (!forceFields.contains(field)) {
+			forceFields.add(field);
+		}
+	}
+
+	public void removeForceField(ForceGenerator field) {
+		forceFields.remove(field);
+	}
+
+	/**
+	 * Apply the force fields of the scene to its bodies, in a pass per field.
+	 */
+	public void applyForceFields() {
+		for (int i = 0; i < forceFields.size(); i++) {
+			forceFields.get(i).updateForces(store);
+		}
+	}
+
+	/**
+	 * Wake every sleeping body of the scene, e.g. once a body they may rest on
+	 * was removed.
+	 */
+	public void wakeBodies() {
+		for (RigidBody b : bodies) {
+			b.wake();
 		}
 	}
 
-	public void resetScene(GridSector newGrid) {
+	public void resetScene(Broadphase newGrid) {
+		// Objects left in the old scene are no longer drawn
+		if (scene != null) {
+			scene.setRenderList(null);
+		}
 		scene = new GObject(null, new PVector(), 0);
+		scene.setRenderList(renderList);
 		bodies = new HashSet<>();
+		store = new BodyStore();
 		grid = newGrid;
+		solver.clear();
 	}
 
-	public SceneGridPair(GObject scene, GridSector grid) {
+	/**
+	 * Swap the contents of this scene, with the state of its bodies, the contact
+	 * solver warm starting them and the render list they are drawn through, with
+	 * those of another scene. An attached scene can so be replaced by one built
+	 * ahead of time in a single step, and its previous contents are kept in the
+	 * other scene to be swapped back in later.
+	 *
+	 * @param other The scene to swap with, which is not attached to a runtime.
+	 */
+	public void swap(SceneGridPair other) {
+		GObject otherScene = other.scene;
+		other.scene = scene;
+		scene = otherScene;
+		Broadphase otherGrid = other.grid;
+		other.grid = grid;
+		grid = otherGrid;
+		HashSet<RigidBody> otherBodies = other.bodies;
+		other.bodies = bodies;
+		bodies = otherBodies;
+		BodyStore otherStore = other.store;
+		other.store = store;
+		store = otherStore;
+		ContactSolver otherSolver = other.solver;
+		other.solver = solver;
+		solver = otherSolver;
+		RenderList otherList = other.renderList;
+		other.renderList = renderList;
+		renderList = otherList;
+	}
+
+	/**
+	 * @return The render list the scene is drawn through, or null.
+	 */
+	public RenderList getRenderList() {
+		return renderList;
+	}
+
+	/**
+	 * Draw the scene through the given render list, or stop drawing it.
+	 *
+	 * @param list The render list of the runtime, or null.
+	 */
+	void setRenderList(RenderList list) {
+		renderList = list;
+		scene.setRenderList(list);
+	}
+
+	public SceneGridPair(GObject scene, Broadphase grid) {
 		this.scene = scene;
 		this.grid = grid;
 
 		bodies = new HashSet<>();
 		addRigidBodiesFromTree(scene);
 	}
+
+	/**
+	 * Constructor for an empty scene drawn through a render list of its own, to
+	 * be built ahead of time and swapped into an attached scene with
+	 * {@link #swap(SceneGridPair)}.
+	 */
+	public SceneGridPair(Broadphase grid, RenderList renderList) {
+		this(new GObject(null, new PVector(), 0), grid);
+		setRenderList(renderList);
+	}
 }
@@ -0,0 +1,133 @@
+package bischemes.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import processing.core.PConstants;
+import processing.core.PImage;
+
+/**
+ * Packs several images into a single texture, so that attributes textured with
+ * any of them can be drawn one after the other without switching textures.
+ *
+ * Images are added by name, then packed on shelves sorted by height. Each image
+ * gets a border repeating its edge pixels, so that filtering never samples its
+ * neighbours.
+ */
+public class TextureAtlas {
+	private static final int PADDING = 1;
+
+	private Map<String, PImage> images = new LinkedHashMap<>();
+	private Map<String, TextureRegion> regions = new HashMap<>();
+	private PImage texture = null;
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	/**
+	 * @return The packed texture, packing the added images if not done yet.
+	 */
+	public PImage getTexture() {
+		if (texture == null) {
+			pack();
+		}
+		return texture;
+	}
+
+	/**
+	 * Get the region of the packed texture holding an image, packing the added
+	 * images if not done yet.
+	 *
+	 * @param name The name the image was added with.
+	 * @return The region of the image.
+	 */
+	public TextureRegion getRegion(String name) {
+		if (texture == null) {
+			pack();
+		}
+		TextureRegion region = regions.get(name);
+		if (region == null) {
+			throw new IllegalArgumentException("No image named \"" + name + "\" in the atlas");
+		}
+		return region;
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	public void add(String name, PImage image) {
+		if (texture != null) {
+			throw new IllegalStateException("Cannot add \"" + name + "\" to an atlas that is already packed");
+		}
+		images.put(name, image);
+	}
+
+	/**
+	 * Pack all the added images into the atlas texture. No image can be added
+	 * afterwards.
+	 */
+	public void pack() {
+		List<String> names = new ArrayList<>(images.keySet());
+		names.sort((a, b) -> Integer.compare(images.get(b).height, images.get(a).height));
+
+		// Square-ish texture of the total area, at least as wide as any image
+		long area = 0;
+		int width = 1;
+		for (PImage image : images.values()) {
+			area += (long) (image.width + 2 * PADDING) * (image.height + 2 * PADDING);
+			width = Math.max(width, image.width + 2 * PADDING);
+		}
+		width = Math.max(width, Integer.highestOneBit((int) Math.ceil(Math.sqrt(area)) - 1) << 1);
+
+		// Place images left to right on shelves as tall as their first image
+		int[] xs = new int[names.size()], ys = new int[names.size()];
+		int x = 0, y = 0, shelfHeight = 0;
+		for (int i = 0; i < names.size(); i++) {
+			PImage image = images.get(names.get(i));
+			if (x + image.width + 2 * PADDING > width) {
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			xs[i] = x;
+			ys[i] = y;
+			x += image.width + 2 * PADDING;
+			shelfHeight = Math.max(shelfHeight, image.height + 2 * PADDING);
+		}
+		int height = Math.max(1, y + shelfHeight);
+
+		texture = new PImage(width, height, PConstants.ARGB);
+		texture.loadPixels();
+		for (int i = 0; i < names.size(); i++) {
+			PImage image = images.get(names.get(i));
+			copy(image, texture, xs[i], ys[i]);
+			regions.put(names.get(i), new TextureRegion(texture, (float) (xs[i] + PADDING) / width,
+					(float) (ys[i] + PADDING) / height, (float) (xs[i] + PADDING + image.width) / width,
+					(float) (ys[i] + PADDING + image.height) / height));
+		}
+		texture.updatePixels();
+		images.clear();
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Copy an image and its extruded border into the atlas, at the given corner.
+	private static void copy(PImage image, PImage atlas, int x, int y) {
+		image.loadPixels();
+		int opaque = image.format == PConstants.RGB ? 0xff000000 : 0;
+		for (int j = 0; j < image.height + 2 * PADDING; j++) {
+			int sy = Math.min(image.height - 1, Math.max(0, j - PADDING));
+			for (int i = 0; i < image.width + 2 * PADDING; i++) {
+				int sx = Math.min(image.width - 1, Math.max(0, i - PADDING));
+				atlas.pixels[(y + j) * atlas.width + x + i] = image.pixels[sy * image.width + sx] | opaque;
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package bischemes.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import processing.core.PImage;
+import processing.core.PVector;
+
+/**
+ * Sub-rectangle of a texture, in normalised texture coordinates, such as a
+ * sprite packed in a {@link TextureAtlas}.
+ */
+public class TextureRegion {
+	private PImage texture;
+	private float u0, v0, u1, v1;
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	public PImage getTexture() {
+		return texture;
+	}
+
+	public float getU0() {
+		return u0;
+	}
+
+	public float getV0() {
+		return v0;
+	}
+
+	public float getU1() {
+		return u1;
+	}
+
+	public float getV1() {
+		return v1;
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Map texture coordinates of the region's own image onto the texture holding
+	 * the region.
+	 *
+	 * @param uvs Coordinates between 0 and 1 over the region.
+	 * @return The coordinates over the whole texture.
+	 */
+	public List<PVector> map(List<PVector> uvs) {
+		List<PVector> mapped = new ArrayList<>(uvs.size());
+		for (PVector uv : uvs) {
+			mapped.add(new PVector(u0 + uv.x * (u1 - u0), v0 + uv.y * (v1 - v0)));
+		}
+		return mapped;
+	}
+
+	//////////////////
+	// Constructors //
+	//////////////////
+
+	/**
+	 * Constructor for a region covering a whole texture.
+	 */
+	public TextureRegion(PImage texture) {
+		this(texture, 0, 0, 1, 1);
+	}
+
+	public TextureRegion(PImage texture, float u0, float v0, float u1, float v1) {
+		this.texture = texture;
+		this.u0 = u0;
+		this.v0 = v0;
+		this.u1 = u1;
+		this.v1 = v1;
+	}
+}
@@ -12,18 +12,26 @@ public class VisualAttribute {
 	private List<PVector> vertices;
 	private PVector offset = new PVector();
 	private PShape shape;
+	private int shapeKind = PConstants.POLYGON;
 	private VisualKind visualKind;
-	private GObject obj;
+	GObject obj;
 	private int color = 0xffffffff;
 	private PImage texture;
 	private PVector size;
 	private List<PVector> texCoords;
 	public boolean visibilityPriority = false;
+	boolean background = false;
 	public boolean mirrorX = false;
 	public boolean mirrorY = false;
 	public boolean visible = true;
 
 	private PVector scaling = new PVector(1, 1);
+	private float radius = -1;
+
+	// Culling bookkeeping of the render list - covered cells, and the last
+	// culling pass that found the attribute on screen
+	int[] cullCells = { 0, 0, -1, -1 };
+	int cullStamp = 0;
 
 	enum VisualKind {
 		TEXTURED, UNTEXTURED, TINTED_TEXTURED
@@ -39,6 +47,35 @@ public class VisualAttribute {
 
 	public void setOffset(PVector offset) {
 		this.offset = offset;
+		invalidateBounds();
+	}
+
+	public PVector getOffset() {
+		return offset;
+	}
+
+	public PVector getScaling() {
+		return scaling;
+	}
+
+	public int getColour() {
+		return color;
+	}
+
+	List<PVector> getVertices() {
+		return vertices;
+	}
+
+	/**
+	 * Set how the vertices are assembled into a shape, e.g.
+	 * {@link PConstants#TRIANGLES} for a list of separate triangles.
+	 *
+	 * @param kind The Processing shape kind, {@link PConstants#POLYGON} by
+	 *             default.
+	 */
+	public void setShapeKind(int kind) {
+		this.shapeKind = kind;
+		this.shape = null;
 	}
 
 	public void draw(PGraphics g) {
@@ -64,6 +101,20 @@ public class VisualAttribute {
 
 	public void setHighPriority(boolean priority) {
 		this.visibilityPriority = priority;
+		if (obj != null && obj.renderList != null) {
+			obj.renderList.invalidateOrder();
+		}
+	}
+
+	/**
+	 * Draw the attribute behind every other one, whatever its size, e.g. for the
+	 * background of a room.
+	 */
+	public void setBackground(boolean background) {
+		this.background = background;
+		if (obj != null && obj.renderList != null) {
+			obj.renderList.invalidateOrder();
+		}
 	}
 
 	public void setColour(int colour) {
@@ -88,6 +139,23 @@ public class VisualAttribute {
 		return size;
 	}
 
+	/**
+	 * Get the radius of a circle, centred on the attribute's origin, that
+	 * contains the attribute whatever its orientation.
+	 *
+	 * @return The bounding radius of the attribute, scaling included.
+	 */
+	public float getBoundingRadius() {
+		if (radius < 0) {
+			float r = 0;
+			for (PVector v : vertices) {
+				r = Math.max(r, v.mag());
+			}
+			radius = r;
+		}
+		return scaling == null ? radius : radius * Math.max(Math.abs(scaling.x), Math.abs(scaling.y));
+	}
+
 	public void mirrorVerticesV() {
 		for (PVector v : vertices)
 			if (v.x > 0)
@@ -102,6 +170,7 @@ public class VisualAttribute {
 
 	public void setScaling(PVector scaling) {
 		this.scaling = scaling;
+		invalidateBounds();
 	}
 
 	public void setScaling(float scaling) {
@@ -111,6 +180,7 @@ public class VisualAttribute {
 			this.scaling.x = scaling;
 			this.scaling.y = scaling;
 		}
+		invalidateBounds();
 	}
 
 	public void makeUntextured(int colour) {
@@ -152,10 +222,17 @@ public class VisualAttribute {
 	// Private Methods //
 	/////////////////////
 
+	// Have the render list find the attribute's new place on screen.
+	private void invalidateBounds() {
+		if (obj != null && obj.renderList != null) {
+			obj.renderList.markMoved(obj);
+		}
+	}
+
 	// Load a shape to cache if required.
 	private void loadShape() {
 		shape = EngineRuntime.applet.createShape();
-		shape.beginShape();
+		shape.beginShape(shapeKind);
 		shape.noStroke();
 
 		if (visualKind == VisualKind.UNTEXTURED) {
@@ -45,6 +45,30 @@ public final class VisualUtils {
 		return new VisualAttribute(vertices, uvMap, texture, colour);
 	}
 
+	/**
+	 * Make a visual polygon textured with a region of a texture atlas.
+	 */
+	public static VisualAttribute makeTexturedPolygon(PVector size, int sides, float baseAngle, PVector anchor,
+			TextureRegion region) {
+		List<PVector> vertices = new ArrayList<>();
+		List<PVector> uvMap = new ArrayList<>();
+
+		generateRegularPolygon(vertices, uvMap, sides, baseAngle, size, anchor);
+		return new VisualAttribute(vertices, region.map(uvMap), region.getTexture());
+	}
+
+	/**
+	 * Make a visual polygon textured with a region of a texture atlas.
+	 */
+	public static VisualAttribute makeTexturedPolygon(PVector size, int sides, float baseAngle, PVector anchor,
+			TextureRegion region, int colour) {
+		List<PVector> vertices = new ArrayList<>();
+		List<PVector> uvMap = new ArrayList<>();
+
+		generateRegularPolygon(vertices, uvMap, sides, baseAngle, size, anchor);
+		return new VisualAttribute(vertices, region.map(uvMap), region.getTexture(), colour);
+	}
+
 	public static VisualAttribute makeUntexturedPolygon(PVector size, int sides, float baseAngle, PVector anchor,
 			int color) {
 		List<PVector> vertices = new ArrayList<>();
@@ -65,7 +89,7 @@ public final class VisualUtils {
 			float angle = baseAngle + i * increment;
 			vertices.add(new PVector(anchor.x + (size.x / 2) * (float) Math.cos(angle),
 					anchor.y + (size.y / 2) * (float) Math.sin(angle)));
-			uvMap.add(new PVector(1 / 2 + 1 / 2 * (float) Math.cos(angle), 1 / 2 + 1 / 2 * (float) Math.sin(angle)));
+			uvMap.add(new PVector(0.5f + 0.5f * (float) Math.cos(angle), 0.5f + 0.5f * (float) Math.sin(angle)));
 		}
 	}
 
@@ -98,6 +122,22 @@ public final class VisualUtils {
 				Arrays.asList(new PVector(0, 0), new PVector(0, 1), new PVector(1, 1), new PVector(1, 0)), texture);
 	}
 
+	public static VisualAttribute makeRect(PVector size, int color, TextureRegion region) {
+		return new VisualAttribute(
+				Arrays.asList(new PVector(-size.x / 2, -size.y / 2), new PVector(-size.x / 2, size.y / 2),
+						new PVector(size.x / 2, size.y / 2), new PVector(size.x / 2, -size.y / 2)),
+				region.map(Arrays.asList(new PVector(0, 1), new PVector(0, 0), new PVector(1, 0), new PVector(1, 1))),
+				region.getTexture(), color);
+	}
+
+	public static VisualAttribute makeRect(PVector size, TextureRegion region) {
+		return new VisualAttribute(
+				Arrays.asList(new PVector(-size.x / 2, -size.y / 2), new PVector(-size.x / 2, size.y / 2),
+						new PVector(size.x / 2, size.y / 2), new PVector(size.x / 2, -size.y / 2)),
+				region.map(Arrays.asList(new PVector(0, 0), new PVector(0, 1), new PVector(1, 1), new PVector(1, 0))),
+				region.getTexture());
+	}
+
 	public static VisualAttribute makeTriangle(PVector vertex1, PVector vertex2, PVector vertex3, int colour) {
 		List<PVector> vertices = new ArrayList<>(3);
 		vertices.add(vertex1);
@@ -0,0 +1,212 @@
+package bischemes.engine.physics;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import bischemes.engine.Pair;
+
+/**
+ * Broadphase over two dynamic AABB trees, one for static primitives and one
+ * for primitives of movable or rotatable bodies.
+ *
+ * Static primitives are inserted once, with their exact AABB, and never
+ * refitted unless they are actually moved. Dynamic primitives are stored with
+ * a fattened AABB, so a body only gets reinserted and queried when it leaves
+ * its fat box. Only bodies with {@link RigidBody#hasMoved} set are moved by
+ * the engine, so the cost of a frame follows the number of moving bodies
+ * rather than the content of the room.
+ *
+ * Each primitive keeps the list of primitives it is paired with, so removing
+ * a primitive or dropping the separated pairs of the moved ones only visits
+ * their own pairs.
+ */
+public class AABBTreeBroadphase extends IndexedBroadphase {
+	private static final float FAT_MARGIN = 0.2f;
+	private static final int NONE = -1;
+
+	private DynamicAABBTree staticTree = new DynamicAABBTree();
+	private DynamicAABBTree dynamicTree = new DynamicAABBTree();
+
+	// Tree leaf of each primitive, and whether it lives in the dynamic tree
+	private int[] leaves = new int[INITIAL_STORE_CAPACITY];
+	private boolean[] isDynamic = new boolean[INITIAL_STORE_CAPACITY];
+
+	// Box stored in the tree for each primitive - minX, minY, maxX, maxY
+	private float[] boxes = new float[4 * INITIAL_STORE_CAPACITY];
+
+	// Primitives reinserted since the last collision query
+	private boolean[] isMoved = new boolean[INITIAL_STORE_CAPACITY];
+	private int[] moved = new int[INITIAL_STORE_CAPACITY];
+	private int movedCount = 0;
+
+	// Primitives each primitive is paired with
+	private int[][] partners = new int[INITIAL_STORE_CAPACITY][];
+	private int[] partnerCounts = new int[INITIAL_STORE_CAPACITY];
+
+	// Query state, kept in a field so queries do not allocate
+	private int queryIndex = NONE;
+	private final DynamicAABBTree.QueryCallback addPair = new DynamicAABBTree.QueryCallback() {
+		@Override
+		public void visit(int other) {
+			if (other != queryIndex && !isSameBody(other, queryIndex) && !pairs.contains(other, queryIndex)) {
+				pairs.increment(other, queryIndex);
+				addPartner(other, queryIndex);
+				addPartner(queryIndex, other);
+			}
+		}
+	};
+
+	///////////////
+	// Overrides //
+	///////////////
+
+	@Override
+	public HashMap<Pair<RigidBody>, Manifold> getCollisions() {
+		if (movedCount > 0) {
+			dropSeparatedPairs();
+		}
+		return super.getCollisions();
+	}
+
+	@Override
+	protected void insert(int index, float minX, float minY, float maxX, float maxY) {
+		isDynamic[index] = isDynamicBody(index);
+		leaves[index] = NONE;
+		reinsert(index, minX, minY, maxX, maxY);
+	}
+
+	@Override
+	protected void update(int index, float minX, float minY, float maxX, float maxY) {
+		int b = 4 * index;
+		boolean dynamic = isDynamicBody(index);
+		if (dynamic == isDynamic[index]) {
+			if (dynamic && boxes[b] <= minX && boxes[b + 1] <= minY && boxes[b + 2] >= maxX
+					&& boxes[b + 3] >= maxY) {
+				// Still within its fat box
+				return;
+			} else if (!dynamic && boxes[b] == minX && boxes[b + 1] == minY && boxes[b + 2] == maxX
+					&& boxes[b + 3] == maxY) {
+				return;
+			}
+		}
+
+		// Leave the old tree, possibly for the other one
+		treeOf(index).remove(leaves[index]);
+		isDynamic[index] = dynamic;
+		reinsert(index, minX, minY, maxX, maxY);
+	}
+
+	@Override
+	protected void erase(int index) {
+		treeOf(index).remove(leaves[index]);
+		leaves[index] = NONE;
+		for (int i = partnerCounts[index] - 1; i >= 0; i--) {
+			dropPair(index, partners[index][i]);
+		}
+
+		// The index may be reused before the next query
+		if (isMoved[index]) {
+			isMoved[index] = false;
+			for (int i = 0; i < movedCount; i++) {
+				if (moved[i] == index) {
+					moved[i] = moved[--movedCount];
+					break;
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		leaves = Arrays.copyOf(leaves, capacity);
+		isDynamic = Arrays.copyOf(isDynamic, capacity);
+		isMoved = Arrays.copyOf(isMoved, capacity);
+		moved = Arrays.copyOf(moved, capacity);
+		boxes = Arrays.copyOf(boxes, 4 * capacity);
+		partners = Arrays.copyOf(partners, capacity);
+		partnerCounts = Arrays.copyOf(partnerCounts, capacity);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private boolean isDynamicBody(int index) {
+		RigidBodyProperties properties = primitives[index].getParent().getProperties();
+		return properties.isMovable || properties.isRotatable;
+	}
+
+	private DynamicAABBTree treeOf(int index) {
+		return isDynamic[index] ? dynamicTree : staticTree;
+	}
+
+	// Insert a primitive in its tree and find the pairs its new box creates.
+	private void reinsert(int index, float minX, float minY, float maxX, float maxY) {
+		workCount++;
+		float margin = isDynamic[index] ? FAT_MARGIN : 0;
+		int b = 4 * index;
+		boxes[b] = minX - margin;
+		boxes[b + 1] = minY - margin;
+		boxes[b + 2] = maxX + margin;
+		boxes[b + 3] = maxY + margin;
+		leaves[index] = treeOf(index).insert(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], index);
+		if (!isMoved[index]) {
+			isMoved[index] = true;
+			moved[movedCount++] = index;
+		}
+
+		// Static primitives never pair with each other
+		queryIndex = index;
+		dynamicTree.query(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], addPair);
+		if (isDynamic[index]) {
+			staticTree.query(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3], addPair);
+		}
+		queryIndex = NONE;
+	}
+
+	// Remove pairs of moved primitives whose boxes no longer overlap.
+	private void dropSeparatedPairs() {
+		for (int i = 0; i < movedCount; i++) {
+			int a = moved[i];
+			for (int j = partnerCounts[a] - 1; j >= 0; j--) {
+				int b = partners[a][j];
+				if (!isOverlapping(a, b)) {
+					dropPair(a, b);
+				}
+			}
+			isMoved[a] = false;
+		}
+		movedCount = 0;
+	}
+
+	private void dropPair(int a, int b) {
+		pairs.decrement(a, b);
+		removePartner(a, b);
+		removePartner(b, a);
+	}
+
+	private void addPartner(int index, int partner) {
+		if (partners[index] == null) {
+			partners[index] = new int[4];
+		} else if (partnerCounts[index] == partners[index].length) {
+			partners[index] = Arrays.copyOf(partners[index], 2 * partnerCounts[index]);
+		}
+		partners[index][partnerCounts[index]++] = partner;
+	}
+
+	private void removePartner(int index, int partner) {
+		int[] list = partners[index];
+		for (int i = 0; i < partnerCounts[index]; i++) {
+			if (list[i] == partner) {
+				list[i] = list[--partnerCounts[index]];
+				return;
+			}
+		}
+	}
+
+	private boolean isOverlapping(int a, int b) {
+		int ba = 4 * a, bb = 4 * b;
+		return boxes[ba] <= boxes[bb + 2] && boxes[bb] <= boxes[ba + 2] && boxes[ba + 1] <= boxes[bb + 3]
+				&& boxes[bb + 1] <= boxes[ba + 3];
+	}
+}
@@ -0,0 +1,269 @@
+package bischemes.engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * Packed state of rigid bodies, one slot per body. Velocities, angular rates,
+ * masses and accumulated forces are kept in parallel arrays, so that
+ * integrating every body of a scene is a single sweep over contiguous memory.
+ * Transforms stay with the game objects, and are written back by the sweep.
+ *
+ * A RigidBody is a handle to its slot, and carries its state with it from
+ * store to store. A body in no store keeps its state in the handle.
+ */
+public class BodyStore {
+	private static final int INITIAL_CAPACITY = 16;
+	private static final float MOVE_THRESHOLD = 0.0001f;
+
+	// Slots, packed - the last body fills the slot of a removed one
+	private RigidBody[] bodies;
+	private int size = 0;
+
+	// Body state
+	float[] velocityX;
+	float[] velocityY;
+	double[] rotation;
+	float[] forceX;
+	float[] forceY;
+	double[] mass;
+	double[] inverseMass;
+	double[] inverseInertia;
+	boolean[] movable;
+	boolean[] sleeping;
+	boolean[] inFields;
+	boolean[] continuous;
+	// Displacement of every body over the last (sub)step, for continuous ones to
+	// be swept along
+	float[] motionX;
+	float[] motionY;
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index The slot of a body, under {@link #size()}.
+	 * @return The body in the slot.
+	 */
+	public RigidBody get(int index) {
+		return bodies[index];
+	}
+
+	/**
+	 * @param index The slot of a body.
+	 * @return The mass of the body.
+	 */
+	public double getMass(int index) {
+		return mass[index];
+	}
+
+	/**
+	 * @param index The slot of a body.
+	 * @return Whether the force fields of the scene apply to the body.
+	 */
+	public boolean isInFields(int index) {
+		return inFields[index];
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Move a body into the store, along with its state.
+	 *
+	 * @param b The body to add. Nothing is done if it is already stored here.
+	 */
+	public void add(RigidBody b) {
+		if (b.store == this) {
+			return;
+		}
+		if (size == bodies.length) {
+			grow(2 * size);
+		}
+		int slot = size++;
+		bodies[slot] = b;
+		if (b.store != null) {
+			copy(b.store, b.index, this, slot);
+			b.store.release(b.index);
+		} else {
+			velocityX[slot] = b.velocityX;
+			velocityY[slot] = b.velocityY;
+			rotation[slot] = b.rotation;
+			forceX[slot] = b.forceX;
+			forceY[slot] = b.forceY;
+			mass[slot] = b.properties.mass;
+			inverseMass[slot] = b.inverseMass();
+			inverseInertia[slot] = b.inverseInertia();
+			movable[slot] = b.properties.isMovable;
+			sleeping[slot] = b.sleeping;
+			inFields[slot] = b.inFields;
+			continuous[slot] = b.continuous;
+			motionX[slot] = 0;
+			motionY[slot] = 0;
+		}
+		b.store = this;
+		b.index = slot;
+	}
+
+	/**
+	 * Move a body out of the store, its state back into its handle.
+	 *
+	 * @param b The body to remove. Nothing is done if it is not stored here.
+	 */
+	public void remove(RigidBody b) {
+		if (b.store != this) {
+			return;
+		}
+		int slot = b.index;
+		b.velocityX = velocityX[slot];
+		b.velocityY = velocityY[slot];
+		b.rotation = rotation[slot];
+		b.forceX = forceX[slot];
+		b.forceY = forceY[slot];
+		b.sleeping = sleeping[slot];
+		b.inFields = inFields[slot];
+		b.continuous = continuous[slot];
+		release(slot);
+		b.store = null;
+		b.index = -1;
+	}
+
+	/**
+	 * Integrate the forces of every body into its velocity, and its velocity and
+	 * angular rate into its transform. Forces are kept, so that a step can be
+	 * integrated over several substeps. A sleeping body is skipped unless the
+	 * forces it rested under changed, which wakes it. The displacement of every
+	 * body is kept until the next integration.
+	 *
+	 * @param duration The duration of the (sub)step.
+	 */
+	public void integrate(double duration) {
+		float h = (float) duration;
+		for (int i = 0; i < size; i++) {
+			motionX[i] = 0;
+			motionY[i] = 0;
+			if (!movable[i]) {
+				continue;
+			}
+			if (sleeping[i]) {
+				if (bodies[i].isRestingForce(forceX[i], forceY[i])) {
+					continue;
+				}
+				bodies[i].wake();
+			}
+
+			float dt = (float) (duration * inverseMass[i]);
+			float vx = velocityX[i] + forceX[i] * dt, vy = velocityY[i] + forceY[i] * dt;
+			velocityX[i] = vx;
+			velocityY[i] = vy;
+			motionX[i] = vx * h;
+			motionY[i] = vy * h;
+			bodies[i].moveBy(motionX[i], motionY[i], rotation[i] * duration,
+					Math.abs(vx) > MOVE_THRESHOLD || Math.abs(vy) > MOVE_THRESHOLD || rotation[i] != 0);
+		}
+	}
+
+	/**
+	 * Add a force to a body, e.g. from a force field.
+	 *
+	 * @param index The slot of the body.
+	 */
+	public void addForce(int index, float forceX, float forceY) {
+		this.forceX[index] += forceX;
+		this.forceY[index] += forceY;
+	}
+
+	/**
+	 * Clear the forces added to every body for the current step.
+	 */
+	public void clearForces() {
+		Arrays.fill(forceX, 0, size, 0);
+		Arrays.fill(forceY, 0, size, 0);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Free a slot, moving the last body into it
+	private void release(int slot) {
+		int last = --size;
+		if (slot != last) {
+			copy(this, last, this, slot);
+			bodies[slot] = bodies[last];
+			bodies[slot].index = slot;
+		}
+		bodies[last] = null;
+	}
+
+	private void grow(int capacity) {
+		bodies = Arrays.copyOf(bodies, capacity);
+		velocityX = Arrays.copyOf(velocityX, capacity);
+		velocityY = Arrays.copyOf(velocityY, capacity);
+		rotation = Arrays.copyOf(rotation, capacity);
+		forceX = Arrays.copyOf(forceX, capacity);
+		forceY = Arrays.copyOf(forceY, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		inverseMass = Arrays.copyOf(inverseMass, capacity);
+		inverseInertia = Arrays.copyOf(inverseInertia, capacity);
+		movable = Arrays.copyOf(movable, capacity);
+		sleeping = Arrays.copyOf(sleeping, capacity);
+		inFields = Arrays.copyOf(inFields, capacity);
+		continuous = Arrays.copyOf(continuous, capacity);
+		motionX = Arrays.copyOf(motionX, capacity);
+		motionY = Arrays.copyOf(motionY, capacity);
+	}
+
+	private static void copy(BodyStore from, int i, BodyStore to, int j) {
+		to.velocityX[j] = from.velocityX[i];
+		to.velocityY[j] = from.velocityY[i];
+		to.rotation[j] = from.rotation[i];
+		to.forceX[j] = from.forceX[i];
+		to.forceY[j] = from.forceY[i];
+		to.mass[j] = from.mass[i];
+		to.inverseMass[j] = from.inverseMass[i];
+		to.inverseInertia[j] = from.inverseInertia[i];
+		to.movable[j] = from.movable[i];
+		to.sleeping[j] = from.sleeping[i];
+		to.inFields[j] = from.inFields[i];
+		to.continuous[j] = from.continuous[i];
+		to.motionX[j] = from.motionX[i];
+		to.motionY[j] = from.motionY[i];
+	}
+
+	//////////////////
+	// Constructors //
+	//////////////////
+
+	public BodyStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param capacity The number of bodies the store holds before growing, at
+	 *                 least 1.
+	 */
+	public BodyStore(int capacity) {
+		bodies = new RigidBody[0];
+		velocityX = new float[0];
+		velocityY = new float[0];
+		rotation = new double[0];
+		forceX = new float[0];
+		forceY = new float[0];
+		mass = new double[0];
+		inverseMass = new double[0];
+		inverseInertia = new double[0];
+		movable = new boolean[0];
+		sleeping = new boolean[0];
+		inFields = new boolean[0];
+		continuous = new boolean[0];
+		motionX = new float[0];
+		motionY = new float[0];
+		grow(Math.max(1, capacity));
+	}
+}
@@ -0,0 +1,76 @@
+package bischemes.engine.physics;
+
+import java.util.HashMap;
+
+import bischemes.engine.Pair;
+import processing.core.PVector;
+
+/**
+ * Coarse-grained collision detection for a scene: keeps track of which rigid
+ * bodies may be overlapping, and runs the narrowphase on those pairs only.
+ */
+public interface Broadphase {
+
+	/**
+	 * Kinds of broadphase available to a scene.
+	 */
+	public static enum Type {
+		GRID, SWEEP_AND_PRUNE, AABB_TREE
+	}
+
+	/**
+	 * Create a broadphase covering a rectangular area.
+	 *
+	 * @param type       The kind of broadphase to create.
+	 * @param dimensions The dimensions of the area (in metric units).
+	 * @param position   The bottom-left corner of the area.
+	 * @return The new broadphase.
+	 */
+	public static Broadphase create(Type type, PVector dimensions, PVector position) {
+		return switch (type) {
+			case GRID -> new GridSector(dimensions, position, (int) dimensions.x, (int) dimensions.y);
+			case SWEEP_AND_PRUNE -> new SweepAndPrune();
+			case AABB_TREE -> new AABBTreeBroadphase();
+		};
+	}
+
+	/**
+	 * Insert a rigid body, or update it if it has moved since its last call.
+	 *
+	 * @param b The rigid body to move.
+	 */
+	public void move(RigidBody b);
+
+	/**
+	 * Remove a rigid body from the broadphase.
+	 *
+	 * @param b The rigid body to remove.
+	 */
+	public void remove(RigidBody b);
+
+	/**
+	 * Move each continuous body that went through another body along its last
+	 * move back to where it first hit it. Called after the bodies have moved, and
+	 * before the collisions are queried.
+	 */
+	public void resolveImpacts();
+
+	/**
+	 * Get all actual collisions happening in the broadphase. Bodies are not moved.
+	 *
+	 * @return A map of rigid body pairs to their corresponding manifolds.
+	 */
+	public HashMap<Pair<RigidBody>, Manifold> getCollisions();
+
+	/**
+	 * @return The number of primitive pairs that may be overlapping.
+	 */
+	public int getPairCount();
+
+	/**
+	 * @return The number of updates made to the broadphase's structure since it
+	 *         was created - cells entered or left, endpoints swapped or tree
+	 *         leaves reinserted - a measure of the work moving bodies costs.
+	 */
+	public long getWorkCount();
+}
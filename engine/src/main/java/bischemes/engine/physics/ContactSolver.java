@@ -0,0 +1,72 @@
+package bischemes.engine.physics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import bischemes.engine.Pair;
+
+/**
+ * Sequential impulse solver for the contacts of a scene.
+ *
+ * All manifolds of a (sub)step are resolved together over several iterations,
+ * so that impulses spread through stacks of bodies rather than depending on the
+ * order manifolds are met in. The impulses accumulated on every contact are kept
+ * and applied again first thing next step (warm starting): resting contacts so
+ * start from the impulse that held them up, and stay still after a few
+ * iterations.
+ */
+public class ContactSolver {
+	public static final int DEFAULT_ITERATIONS = 8;
+
+	// Manifolds of the last solve, to warm start from
+	private HashMap<Pair<RigidBody>, Manifold> previous = new HashMap<>();
+	private List<Manifold> active = new ArrayList<>();
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Resolve the manifolds of a (sub)step: warm start, solve velocities, then
+	 * correct positions.
+	 *
+	 * @param manifolds  The manifolds of the step, keyed by body pair.
+	 * @param iterations The number of velocity iterations, at least 1.
+	 */
+	public void solve(Map<Pair<RigidBody>, Manifold> manifolds, int iterations) {
+		// Restitution is measured on the velocities before any impulse
+		active.clear();
+		for (Manifold m : manifolds.values()) {
+			m.prepare();
+			active.add(m);
+		}
+		for (var entry : manifolds.entrySet()) {
+			Manifold last = previous.get(entry.getKey());
+			if (last != null) {
+				entry.getValue().warmStart(last);
+			}
+		}
+
+		for (int i = 0; i < iterations; i++) {
+			for (int j = 0; j < active.size(); j++) {
+				active.get(j).solveVelocities();
+			}
+		}
+		for (int j = 0; j < active.size(); j++) {
+			active.get(j).correctPositions();
+		}
+
+		// Contacts that were not met this step are forgotten
+		previous.clear();
+		previous.putAll(manifolds);
+	}
+
+	/**
+	 * Forget the impulses kept for warm starting.
+	 */
+	public void clear() {
+		previous.clear();
+	}
+}
@@ -0,0 +1,283 @@
+package bischemes.engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * Balanced bounding volume hierarchy over axis-aligned boxes.
+ *
+ * Leaves hold a box and an integer payload. Leaves are inserted next to the
+ * sibling that grows the tree's total perimeter the least, and the tree is
+ * rebalanced with rotations on the way back up, as in Box2D. Nodes live in flat
+ * arrays and freed nodes are reused, so insertions, removals and queries do
+ * not allocate once the tree has reached its working size.
+ */
+class DynamicAABBTree {
+	private static final int NULL = -1;
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Visitor for leaves overlapping a query box.
+	 */
+	static interface QueryCallback {
+		public void visit(int data);
+	}
+
+	// Nodes - boxes are minX, minY, maxX, maxY
+	private float[] boxes = new float[4 * INITIAL_CAPACITY];
+	private int[] parents = new int[INITIAL_CAPACITY];
+	private int[] children1 = new int[INITIAL_CAPACITY];
+	private int[] children2 = new int[INITIAL_CAPACITY];
+	private int[] heights = new int[INITIAL_CAPACITY];
+	private int[] data = new int[INITIAL_CAPACITY];
+	private int nodeCount = 0;
+	private int freeList = NULL;
+	private int root = NULL;
+
+	// Traversal stack reused between queries
+	private int[] stack = new int[64];
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Insert a leaf.
+	 *
+	 * @return The id of the new leaf node.
+	 */
+	public int insert(float minX, float minY, float maxX, float maxY, int payload) {
+		int leaf = allocateNode();
+		setBox(leaf, minX, minY, maxX, maxY);
+		data[leaf] = payload;
+		heights[leaf] = 0;
+		insertLeaf(leaf);
+		return leaf;
+	}
+
+	public void remove(int leaf) {
+		removeLeaf(leaf);
+		freeNode(leaf);
+	}
+
+	/**
+	 * Visit the payload of every leaf whose box overlaps the given box.
+	 */
+	public void query(float minX, float minY, float maxX, float maxY, QueryCallback callback) {
+		if (root == NULL) {
+			return;
+		}
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			int b = 4 * node;
+			if (boxes[b] > maxX || boxes[b + 2] < minX || boxes[b + 1] > maxY || boxes[b + 3] < minY) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				callback.visit(data[node]);
+			} else {
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				}
+				stack[top++] = children1[node];
+				stack[top++] = children2[node];
+			}
+		}
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private boolean isLeaf(int node) {
+		return children1[node] == NULL;
+	}
+
+	private void setBox(int node, float minX, float minY, float maxX, float maxY) {
+		int b = 4 * node;
+		boxes[b] = minX;
+		boxes[b + 1] = minY;
+		boxes[b + 2] = maxX;
+		boxes[b + 3] = maxY;
+	}
+
+	// Fit a node's box around both of its children.
+	private void fitChildren(int node) {
+		int b = 4 * node, b1 = 4 * children1[node], b2 = 4 * children2[node];
+		boxes[b] = Math.min(boxes[b1], boxes[b2]);
+		boxes[b + 1] = Math.min(boxes[b1 + 1], boxes[b2 + 1]);
+		boxes[b + 2] = Math.max(boxes[b1 + 2], boxes[b2 + 2]);
+		boxes[b + 3] = Math.max(boxes[b1 + 3], boxes[b2 + 3]);
+		heights[node] = 1 + Math.max(heights[children1[node]], heights[children2[node]]);
+	}
+
+	private float perimeter(int node) {
+		int b = 4 * node;
+		return 2 * (boxes[b + 2] - boxes[b] + boxes[b + 3] - boxes[b + 1]);
+	}
+
+	private float unionPerimeter(int n1, int n2) {
+		int b1 = 4 * n1, b2 = 4 * n2;
+		float w = Math.max(boxes[b1 + 2], boxes[b2 + 2]) - Math.min(boxes[b1], boxes[b2]);
+		float h = Math.max(boxes[b1 + 3], boxes[b2 + 3]) - Math.min(boxes[b1 + 1], boxes[b2 + 1]);
+		return 2 * (w + h);
+	}
+
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parents[leaf] = NULL;
+			return;
+		}
+
+		// Find the sibling leading to the smallest perimeter increase
+		int index = root;
+		while (!isLeaf(index)) {
+			int c1 = children1[index], c2 = children2[index];
+			float area = perimeter(index);
+			float combined = unionPerimeter(index, leaf);
+
+			// Cost of pairing with this node, and of pushing the leaf further down
+			float cost = 2 * combined;
+			float inheritance = 2 * (combined - area);
+			float cost1 = unionPerimeter(leaf, c1) - (isLeaf(c1) ? 0 : perimeter(c1)) + inheritance;
+			float cost2 = unionPerimeter(leaf, c2) - (isLeaf(c2) ? 0 : perimeter(c2)) + inheritance;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? c1 : c2;
+		}
+		int sibling = index;
+
+		// Create a parent for the sibling and the leaf
+		int oldParent = parents[sibling];
+		int newParent = allocateNode();
+		parents[newParent] = oldParent;
+		data[newParent] = NULL;
+		children1[newParent] = sibling;
+		children2[newParent] = leaf;
+		parents[sibling] = newParent;
+		parents[leaf] = newParent;
+		fitChildren(newParent);
+		if (oldParent == NULL) {
+			root = newParent;
+		} else if (children1[oldParent] == sibling) {
+			children1[oldParent] = newParent;
+		} else {
+			children2[oldParent] = newParent;
+		}
+
+		refit(parents[leaf]);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+		int parent = parents[leaf];
+		int grandParent = parents[parent];
+		int sibling = children1[parent] == leaf ? children2[parent] : children1[parent];
+
+		if (grandParent == NULL) {
+			root = sibling;
+			parents[sibling] = NULL;
+			freeNode(parent);
+			return;
+		}
+		if (children1[grandParent] == parent) {
+			children1[grandParent] = sibling;
+		} else {
+			children2[grandParent] = sibling;
+		}
+		parents[sibling] = grandParent;
+		freeNode(parent);
+		refit(grandParent);
+	}
+
+	// Rebalance and refit every ancestor from a node up to the root.
+	private void refit(int index) {
+		while (index != NULL) {
+			index = balance(index);
+			fitChildren(index);
+			index = parents[index];
+		}
+	}
+
+	// Rotate a node's taller grandchild up if its children are unbalanced.
+	// Returns the node now at the top of the rotated subtree.
+	private int balance(int a) {
+		if (isLeaf(a) || heights[a] < 2) {
+			return a;
+		}
+		int b = children1[a], c = children2[a];
+		int difference = heights[c] - heights[b];
+		if (difference > 1) {
+			return rotate(a, c, true);
+		} else if (difference < -1) {
+			return rotate(a, b, false);
+		}
+		return a;
+	}
+
+	// Swap node a with its taller child 'up', which keeps its taller child and
+	// hands the other one to a.
+	private int rotate(int a, int up, boolean upIsSecond) {
+		int f = children1[up], g = children2[up];
+
+		// 'up' takes the place of a
+		children1[up] = a;
+		parents[up] = parents[a];
+		parents[a] = up;
+		if (parents[up] == NULL) {
+			root = up;
+		} else if (children1[parents[up]] == a) {
+			children1[parents[up]] = up;
+		} else {
+			children2[parents[up]] = up;
+		}
+
+		// The taller grandchild stays under 'up', the other one moves under a
+		int keep = heights[f] > heights[g] ? f : g;
+		int move = keep == f ? g : f;
+		children2[up] = keep;
+		if (upIsSecond) {
+			children2[a] = move;
+		} else {
+			children1[a] = move;
+		}
+		parents[move] = a;
+		fitChildren(a);
+		fitChildren(up);
+		return up;
+	}
+
+	private int allocateNode() {
+		if (freeList == NULL) {
+			if (nodeCount == parents.length) {
+				int capacity = 2 * nodeCount;
+				boxes = Arrays.copyOf(boxes, 4 * capacity);
+				parents = Arrays.copyOf(parents, capacity);
+				children1 = Arrays.copyOf(children1, capacity);
+				children2 = Arrays.copyOf(children2, capacity);
+				heights = Arrays.copyOf(heights, capacity);
+				data = Arrays.copyOf(data, capacity);
+			}
+			int node = nodeCount++;
+			children1[node] = children2[node] = NULL;
+			return node;
+		}
+		int node = freeList;
+		freeList = parents[node];
+		children1[node] = children2[node] = NULL;
+		return node;
+	}
+
+	// Freed nodes are chained through their parent link.
+	private void freeNode(int node) {
+		parents[node] = freeList;
+		heights[node] = -1;
+		freeList = node;
+	}
+}
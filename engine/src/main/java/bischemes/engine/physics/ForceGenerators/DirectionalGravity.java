@@ -1,5 +1,6 @@
 package bischemes.engine.physics.ForceGenerators;
 
+import bischemes.engine.physics.BodyStore;
 import bischemes.engine.physics.RigidBody;
 import processing.core.PVector;
 
@@ -14,7 +15,19 @@ public class DirectionalGravity implements ForceGenerator {
 	PVector direction;
 
 	public void updateForce(RigidBody b) {
-		b.addForce(PVector.mult(direction, (float) (b.getMass() * coeff)));
+		float k = (float) (b.getMass() * coeff);
+		b.addForce(direction.x * k, direction.y * k);
+	}
+
+	@Override
+	public void updateForces(BodyStore store) {
+		float gx = (float) (direction.x * coeff), gy = (float) (direction.y * coeff);
+		for (int i = 0; i < store.size(); i++) {
+			if (store.isInFields(i)) {
+				float mass = (float) store.getMass(i);
+				store.addForce(i, gx * mass, gy * mass);
+			}
+		}
 	}
 
 	public PVector getDirection() {
@@ -1,7 +1,26 @@
 package bischemes.engine.physics.ForceGenerators;
 
+import bischemes.engine.physics.BodyStore;
 import bischemes.engine.physics.RigidBody;
 
+/**
+ * A force applied to rigid bodies, either to a single body or as a field over
+ * all bodies of a scene.
+ */
 public interface ForceGenerator {
 	public void updateForce(RigidBody b);
+
+	/**
+	 * Apply the force to every body of a store the scene's force fields apply to,
+	 * once per step.
+	 *
+	 * @param store The bodies of the scene.
+	 */
+	public default void updateForces(BodyStore store) {
+		for (int i = 0; i < store.size(); i++) {
+			if (store.isInFields(i)) {
+				updateForce(store.get(i));
+			}
+		}
+	}
 }
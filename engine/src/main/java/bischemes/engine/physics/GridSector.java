@@ -1,18 +1,24 @@
 package bischemes.engine.physics;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 
-import bischemes.engine.Pair;
-import bischemes.engine.physics.PrimitiveAssembly.PrimitiveInSet;
 import processing.core.PVector;
 
 /**
- * Uniform grid for coarse-grained collision detection
+ * Uniform grid for coarse-grained collision detection.
+ *
+ * Every indexed primitive keeps the range of cells it covers in a flat array,
+ * and cells only hold primitive indices, so moving a primitive does not
+ * allocate, and a move that keeps a primitive within the same cells does not
+ * write anything at all.
+ *
+ * Overlapping pairs are tracked incrementally: a pair is added when two
+ * primitives start sharing a cell and dropped when they share none, so the
+ * narrowphase only walks a stable, deduplicated pair list.
  */
-public class GridSector {
+public class GridSector extends IndexedBroadphase {
 	private static double NEXT_CELL_THRESHOLD = 0.0001;
+	private static final int INITIAL_CELL_CAPACITY = 4;
 
 	private PVector dimensions;
 	private PVector sizePerCell;
@@ -21,64 +27,12 @@ public class GridSector {
 	private int nrows;
 	private int ncols;
 
-	/**
-	 * Primitive as stored in the grid.
-	 */
-	class PrimitiveStore {
-		Primitive p;
-		PVector position;
-		PVector offset;
-		PVector AABBbounds;
-
-		@Override
-		public int hashCode() {
-			return p.hashCode();
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (!(o instanceof PrimitiveStore)) {
-				return false;
-			}
-			PrimitiveStore p = (PrimitiveStore) o;
-			return p.p == this.p;
-		}
-
-		public PrimitiveStore(Primitive p) {
-			this.p = p;
-			this.position = p.getParent().getPosition();
-			this.offset = new PVector();
-			this.AABBbounds = p.getAABBBounds();
-		}
-
-		public PrimitiveStore(PrimitiveInSet p) {
-			this.p = p.primitive;
-			this.position = PVector.add(p.primitive.getParent().getPosition(), p.offset);
-			this.offset = p.offset;
-			this.AABBbounds = p.primitive.getAABBBounds();
-		}
-	}
+	// Covered cell range of each primitive - minCol, minRow, maxCol, maxRow
+	private int[] ranges = new int[4 * INITIAL_STORE_CAPACITY];
 
-	/**
-	 * Contents of a grid cell.
-	 */
-	class GridCell {
-		HashSet<PrimitiveStore> list = new HashSet<>();
-
-		@Override
-		public String toString() {
-			return "[" + list.size() + "]";
-		}
-
-		public boolean hasOverlap() {
-			return list.size() > 1;
-		}
-	}
-
-	// Lists making up grid storage
-	private ArrayList<GridCell> sector;
-	private HashSet<GridCell> overlaps = new HashSet<>();
-	private HashMap<PrimitiveStore, ArrayList<GridCell>> primitives = new HashMap<>();
+	// Cell occupancy - one array of primitive indices per cell
+	private int[][] cells;
+	private int[] cellCounts;
 
 	///////////////
 	// Overrides //
@@ -89,154 +43,117 @@ public class GridSector {
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < nrows; i++) {
 			for (int j = 0; j < ncols; j++) {
-				sb.append(sector.get(i * ncols + j));
+				sb.append("[").append(cellCounts[i * ncols + j]).append("]");
 			}
 			sb.append("\n");
 		}
 		return sb.toString();
 	}
 
-	////////////////////
-	// Public Methods //
-	////////////////////
-
-	// Add //
-
-	public void add(Primitive p) {
-		add(new PrimitiveStore(p));
-	}
-
-	public void add(PrimitiveInSet p) {
-		add(new PrimitiveStore(p));
-	}
-
-	// Move //
-
-	public void move(Primitive p) {
-		remove(p);
-		add(p);
-	}
-
-	public void move(PrimitiveInSet p) {
-		remove(p);
-		add(p);
+	@Override
+	protected void insert(int index, float minX, float minY, float maxX, float maxY) {
+		// Start with an empty range
+		ranges[4 * index] = ranges[4 * index + 1] = 0;
+		ranges[4 * index + 2] = ranges[4 * index + 3] = -1;
+		update(index, minX, minY, maxX, maxY);
 	}
 
-	public void move(RigidBody p) {
-		if (p.properties.mesh == null) {
+	// Only touch the cells the range gained or lost.
+	@Override
+	protected void update(int index, float minX, float minY, float maxX, float maxY) {
+		int minCol = Math.max(0, cellOf(minX - position.x, sizePerCell.x));
+		int maxCol = Math.min(ncols - 1, cellOf(maxX - position.x - NEXT_CELL_THRESHOLD, sizePerCell.x));
+		int minRow = Math.max(0, cellOf(minY - position.y, sizePerCell.y));
+		int maxRow = Math.min(nrows - 1, cellOf(maxY - position.y - NEXT_CELL_THRESHOLD, sizePerCell.y));
+		if (minCol > maxCol || minRow > maxRow) {
+			minCol = minRow = 0;
+			maxCol = maxRow = -1;
+		}
+
+		int r = 4 * index;
+		int oldMinCol = ranges[r], oldMinRow = ranges[r + 1], oldMaxCol = ranges[r + 2], oldMaxRow = ranges[r + 3];
+		if (oldMinCol == minCol && oldMinRow == minRow && oldMaxCol == maxCol && oldMaxRow == maxRow) {
 			return;
 		}
-		if (p.properties.mesh instanceof Primitive) {
-			move((Primitive) p.properties.mesh);
-		} else {
-			for (PrimitiveInSet ps : ((PrimitiveAssembly) p.properties.mesh).getAssembly()) {
-				move(ps);
+
+		// Enter the new cells before leaving the old ones
+		for (int j = minRow; j <= maxRow; j++) {
+			for (int i = minCol; i <= maxCol; i++) {
+				if (!(i >= oldMinCol && i <= oldMaxCol && j >= oldMinRow && j <= oldMaxRow)) {
+					addToCell(j * ncols + i, index);
+				}
 			}
 		}
-	}
-
-	// Remove //
-
-	public void remove(Primitive p) {
-		remove(new PrimitiveStore(p));
-	}
-
-	public void remove(PrimitiveInSet p) {
-		remove(new PrimitiveStore(p));
-
-	}
-
-	public void remove(RigidBody b) {
-		if (b.properties.mesh instanceof Primitive p) {
-			remove(p);
-		} else {
-			for (PrimitiveInSet ps : ((PrimitiveAssembly) b.properties.mesh).getAssembly()) {
-				remove(ps);
+		for (int j = oldMinRow; j <= oldMaxRow; j++) {
+			for (int i = oldMinCol; i <= oldMaxCol; i++) {
+				if (!(i >= minCol && i <= maxCol && j >= minRow && j <= maxRow)) {
+					removeFromCell(j * ncols + i, index);
+				}
 			}
 		}
+		ranges[r] = minCol;
+		ranges[r + 1] = minRow;
+		ranges[r + 2] = maxCol;
+		ranges[r + 3] = maxRow;
 	}
 
-	// Collisions //
-
-	/**
-	 * Get all actual collisions happening in the grid sector.
-	 *
-	 * @return A map of rigid body pairs to their corresponding manifolds.
-	 */
-	public HashMap<Pair<RigidBody>, Manifold> getCollisions() {
-		HashMap<Pair<RigidBody>, Manifold> pairs = new HashMap<>();
-		HashSet<Pair<PrimitiveStore>> donePrimitives = new HashSet<>();
-		for (GridCell c : overlaps) {
-			ArrayList<PrimitiveStore> clist = new ArrayList<>(c.list);
-			for (int i = 0; i < clist.size() - 1; i++) {
-				PrimitiveStore a = clist.get(i);
-				for (int j = i + 1; j < clist.size(); j++) {
-					PrimitiveStore b = clist.get(j);
-					Pair<RigidBody> p = new Pair<>(a.p.getParent(), b.p.getParent());
-					if (p.a == p.b || (!p.a.getProperties().isMovable && !p.a.getProperties().isRotatable
-							&& !p.b.getProperties().isMovable && !p.b.getProperties().isRotatable)) {
-						continue;
-					}
-					Pair<PrimitiveStore> donePair = new Pair<>(a, b);
-
-					if (!donePrimitives.contains(donePair)) {
-						donePrimitives.add(donePair);
-						Manifold m = a.p.getCollision(b.p, PVector.sub(b.offset, a.offset));
-
-						if (m.isCollision()) {
-							if (pairs.containsKey(p)) {
-								pairs.get(p).combine(m);
-							} else {
-								pairs.put(p, m);
-							}
-						}
-					}
-				}
+	@Override
+	protected void erase(int index) {
+		int r = 4 * index;
+		for (int j = ranges[r + 1]; j <= ranges[r + 3]; j++) {
+			for (int i = ranges[r]; i <= ranges[r + 2]; i++) {
+				removeFromCell(j * ncols + i, index);
 			}
 		}
-		return pairs;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		ranges = Arrays.copyOf(ranges, 4 * capacity);
 	}
 
 	/////////////////////
 	// Private Methods //
 	/////////////////////
 
-	private void remove(PrimitiveStore p) {
-		if (!primitives.containsKey(p)) {
-			return;
-		}
-		for (GridCell c : primitives.get(p)) {
-			c.list.remove(p);
-			if (overlaps.contains(c) && !c.hasOverlap()) {
-				overlaps.remove(c);
+	private void addToCell(int c, int index) {
+		if (cells[c] == null) {
+			cells[c] = new int[INITIAL_CELL_CAPACITY];
+		} else if (cellCounts[c] == cells[c].length) {
+			cells[c] = Arrays.copyOf(cells[c], 2 * cellCounts[c]);
+		}
+		// A primitive entering a cell is a unit of work, as is one leaving it
+		workCount++;
+		int[] cell = cells[c];
+		for (int i = 0; i < cellCounts[c]; i++) {
+			// Primitives of the same body never collide with each other
+			if (!isSameBody(cell[i], index)) {
+				pairs.increment(cell[i], index);
 			}
 		}
-		primitives.remove(p);
+		cell[cellCounts[c]++] = index;
 	}
 
-	private void add(PrimitiveStore p) {
-		if (primitives.containsKey(p)) {
-			return;
+	private void removeFromCell(int c, int index) {
+		workCount++;
+		int[] cell = cells[c];
+		for (int i = 0; i < cellCounts[c]; i++) {
+			if (cell[i] == index) {
+				cell[i] = cell[--cellCounts[c]];
+				break;
+			}
 		}
-		primitives.put(p, new ArrayList<>());
-		for (int i = (int) (p.position.x - position.x - p.AABBbounds.x / 2); i <= (int) (p.position.x - position.x
-				+ p.AABBbounds.x / 2 - NEXT_CELL_THRESHOLD); i++) {
-			for (int j = (int) (p.position.y - position.y - p.AABBbounds.y / 2); j <= (int) (p.position.y - position.y
-					+ p.AABBbounds.y / 2 - NEXT_CELL_THRESHOLD); j++) {
-				if (i >= 0 && i < ncols && j >= 0 && j < nrows) {
-					int index = j * ncols + i;
-					GridCell c = sector.get(index);
-					c.list.add(p);
-					primitives.get(p).add(c);
-					if (c.hasOverlap() && !overlaps.contains(c)) {
-						overlaps.add(c);
-					}
-				}
+		for (int i = 0; i < cellCounts[c]; i++) {
+			if (!isSameBody(cell[i], index)) {
+				pairs.decrement(cell[i], index);
 			}
-
 		}
 	}
 
+	private static int cellOf(double coordinate, float cellSize) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
 	/**
 	 * Constructor for a grid sector.
 	 *
@@ -249,10 +166,8 @@ public class GridSector {
 		this.nrows = nrows;
 		this.ncols = ncols;
 		this.position = position;
-		sector = new ArrayList<>(nrows * ncols);
-		for (int i = 0; i < nrows * ncols; i++) {
-			sector.add(new GridCell());
-		}
+		cells = new int[nrows * ncols][];
+		cellCounts = new int[nrows * ncols];
 		sizePerCell = new PVector(dimensions.x / (float) ncols, dimensions.y / (float) nrows);
 	}
 }
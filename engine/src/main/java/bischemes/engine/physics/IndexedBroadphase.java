@@ -0,0 +1,324 @@
+package bischemes.engine.physics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import bischemes.engine.Pair;
+import bischemes.engine.physics.PrimitiveAssembly.PrimitiveInSet;
+import processing.core.PVector;
+
+/**
+ * Base for broadphases working on primitives rather than rigid bodies.
+ *
+ * Primitives are given a dense index when first added, and their offset in
+ * their assembly lives in a flat array under that index. Implementations keep
+ * their own per-index data, and report overlapping index pairs to the shared
+ * pair cache, which the narrowphase walks in {@link #getCollisions()}.
+ *
+ * Primitives of continuous bodies are indexed with the AABB swept by their last
+ * move. In {@link #resolveImpacts()}, pairs they are part of that do not
+ * collide where the move ends are tested along the move, and each continuous
+ * body that hit something is rewound once, to its earliest impact.
+ */
+public abstract class IndexedBroadphase implements Broadphase {
+	protected static final int INITIAL_STORE_CAPACITY = 32;
+	// How far continuous bodies go into what they hit, so that the contact is
+	// found, yet shallow enough not to be corrected
+	private static final float TIME_OF_IMPACT_SLOP = 0.005f;
+
+	// Dense primitive store - each stored primitive owns one index
+	private HashMap<Primitive, Integer> indices = new HashMap<>();
+	protected Primitive[] primitives = new Primitive[INITIAL_STORE_CAPACITY];
+	private float[] offsets = new float[2 * INITIAL_STORE_CAPACITY];
+	private int[] freeIndices = new int[INITIAL_STORE_CAPACITY];
+	private int freeCount = 0;
+	private int storeSize = 0;
+
+	// Primitive pairs that may be overlapping
+	protected OverlapPairs pairs = new OverlapPairs();
+	// Updates made to the structure of the subclass, see getWorkCount
+	protected long workCount = 0;
+	// Manifold the narrowphase writes into, until a pair collides
+	private Manifold scratch = new Manifold(null, null);
+	// Continuous bodies to rewind to their earliest time of impact
+	private ArrayList<RigidBody> impacted = new ArrayList<>();
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	// Add //
+
+	public void add(Primitive p) {
+		if (!indices.containsKey(p)) {
+			track(p, 0, 0);
+		}
+	}
+
+	public void add(PrimitiveInSet p) {
+		if (!indices.containsKey(p.primitive)) {
+			track(p.primitive, p.offset.x, p.offset.y);
+		}
+	}
+
+	// Move //
+
+	public void move(Primitive p) {
+		track(p, 0, 0);
+	}
+
+	public void move(PrimitiveInSet p) {
+		track(p.primitive, p.offset.x, p.offset.y);
+	}
+
+	@Override
+	public void move(RigidBody p) {
+		if (p.properties.mesh == null) {
+			return;
+		}
+		if (p.properties.mesh instanceof Primitive) {
+			move((Primitive) p.properties.mesh);
+		} else {
+			for (PrimitiveInSet ps : ((PrimitiveAssembly) p.properties.mesh).getAssembly()) {
+				move(ps);
+			}
+		}
+	}
+
+	// Remove //
+
+	public void remove(Primitive p) {
+		Integer index = indices.remove(p);
+		if (index == null) {
+			return;
+		}
+		erase(index);
+		primitives[index] = null;
+		if (freeCount == freeIndices.length) {
+			freeIndices = Arrays.copyOf(freeIndices, 2 * freeCount);
+		}
+		freeIndices[freeCount++] = index;
+	}
+
+	public void remove(PrimitiveInSet p) {
+		remove(p.primitive);
+	}
+
+	@Override
+	public void remove(RigidBody b) {
+		if (b.properties.mesh == null) {
+			return;
+		}
+		if (b.properties.mesh instanceof Primitive p) {
+			remove(p);
+		} else {
+			for (PrimitiveInSet ps : ((PrimitiveAssembly) b.properties.mesh).getAssembly()) {
+				remove(ps);
+			}
+		}
+	}
+
+	// Collisions //
+
+	@Override
+	public void resolveImpacts() {
+		for (int i = 0; i < pairs.size(); i++) {
+			int a = pairs.getFirst(i), b = pairs.getSecond(i);
+			RigidBody ra = primitives[a].getParent(), rb = primitives[b].getParent();
+			if ((ra.isContinuous() && ra.isAwake()) || (rb.isContinuous() && rb.isAwake())) {
+				float offsetX = offsets[2 * b] - offsets[2 * a], offsetY = offsets[2 * b + 1] - offsets[2 * a + 1];
+				scratch.reset(ra, rb);
+				primitives[a].collide(primitives[b], offsetX, offsetY, pairs.getFeature(i), scratch);
+				if (!scratch.isCollision()) {
+					findImpact(primitives[a], primitives[b], offsetX, offsetY);
+				}
+			}
+		}
+
+		// Rewind every continuous body that hit something once, to its earliest
+		// impact
+		for (RigidBody b : impacted) {
+			b.rewind(b.impactTime);
+			b.impactTime = 1;
+		}
+		impacted.clear();
+	}
+
+	@Override
+	public HashMap<Pair<RigidBody>, Manifold> getCollisions() {
+		HashMap<Pair<RigidBody>, Manifold> collisions = new HashMap<>();
+		for (int i = 0; i < pairs.size(); i++) {
+			RigidBody ra = primitives[pairs.getFirst(i)].getParent(), rb = primitives[pairs.getSecond(i)].getParent();
+			// Static and sleeping bodies do not move into each other
+			if (ra.isAwake() || rb.isAwake()) {
+				testPair(i, collisions);
+			}
+		}
+		return collisions;
+	}
+
+	@Override
+	public int getPairCount() {
+		return pairs.size();
+	}
+
+	@Override
+	public long getWorkCount() {
+		return workCount;
+	}
+
+	///////////////////////
+	// Protected Methods //
+	///////////////////////
+
+	/**
+	 * Insert a newly indexed primitive with the given world AABB.
+	 */
+	protected abstract void insert(int index, float minX, float minY, float maxX, float maxY);
+
+	/**
+	 * Update the world AABB of an already indexed primitive.
+	 */
+	protected abstract void update(int index, float minX, float minY, float maxX, float maxY);
+
+	/**
+	 * Remove an indexed primitive and every pair it is part of. The primitive is
+	 * still stored at its index during the call.
+	 */
+	protected abstract void erase(int index);
+
+	/**
+	 * Grow per-index storage so that it fits the given number of indices.
+	 */
+	protected abstract void grow(int capacity);
+
+	/**
+	 * @return True if two indexed primitives belong to the same rigid body, and
+	 *         should never be paired.
+	 */
+	protected boolean isSameBody(int a, int b) {
+		return primitives[a].getParent() == primitives[b].getParent();
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Run the narrowphase on a pair, and add its contacts to the collisions.
+	private void testPair(int i, HashMap<Pair<RigidBody>, Manifold> collisions) {
+		int a = pairs.getFirst(i), b = pairs.getSecond(i);
+		RigidBody ra = primitives[a].getParent(), rb = primitives[b].getParent();
+		float offsetX = offsets[2 * b] - offsets[2 * a], offsetY = offsets[2 * b + 1] - offsets[2 * a + 1];
+		Manifold m = scratch;
+		m.reset(ra, rb);
+		pairs.setFeature(i, primitives[a].collide(primitives[b], offsetX, offsetY, pairs.getFeature(i), m));
+
+		if (m.isCollision()) {
+			Pair<RigidBody> p = new Pair<>(ra, rb);
+			if (collisions.containsKey(p)) {
+				collisions.get(p).combine(m);
+			} else {
+				// The manifold is kept, the next pairs get a new one
+				collisions.put(p, m);
+				scratch = new Manifold(null, null);
+			}
+		}
+	}
+
+	// Find whether 2 primitives went through each other along the last moves of
+	// their continuous bodies, and keep the earliest time of impact of each body,
+	// just past the impact.
+	private void findImpact(Primitive a, Primitive b, float offsetX, float offsetY) {
+		RigidBody ra = a.getParent(), rb = b.getParent();
+		float dAx = motionX(ra), dAy = motionY(ra), dBx = motionX(rb), dBy = motionY(rb);
+		float dx = dBx - dAx, dy = dBy - dAy;
+		float length = (float) Math.sqrt(dx * dx + dy * dy);
+		if (length == 0) {
+			return;
+		}
+
+		PVector posA = ra.getPosition(), posB = rb.getPosition();
+		float startBx = posB.x + offsetX - dBx, startBy = posB.y + offsetY - dBy;
+		float t = a.timeOfImpact(b, posA.x - dAx, posA.y - dAy, startBx, startBy, dx, dy);
+		if (t < 0) {
+			return;
+		}
+		t = Math.min(t + TIME_OF_IMPACT_SLOP / length, 1);
+		if (ra.isContinuous()) {
+			keepImpact(ra, t);
+		}
+		if (rb.isContinuous()) {
+			keepImpact(rb, t);
+		}
+	}
+
+	private void keepImpact(RigidBody b, float t) {
+		if (t < b.impactTime) {
+			if (b.impactTime == 1) {
+				impacted.add(b);
+			}
+			b.impactTime = t;
+		}
+	}
+
+	private static float motionX(RigidBody b) {
+		return b.isContinuous() ? b.motionX() : 0;
+	}
+
+	private static float motionY(RigidBody b) {
+		return b.isContinuous() ? b.motionY() : 0;
+	}
+
+	// Insert or update a primitive from its parent's current position.
+	private void track(Primitive p, float offsetX, float offsetY) {
+		PVector pos = p.getParent().getPosition();
+		PVector bounds = p.getAABBBounds();
+		float x = pos.x + offsetX, y = pos.y + offsetY;
+		float minX = x - bounds.x / 2, minY = y - bounds.y / 2, maxX = x + bounds.x / 2, maxY = y + bounds.y / 2;
+
+		// Continuous bodies cover their whole last move, from where it started
+		RigidBody b = p.getParent();
+		if (b.isContinuous()) {
+			float dx = b.motionX(), dy = b.motionY();
+			minX -= Math.max(dx, 0);
+			maxX -= Math.min(dx, 0);
+			minY -= Math.max(dy, 0);
+			maxY -= Math.min(dy, 0);
+		}
+
+		Integer stored = indices.get(p);
+		if (stored == null) {
+			int index = allocate(p, offsetX, offsetY);
+			insert(index, minX, minY, maxX, maxY);
+			return;
+		}
+		int index = stored;
+		if (offsets[2 * index] != offsetX || offsets[2 * index + 1] != offsetY) {
+			offsets[2 * index] = offsetX;
+			offsets[2 * index + 1] = offsetY;
+		}
+		update(index, minX, minY, maxX, maxY);
+	}
+
+	// Give a primitive a dense index, reusing freed ones first.
+	private int allocate(Primitive p, float offsetX, float offsetY) {
+		int index;
+		if (freeCount > 0) {
+			index = freeIndices[--freeCount];
+		} else {
+			if (storeSize == primitives.length) {
+				int capacity = 2 * storeSize;
+				primitives = Arrays.copyOf(primitives, capacity);
+				offsets = Arrays.copyOf(offsets, 2 * capacity);
+				grow(capacity);
+			}
+			index = storeSize++;
+		}
+		primitives[index] = p;
+		offsets[2 * index] = offsetX;
+		offsets[2 * index + 1] = offsetY;
+		indices.put(p, index);
+		return index;
+	}
+}
@@ -0,0 +1,95 @@
+package bischemes.engine.physics;
+
+import java.util.Collection;
+
+import bischemes.engine.Pair;
+
+/**
+ * Contact islands of a scene, to put resting bodies to sleep and wake them up.
+ *
+ * An island is a group of movable or rotatable bodies touching each other,
+ * directly or through other bodies of the island. Static bodies do not join
+ * islands, so that a floor does not link everything resting on it. An island
+ * only falls asleep once all of its bodies have rested for
+ * {@link RigidBody#SLEEP_STEPS} steps, and wakes as a whole as soon as one of
+ * its bodies is awake and moving. Since pairs of bodies that are both asleep or
+ * static are not tested for collision, a sleeping island costs almost nothing.
+ */
+public final class Islands {
+
+	private Islands() {
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Update the resting count of every body, then put to sleep or wake every
+	 * island. Called once per step, after collision resolution.
+	 *
+	 * @param bodies   The bodies of the scene.
+	 * @param contacts The pairs of bodies that collided during the step.
+	 * @return The number of bodies left asleep.
+	 */
+	public static int update(Collection<RigidBody> bodies, Collection<Pair<RigidBody>> contacts) {
+		// Every body starts as an island of its own
+		for (RigidBody b : bodies) {
+			b.updateResting();
+			b.island = b;
+			b.islandRestingSteps = RigidBody.SLEEP_STEPS;
+		}
+
+		// Merge the islands of touching bodies
+		for (Pair<RigidBody> c : contacts) {
+			if (isDynamic(c.a) && isDynamic(c.b)) {
+				RigidBody a = find(c.a), b = find(c.b);
+				if (a != b) {
+					a.island = b;
+				}
+			}
+		}
+
+		// An island rests as long as its least rested body
+		for (RigidBody b : bodies) {
+			if (isDynamic(b)) {
+				RigidBody root = find(b);
+				root.islandRestingSteps = Math.min(root.islandRestingSteps, b.getRestingSteps());
+			}
+		}
+
+		// Sleep or wake whole islands
+		int sleeping = 0;
+		for (RigidBody b : bodies) {
+			if (!isDynamic(b)) {
+				continue;
+			}
+			if (find(b).islandRestingSteps >= RigidBody.SLEEP_STEPS) {
+				b.sleep();
+			} else {
+				b.wake();
+			}
+			if (b.isSleeping()) {
+				sleeping++;
+			}
+		}
+		return sleeping;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static boolean isDynamic(RigidBody b) {
+		return b.getProperties().isMovable || b.getProperties().isRotatable;
+	}
+
+	// Find the root of an island, halving the path to it along the way
+	private static RigidBody find(RigidBody b) {
+		while (b.island != b) {
+			b.island = b.island.island;
+			b = b.island;
+		}
+		return b;
+	}
+}
@@ -1,8 +1,7 @@
 package bischemes.engine.physics;
 
 import processing.core.PVector;
-import java.util.List;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Details on a collision between 2 rigid bodies.
@@ -11,67 +10,49 @@ public class Manifold {
 	// Physics Hyperparameters
 	public static final double CORRECTION_THRESHOLD = 0.01;
 	public static final double CORRECTION_PERCENTAGE = 0.2;
+	// Slowest impact that bounces, in m/s
+	public static final double RESTITUTION_THRESHOLD = 0.5;
+	// Farthest a contact may move between steps and still be warm started
+	private static final float WARM_START_DISTANCE = 0.05f;
+
+	// Values of a contact, packed CONTACT_STRIDE apiece in the contact buffer:
+	// point, normal and depth, surface coefficients, then solver state - lever
+	// arms from both bodies, effective masses, and accumulated impulses
+	private static final int POINT_X = 0, POINT_Y = 1, NORMAL_X = 2, NORMAL_Y = 3, PENETRATION = 4;
+	private static final int RESTITUTION = 5, STATIC_FRICTION = 6, DYNAMIC_FRICTION = 7;
+	private static final int RA_X = 8, RA_Y = 9, RB_X = 10, RB_Y = 11;
+	private static final int NORMAL_MASS = 12, TANGENT_MASS = 13, BIAS = 14, NORMAL_IMPULSE = 15,
+			TANGENT_IMPULSE = 16;
+	private static final int CONTACT_STRIDE = 17;
+	private static final double[] NO_CONTACTS = new double[0];
 
 	// Manifold properties
-	private List<Interpenetration> contactPoints = new ArrayList<>();
+	private double[] contacts = NO_CONTACTS;
+	private int contactCount = 0;
 	public RigidBody objectA;
 	public RigidBody objectB;
 
-	/**
-	 * Representation of an interpenetration of a point from one rigid body into the
-	 * other.
-	 */
-	class Interpenetration {
-		PVector contactPoint;
-		PVector surfaceNormal;
-		double penetration;
-
-		double restitution;
-		double staticFriction;
-		double dynamicFriction;
-
-		Interpenetration copy() {
-			return new Interpenetration(contactPoint, surfaceNormal, penetration, restitution, staticFriction,
-					dynamicFriction);
-		}
-
-		Interpenetration(PVector contactPoint, PVector surfaceNormal, double penetration, Primitive a, Primitive b) {
-			this.contactPoint = contactPoint;
-			this.surfaceNormal = surfaceNormal;
-			this.penetration = penetration;
-
-			// Calculate restitution, static and dynamic friction
-			this.restitution = (b.surface.restitution + a.surface.restitution) / 2;
-			this.staticFriction = Math
-					.sqrt(Math.pow(a.surface.staticFriction, 2) + Math.pow(b.surface.staticFriction, 2));
-			this.dynamicFriction = Math
-					.sqrt(Math.pow(a.surface.dynamicFriction, 2) + Math.pow(b.surface.dynamicFriction, 2));
-		}
-
-		Interpenetration(PVector contactPoint, PVector surfaceNormal, double penetration, double restitution,
-				double staticFriction, double dynamicFriction) {
-			this.contactPoint = contactPoint;
-			this.surfaceNormal = surfaceNormal;
-			this.penetration = penetration;
-			this.restitution = restitution;
-			this.staticFriction = staticFriction;
-			this.dynamicFriction = dynamicFriction;
-		}
-	}
-
 	public double getMaxPenetration() {
 		double max = Double.MAX_VALUE;
-		for (Interpenetration c : contactPoints) {
-			if (c.penetration < max) {
-				max = c.penetration;
+		for (int k = 0; k < contactCount * CONTACT_STRIDE; k += CONTACT_STRIDE) {
+			if (contacts[k + PENETRATION] < max) {
+				max = contacts[k + PENETRATION];
 			}
 		}
 		return max;
 	}
 
+	public int getContactCount() {
+		return contactCount;
+	}
+
+	/**
+	 * @return A copy of the normal of the first contact, from A to B, or null if
+	 *         there is no collision.
+	 */
 	public PVector getNormal() {
 		if (isCollision()) {
-			return contactPoints.get(0).surfaceNormal;
+			return new PVector((float) contacts[NORMAL_X], (float) contacts[NORMAL_Y]);
 		} else {
 			return null;
 		}
@@ -85,66 +66,178 @@ public class Manifold {
 	 * @param penetration The penetration depth of the collision.
 	 */
 	public void addContactPoint(PVector point, PVector normal, double penetration, Primitive a, Primitive b) {
-		contactPoints.add(new Interpenetration(point, normal, penetration, a, b));
+		addContact(point.x, point.y, normal.x, normal.y, penetration, a.surface, b.surface);
 	}
 
 	/**
-	 * Apply the impulse of the manifold to the two rigid bodies.
+	 * Add a new contact point to the manifold, reusing the contact buffer.
+	 *
+	 * @param x           The contact point, in world coordinates.
+	 * @param y
+	 * @param normalX     The unit normal of the collision surface, from A to B.
+	 * @param normalY
+	 * @param penetration The penetration depth of the collision, negative.
+	 * @param a           The surface of A.
+	 * @param b           The surface of B.
+	 */
+	void addContact(double x, double y, double normalX, double normalY, double penetration, Surface a, Surface b) {
+		int k = reserve();
+		contacts[k + POINT_X] = x;
+		contacts[k + POINT_Y] = y;
+		contacts[k + NORMAL_X] = normalX;
+		contacts[k + NORMAL_Y] = normalY;
+		contacts[k + PENETRATION] = penetration;
+
+		// Calculate restitution, static and dynamic friction
+		contacts[k + RESTITUTION] = (b.restitution + a.restitution) / 2;
+		contacts[k + STATIC_FRICTION] = Math
+				.sqrt(a.staticFriction * a.staticFriction + b.staticFriction * b.staticFriction);
+		contacts[k + DYNAMIC_FRICTION] = Math
+				.sqrt(a.dynamicFriction * a.dynamicFriction + b.dynamicFriction * b.dynamicFriction);
+	}
+
+	/**
+	 * Empty the manifold to test another pair of bodies, keeping its contact
+	 * buffer.
+	 */
+	void reset(RigidBody objectA, RigidBody objectB) {
+		this.objectA = objectA;
+		this.objectB = objectB;
+		contactCount = 0;
+	}
+
+	/**
+	 * Resolve the manifold on its own, in a single solver iteration. The manifolds
+	 * of a scene are resolved together by a {@link ContactSolver} instead.
 	 */
 	public void applyImpulse() {
-		double maxPenetration = 0;
-		PVector maxNormal = new PVector();
-		for (Interpenetration contact : contactPoints) {
-			if (-contact.penetration > maxPenetration) {
-				maxPenetration = -contact.penetration;
-				maxNormal = contact.surfaceNormal;
-			}
+		prepare();
+		solveVelocities();
+		correctPositions();
+	}
+
+	///////////////////////
+	// Solver Operations //
+	///////////////////////
+
+	/**
+	 * Prepare the contacts for the solver, from the velocities before resolution:
+	 * lever arms, effective masses along the normal and tangent, and the
+	 * separating velocity restitution aims for. Accumulated impulses start at 0.
+	 */
+	void prepare() {
+		PVector posA = objectA.getPosition(), posB = objectB.getPosition();
+		double imA = objectA.getInverseMass(), imB = objectB.getInverseMass();
+		double iiA = objectA.getInverseInertia(), iiB = objectB.getInverseInertia();
+		for (int k = 0; k < contactCount * CONTACT_STRIDE; k += CONTACT_STRIDE) {
+			double rAx = contacts[k + POINT_X] - posA.x, rAy = contacts[k + POINT_Y] - posA.y;
+			double rBx = contacts[k + POINT_X] - posB.x, rBy = contacts[k + POINT_Y] - posB.y;
+			double nx = contacts[k + NORMAL_X], ny = contacts[k + NORMAL_Y];
+			contacts[k + RA_X] = rAx;
+			contacts[k + RA_Y] = rAy;
+			contacts[k + RB_X] = rBx;
+			contacts[k + RB_Y] = rBy;
 
-			PVector radA = PVector.sub(contact.contactPoint, objectA.getPosition());
-			PVector radB = PVector.sub(contact.contactPoint, objectB.getPosition());
+			// Effective masses, the tangent being the normal turned a quarter
+			double rnA = rAx * ny - rAy * nx, rnB = rBx * ny - rBy * nx;
+			double rtA = rAx * nx + rAy * ny, rtB = rBx * nx + rBy * ny;
+			double kNormal = imA + imB + rnA * rnA * iiA + rnB * rnB * iiB;
+			double kTangent = imA + imB + rtA * rtA * iiA + rtB * rtB * iiB;
+			contacts[k + NORMAL_MASS] = kNormal > 0 ? 1 / kNormal : 0;
+			contacts[k + TANGENT_MASS] = kTangent > 0 ? 1 / kTangent : 0;
 
-			PVector relVelocity = PVector.sub(objectB.properties.velocity, objectA.properties.velocity)
-					.sub(new PVector(-radA.y, radA.x).mult((float) objectA.properties.rotation))
-					.add(new PVector(-radB.y, radB.x).mult((float) objectB.properties.rotation));
+			// Only bounce off fast impacts, so that resting contacts settle
+			double vn = relativeVelocity(k, nx, ny);
+			contacts[k + BIAS] = vn < -RESTITUTION_THRESHOLD ? -contacts[k + RESTITUTION] * vn : 0;
+			contacts[k + NORMAL_IMPULSE] = 0;
+			contacts[k + TANGENT_IMPULSE] = 0;
+		}
+	}
 
-			double velocityProjectionOnNormal = PVector.dot(relVelocity, contact.surfaceNormal);
-			if (velocityProjectionOnNormal > 0) {
-				continue;
+	/**
+	 * Start from the impulses accumulated on the same contacts during the
+	 * previous step, and apply them. Contacts are matched by their position
+	 * relative to the bodies.
+	 *
+	 * @param previous The manifold of the same bodies in the previous step.
+	 */
+	void warmStart(Manifold previous) {
+		boolean reversed = previous.objectA != objectA;
+		double[] last = previous.contacts;
+		for (int k = 0; k < contactCount * CONTACT_STRIDE; k += CONTACT_STRIDE) {
+			for (int p = 0; p < previous.contactCount * CONTACT_STRIDE; p += CONTACT_STRIDE) {
+				double dx = contacts[k + RA_X] - last[p + (reversed ? RB_X : RA_X)];
+				double dy = contacts[k + RA_Y] - last[p + (reversed ? RB_Y : RA_Y)];
+				if (dx * dx + dy * dy < WARM_START_DISTANCE * WARM_START_DISTANCE) {
+					// Both the normal and tangent flip with the bodies, the impulses do not
+					double normalImpulse = last[p + NORMAL_IMPULSE], tangentImpulse = last[p + TANGENT_IMPULSE];
+					double nx = contacts[k + NORMAL_X], ny = contacts[k + NORMAL_Y];
+					contacts[k + NORMAL_IMPULSE] = normalImpulse;
+					contacts[k + TANGENT_IMPULSE] = tangentImpulse;
+					applyImpulse(k, normalImpulse * nx - tangentImpulse * ny, normalImpulse * ny + tangentImpulse * nx);
+					break;
+				}
 			}
+		}
+	}
 
-			// Calculate impulse resolution
-			double radACrossNormal = Math.pow(radA.cross(contact.surfaceNormal).z, 2),
-					radBCrossNormal = Math.pow(radB.cross(contact.surfaceNormal).z, 2);
-			double factorDiv = 1 / (contactPoints.size() * (objectA.getInverseMass() + objectB.getInverseMass()
-					+ radACrossNormal * objectA.getInverseInertia() + radBCrossNormal * objectB.getInverseInertia()));
-			double j = -(1 + contact.restitution) * velocityProjectionOnNormal * factorDiv;
-			PVector impulse = PVector.mult(contact.surfaceNormal, (float) j);
-
-			objectA.applyImpulse(PVector.mult(impulse, -1), radA);
-			objectB.applyImpulse(impulse, radB);
-
-			// Calculate friction resolution
-			PVector tan = PVector
-					.sub(relVelocity,
-							PVector.mult(contact.surfaceNormal, PVector.dot(relVelocity, contact.surfaceNormal)))
-					.normalize();
-			double velocityProjectionOnTan = PVector.dot(relVelocity, tan);
-			double frictionFactor = -velocityProjectionOnTan * factorDiv;
-			PVector frictionImpulse = PVector.mult(tan,
-					(float) (Math.abs(frictionFactor) > contact.staticFriction * j ? -j * contact.dynamicFriction
-							: frictionFactor));
-
-			objectA.applyImpulse(PVector.mult(frictionImpulse, -1), radA);
-			objectB.applyImpulse(frictionImpulse, radB);
+	/**
+	 * Run a solver iteration over the contacts: friction, then the normal
+	 * impulse. Accumulated normal impulses never pull the bodies together, and
+	 * friction is bound by the normal impulse.
+	 */
+	void solveVelocities() {
+		for (int k = 0; k < contactCount * CONTACT_STRIDE; k += CONTACT_STRIDE) {
+			double nx = contacts[k + NORMAL_X], ny = contacts[k + NORMAL_Y];
+			double accumulatedNormal = contacts[k + NORMAL_IMPULSE];
+
+			// Friction, static until it would exceed its cone
+			double vt = relativeVelocity(k, -ny, nx);
+			double tangentImpulse = contacts[k + TANGENT_IMPULSE] - vt * contacts[k + TANGENT_MASS];
+			if (Math.abs(tangentImpulse) > contacts[k + STATIC_FRICTION] * accumulatedNormal) {
+				double limit = contacts[k + DYNAMIC_FRICTION] * accumulatedNormal;
+				tangentImpulse = Math.max(-limit, Math.min(tangentImpulse, limit));
+			}
+			double dt = tangentImpulse - contacts[k + TANGENT_IMPULSE];
+			contacts[k + TANGENT_IMPULSE] = tangentImpulse;
+			applyImpulse(k, -dt * ny, dt * nx);
+
+			// Normal impulse
+			double vn = relativeVelocity(k, nx, ny);
+			double normalImpulse = Math.max(accumulatedNormal + (contacts[k + BIAS] - vn) * contacts[k + NORMAL_MASS],
+					0);
+			double dn = normalImpulse - accumulatedNormal;
+			contacts[k + NORMAL_IMPULSE] = normalImpulse;
+			applyImpulse(k, dn * nx, dn * ny);
 		}
+	}
 
-		// Apply sinking correction
+	/**
+	 * Push the bodies apart along the deepest contact, once velocities are
+	 * solved.
+	 */
+	void correctPositions() {
+		double maxPenetration = 0;
+		PVector maxNormal = new PVector();
+		for (int k = 0; k < contactCount * CONTACT_STRIDE; k += CONTACT_STRIDE) {
+			if (-contacts[k + PENETRATION] > maxPenetration) {
+				maxPenetration = -contacts[k + PENETRATION];
+				maxNormal.set((float) contacts[k + NORMAL_X], (float) contacts[k + NORMAL_Y]);
+			}
+		}
+
+		// Apply sinking correction. Bodies of infinite mass are not moved, so that
+		// static ones are neither woken nor tracked again by the broadphase.
 		double inverseTotalMass = 1 / (objectA.getInverseMass() + objectB.getInverseMass());
 		if (maxPenetration > CORRECTION_THRESHOLD) {
-			objectA.setPosition(PVector.add(objectA.getPosition(), PVector.mult(maxNormal,
-					(float) (-maxPenetration * CORRECTION_PERCENTAGE * objectA.getInverseMass() * inverseTotalMass))));
-			objectB.setPosition(PVector.sub(objectB.getPosition(), PVector.mult(maxNormal,
-					(float) (-maxPenetration * CORRECTION_PERCENTAGE * objectB.getInverseMass() * inverseTotalMass))));
+			if (objectA.getInverseMass() != 0) {
+				objectA.setPosition(PVector.add(objectA.getPosition(), PVector.mult(maxNormal,
+						(float) (-maxPenetration * CORRECTION_PERCENTAGE * objectA.getInverseMass() * inverseTotalMass))));
+			}
+			if (objectB.getInverseMass() != 0) {
+				objectB.setPosition(PVector.sub(objectB.getPosition(), PVector.mult(maxNormal,
+						(float) (-maxPenetration * CORRECTION_PERCENTAGE * objectB.getInverseMass() * inverseTotalMass))));
+			}
 		}
 	}
 
@@ -160,16 +253,14 @@ public class Manifold {
 				&& (m.objectA != this.objectB || m.objectB != this.objectA)) {
 			return;
 		}
-		// Reverse contact points
-		if (m.objectA == this.objectB) {
-			for (Interpenetration i : m.contactPoints) {
-				Interpenetration ci = i.copy();
-				ci.surfaceNormal.mult(-1);
-				contactPoints.add(ci);
-
+		for (int p = 0; p < m.contactCount * CONTACT_STRIDE; p += CONTACT_STRIDE) {
+			int k = reserve();
+			System.arraycopy(m.contacts, p, contacts, k, CONTACT_STRIDE);
+			// Reverse contact points
+			if (m.objectA == this.objectB) {
+				contacts[k + NORMAL_X] = -contacts[k + NORMAL_X];
+				contacts[k + NORMAL_Y] = -contacts[k + NORMAL_Y];
 			}
-		} else {
-			contactPoints.addAll(m.contactPoints);
 		}
 	}
 
@@ -180,7 +271,36 @@ public class Manifold {
 	 * @return Whether the 2 rigid bodies of the manifold are collided.
 	 */
 	public boolean isCollision() {
-		return !contactPoints.isEmpty();
+		return contactCount > 0;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Velocity of B relative to A at a contact, projected on a direction
+	private double relativeVelocity(int k, double dx, double dy) {
+		double wA = objectA.getRotation(), wB = objectB.getRotation();
+		double rx = objectB.velocityX() - wB * contacts[k + RB_Y] - objectA.velocityX() + wA * contacts[k + RA_Y];
+		double ry = objectB.velocityY() + wB * contacts[k + RB_X] - objectA.velocityY() - wA * contacts[k + RA_X];
+		return rx * dx + ry * dy;
+	}
+
+	// Apply an impulse to B at a contact, and its opposite to A
+	private void applyImpulse(int k, double px, double py) {
+		objectA.applyImpulse(-px, -py, contacts[k + RA_X], contacts[k + RA_Y]);
+		objectB.applyImpulse(px, py, contacts[k + RB_X], contacts[k + RB_Y]);
+	}
+
+	// Make room for one more contact, growing the buffer if it is full. Returns
+	// the offset of the new contact.
+	private int reserve() {
+		int k = contactCount * CONTACT_STRIDE;
+		if (k == contacts.length) {
+			contacts = Arrays.copyOf(contacts, Math.max(2 * CONTACT_STRIDE, 2 * k));
+		}
+		contactCount++;
+		return k;
 	}
 
 	/**
@@ -0,0 +1,186 @@
+package bischemes.engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * Persistent set of overlapping primitive index pairs.
+ *
+ * Each pair keeps a reference count (e.g. the number of grid cells both
+ * primitives share): a pair is added when the count leaves zero and removed
+ * when it drops back to zero. Pairs are kept in dense arrays so they can be
+ * iterated without allocating, and looked up through an open-addressing table
+ * keyed on both indices.
+ *
+ * Each pair also keeps the feature the narrowphase last found for it, e.g. the
+ * face that separated the primitives, to be tested first next time.
+ */
+class OverlapPairs {
+	private static final long EMPTY = -1;
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Dense pair list
+	private int[] first = new int[INITIAL_CAPACITY];
+	private int[] second = new int[INITIAL_CAPACITY];
+	private int[] counts = new int[INITIAL_CAPACITY];
+	private int[] features = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	// Open-addressing table from pair key to position in the pair list
+	private long[] keys = new long[2 * INITIAL_CAPACITY];
+	private int[] slots = new int[2 * INITIAL_CAPACITY];
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Increment the reference count of a pair, adding it if absent.
+	 *
+	 * @return True if the pair was added.
+	 */
+	public boolean increment(int a, int b) {
+		long key = key(a, b);
+		int h = find(key);
+		if (keys[h] != EMPTY) {
+			counts[slots[h]]++;
+			return false;
+		}
+		if (size == first.length) {
+			grow();
+			h = find(key);
+		}
+		keys[h] = key;
+		slots[h] = size;
+		first[size] = Math.min(a, b);
+		second[size] = Math.max(a, b);
+		counts[size] = 1;
+		features[size] = Primitive.NO_FEATURE;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Decrement the reference count of a pair, removing it once it reaches zero.
+	 *
+	 * @return True if the pair was removed.
+	 */
+	public boolean decrement(int a, int b) {
+		int h = find(key(a, b));
+		if (keys[h] == EMPTY || --counts[slots[h]] > 0) {
+			return false;
+		}
+		removeAt(h);
+		return true;
+	}
+
+	public boolean contains(int a, int b) {
+		return keys[find(key(a, b))] != EMPTY;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The lower primitive index of the i-th pair.
+	 */
+	public int getFirst(int i) {
+		return first[i];
+	}
+
+	/**
+	 * @return The higher primitive index of the i-th pair.
+	 */
+	public int getSecond(int i) {
+		return second[i];
+	}
+
+	/**
+	 * @return The feature last found for the i-th pair, or
+	 *         {@link Primitive#NO_FEATURE}.
+	 */
+	public int getFeature(int i) {
+		return features[i];
+	}
+
+	public void setFeature(int i, int feature) {
+		features[i] = feature;
+	}
+
+	public void clear() {
+		size = 0;
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private static long key(int a, int b) {
+		return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	// Table position of a key, or of the empty slot where it would go.
+	private int find(long key) {
+		int mask = keys.length - 1;
+		int h = hash(key) & mask;
+		while (keys[h] != EMPTY && keys[h] != key) {
+			h = (h + 1) & mask;
+		}
+		return h;
+	}
+
+	private void removeAt(int h) {
+		// Swap the last pair into the freed list position
+		int slot = slots[h];
+		int last = --size;
+		if (slot != last) {
+			first[slot] = first[last];
+			second[slot] = second[last];
+			counts[slot] = counts[last];
+			features[slot] = features[last];
+			slots[find(key(first[slot], second[slot]))] = slot;
+		}
+
+		// Backward-shift deletion keeps probe chains intact without tombstones
+		int mask = keys.length - 1;
+		int hole = h;
+		int next = (h + 1) & mask;
+		while (keys[next] != EMPTY) {
+			int home = hash(keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				slots[hole] = slots[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+	}
+
+	private void grow() {
+		int capacity = 2 * first.length;
+		first = Arrays.copyOf(first, capacity);
+		second = Arrays.copyOf(second, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		features = Arrays.copyOf(features, capacity);
+
+		keys = new long[2 * capacity];
+		slots = new int[2 * capacity];
+		Arrays.fill(keys, EMPTY);
+		for (int i = 0; i < size; i++) {
+			int h = find(key(first[i], second[i]));
+			keys[h] = key(first[i], second[i]);
+			slots[h] = i;
+		}
+	}
+
+	OverlapPairs() {
+		Arrays.fill(keys, EMPTY);
+	}
+}
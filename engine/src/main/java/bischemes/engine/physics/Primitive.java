@@ -1,16 +1,23 @@
 package bischemes.engine.physics;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
-import bischemes.engine.GObject;
-import bischemes.engine.Pair;
 import bischemes.engine.physics.PrimitiveAssembly.PrimitiveInSet;
 import processing.core.PVector;
 
 public class Primitive implements PhysicsMesh {
-	private static final double PARRALLEL_THRESHOLD = 0.0001;
+	/**
+	 * Feature of a pair of primitives that is not known yet. Known features are
+	 * faces of polygons: 2 * face for a face of the first primitive of the pair,
+	 * 2 * face + 1 for a face of the second.
+	 */
+	public static final int NO_FEATURE = -1;
+
+	// Bias towards the faces of A as reference, so that the reference face does
+	// not flicker between 2 almost equal faces
+	private static final float RELATIVE_TOLERANCE = 0.98f;
+	private static final float ABSOLUTE_TOLERANCE = 0.001f;
 
 	private PrimitiveType primitiveType;
 	private RigidBody parent;
@@ -18,11 +25,18 @@ public class Primitive implements PhysicsMesh {
 
 	// Reals
 	private List<PVector> baseVerts;
+	private float[] baseNormalX;
+	private float[] baseNormalY;
 	private double radius;
+	private float boundingRadius;
 	private PVector baseAABB = new PVector();
 
-	// Derived
-	private List<PVector> vertices;
+	// Derived - vertices and outward unit normals rotated with the body, relative
+	// to its position. Face i goes from vertex i to vertex i + 1.
+	private float[] vertexX;
+	private float[] vertexY;
+	private float[] normalX;
+	private float[] normalY;
 	private PVector AABBBounds = new PVector();
 
 	static enum PrimitiveType {
@@ -45,6 +59,14 @@ public class Primitive implements PhysicsMesh {
 		return AABBBounds;
 	}
 
+	/**
+	 * @return The distance from the position of the body to the farthest point of
+	 *         the primitive.
+	 */
+	public float getBoundingRadius() {
+		return boundingRadius;
+	}
+
 	/////////////////////
 	// Physics Methods //
 	/////////////////////
@@ -53,47 +75,19 @@ public class Primitive implements PhysicsMesh {
 		if (primitiveType == PrimitiveType.CIRCLE) {
 			return;
 		}
-
-		vertices = new ArrayList<>(baseVerts.size());
-		for (PVector v : baseVerts) {
-			PVector vn = v.copy();
-			vn.rotate((float) parent.getOrientation());
-			vertices.add(vn);
-		}
-
-		// Recompute AABB bounds
-		List<PVector> aabb = Arrays.asList(new PVector(-baseAABB.x / 2, -baseAABB.y / 2),
-				new PVector(-baseAABB.x / 2, baseAABB.y / 2), new PVector(baseAABB.x / 2, baseAABB.y / 2),
-				new PVector(baseAABB.x / 2, -baseAABB.y / 2));
-		PVector min = new PVector(Float.MAX_VALUE, Float.MAX_VALUE);
-		PVector max = new PVector(-Float.MAX_VALUE, -Float.MAX_VALUE);
-		for (PVector v : aabb) {
-			v.rotate((float) parent.getOrientation());
-			min.x = v.x < min.x ? v.x : min.x;
-			min.y = v.y < min.y ? v.y : min.y;
-			max.x = v.x > max.x ? v.x : max.x;
-			max.y = v.y > max.y ? v.y : max.y;
-		}
-		AABBBounds = PVector.sub(max, min);
+		rotate((float) parent.getOrientation());
 	}
 
 	public Manifold getCollision(Primitive b, PVector offset) {
-		return switch (this.primitiveType) {
-			case CIRCLE -> switch (b.primitiveType) {
-				case CIRCLE -> this.circleToCircleCollision(b, offset);
-				case POLYGON -> this.circleToPolygonCollision(b, offset);
-			};
-			case POLYGON -> switch (b.primitiveType) {
-				case CIRCLE -> b.circleToPolygonCollision(this, PVector.mult(offset, -1));
-				case POLYGON -> this.polygonToPolygonCollision(b, offset);
-			};
-		};
+		Manifold m = new Manifold(this.parent, b.getParent());
+		collide(b, offset.x, offset.y, NO_FEATURE, m);
+		return m;
 	}
 
 	public Manifold getCollision(PrimitiveAssembly b, PVector offset) {
 		Manifold m = new Manifold(this.parent, b.getParent());
 		for (PrimitiveInSet p : b.getAssembly()) {
-			m.combine(getCollision(p.primitive, PVector.sub(p.offset, offset)));
+			collide(p.primitive, p.offset.x - offset.x, p.offset.y - offset.y, NO_FEATURE, m);
 		}
 		return m;
 	}
@@ -108,14 +102,122 @@ public class Primitive implements PhysicsMesh {
 		}
 	}
 
+	/**
+	 * Test the primitive against another, and add the contacts found to a
+	 * manifold. Nothing is allocated, so that pairs that do not collide cost no
+	 * garbage.
+	 *
+	 * Pairs of polygons are first tested along the feature found for them last
+	 * time: pairs that stay apart, e.g. a block sliding just above a floor,
+	 * usually exit on that face alone without searching every other one.
+	 *
+	 * @param b       The other primitive.
+	 * @param offsetX The offset of the other primitive from its body's position.
+	 * @param offsetY
+	 * @param feature The feature last found for the pair, or {@link #NO_FEATURE}.
+	 * @param m       The manifold to add contacts to, from the body of this
+	 *                primitive to that of b.
+	 * @return The feature to test the pair along next time.
+	 */
+	int collide(Primitive b, float offsetX, float offsetY, int feature, Manifold m) {
+		PVector posA = this.parent.getPosition(), posB = b.parent.getPosition();
+		float ax = posA.x, ay = posA.y, bx = posB.x + offsetX, by = posB.y + offsetY;
+		switch (this.primitiveType) {
+			case CIRCLE -> {
+				switch (b.primitiveType) {
+					case CIRCLE -> this.circleToCircleCollision(b, ax, ay, bx, by, m);
+					case POLYGON -> this.circleToPolygonCollision(b, ax, ay, bx, by, 1, m);
+				}
+			}
+			case POLYGON -> {
+				switch (b.primitiveType) {
+					case CIRCLE -> b.circleToPolygonCollision(this, bx, by, ax, ay, -1, m);
+					case POLYGON -> {
+						return this.polygonToPolygonCollision(b, ax, ay, bx, by, feature, m);
+					}
+				}
+			}
+		}
+		return NO_FEATURE;
+	}
+
+	/**
+	 * Find when b first touches this primitive, both moving in a straight line
+	 * without rotating. Polygons are swept along the faces of both, which is
+	 * exact; a circle against a polygon counts as its extent along the faces of
+	 * the polygon, which may find the impact a little early at corners.
+	 *
+	 * @param ax The position of this primitive at the start of the move.
+	 * @param ay
+	 * @param bx The position of b at the start of the move.
+	 * @param by
+	 * @param dx The move of b relative to this primitive.
+	 * @param dy
+	 * @return The fraction of the move at which both first touch, or -1 if they
+	 *         do not, or already touched at its start.
+	 */
+	float timeOfImpact(Primitive b, float ax, float ay, float bx, float by, float dx, float dy) {
+		if (this.primitiveType == PrimitiveType.CIRCLE && b.primitiveType == PrimitiveType.CIRCLE) {
+			// First root of |p + t * d| = r
+			float px = bx - ax, py = by - ay, r = (float) (this.radius + b.radius);
+			float dd = dx * dx + dy * dy, pd = px * dx + py * dy, pp = px * px + py * py - r * r;
+			float discriminant = pd * pd - dd * pp;
+			if (pp <= 0 || pd >= 0 || discriminant < 0) {
+				return -1;
+			}
+			float t = (-pd - (float) Math.sqrt(discriminant)) / dd;
+			return t <= 1 ? t : -1;
+		}
+
+		// Intersect the times both overlap along every axis
+		float enter = 0, exit = 1;
+		boolean separated = false;
+		int facesA = this.getFaceCount(), faces = facesA + b.getFaceCount();
+		for (int k = 0; k < faces; k++) {
+			float nx = k < facesA ? normalX[k] : b.normalX[k - facesA];
+			float ny = k < facesA ? normalY[k] : b.normalY[k - facesA];
+			float minA = -this.extent(ax, ay, -nx, -ny), maxA = this.extent(ax, ay, nx, ny);
+			float minB = -b.extent(bx, by, -nx, -ny), maxB = b.extent(bx, by, nx, ny);
+			float v = dx * nx + dy * ny;
+			if (maxB < minA) {
+				if (v <= 0) {
+					return -1;
+				}
+				separated = true;
+				enter = Math.max(enter, (minA - maxB) / v);
+				exit = Math.min(exit, (maxA - minB) / v);
+			} else if (minB > maxA) {
+				if (v >= 0) {
+					return -1;
+				}
+				separated = true;
+				enter = Math.max(enter, (maxA - minB) / v);
+				exit = Math.min(exit, (minA - maxB) / v);
+			} else if (v > 0) {
+				exit = Math.min(exit, (maxA - minB) / v);
+			} else if (v < 0) {
+				exit = Math.min(exit, (minA - maxB) / v);
+			}
+			if (enter > exit) {
+				return -1;
+			}
+		}
+		return separated ? enter : -1;
+	}
+
+	/**
+	 * @return Copies of the vertices of the polygon, rotated with the body, or
+	 *         null for a circle.
+	 */
 	public List<PVector> getVertices() {
 		if (primitiveType == PrimitiveType.CIRCLE) {
 			return null;
-		} else if (vertices != null) {
-			return vertices;
-		} else {
-			return baseVerts;
 		}
+		List<PVector> vertices = new ArrayList<>(vertexX.length);
+		for (int i = 0; i < vertexX.length; i++) {
+			vertices.add(new PVector(vertexX[i], vertexY[i]));
+		}
+		return vertices;
 	}
 
 	public double getRadius() {
@@ -147,219 +249,251 @@ public class Primitive implements PhysicsMesh {
 	// Private Methods //
 	/////////////////////
 
-	// Get full collision manifold for contact between 2 polygon primitives.
-	private Manifold polygonToPolygonCollision(Primitive b, PVector offset) {
-		Manifold m = new Manifold(this.parent, b.getParent());
-		m.combine(queryFaceDistance(b, offset));
-
-		if (m.isCollision()) {
-			Manifold m2 = new Manifold(b.getParent(), this.parent);
-			m2.combine(b.queryFaceDistance(this, PVector.mult(offset, -1)));
+	private int getFaceCount() {
+		return primitiveType == PrimitiveType.POLYGON ? vertexX.length : 0;
+	}
 
-			if (m2.isCollision()) {
-				return m.getMaxPenetration() > m2.getMaxPenetration() ? m : m2;
-			} else {
-				return m2;
-			}
+	// Farthest the primitive at (x, y) reaches along a unit direction.
+	private float extent(float x, float y, float nx, float ny) {
+		float max = x * nx + y * ny;
+		if (primitiveType == PrimitiveType.CIRCLE) {
+			return max + (float) radius;
 		}
-		return m;
+		float reach = -Float.MAX_VALUE;
+		for (int i = 0; i < vertexX.length; i++) {
+			float d = vertexX[i] * nx + vertexY[i] * ny;
+			reach = d > reach ? d : reach;
+		}
+		return max + reach;
 	}
 
-	// Query face distance between this polygon, from which the faces are checked,
-	// against another polygon's vertices. Returns a collision manifold with a
-	// potential collision point if there is one.
-	private Manifold queryFaceDistance(Primitive b, PVector offset) {
-		Manifold m = new Manifold(this.parent, b.getParent());
+	// Rotate the vertices, normals and AABB bounds of a polygon.
+	private void rotate(float orientation) {
+		float cos = (float) Math.cos(orientation), sin = (float) Math.sin(orientation);
+		for (int i = 0; i < vertexX.length; i++) {
+			PVector v = baseVerts.get(i);
+			vertexX[i] = v.x * cos - v.y * sin;
+			vertexY[i] = v.x * sin + v.y * cos;
+			normalX[i] = baseNormalX[i] * cos - baseNormalY[i] * sin;
+			normalY[i] = baseNormalX[i] * sin + baseNormalY[i] * cos;
+		}
 
-		double minPenetration = -Double.MAX_VALUE;
-		PVector bestNormal = new PVector();
-		PVector bestSupport = new PVector();
-		int bestIndex = 0;
-
-		// Get best support point and add first point
-		PVector v1min = new PVector(), v2min = new PVector();
-		float reverseFactor = 1.0f;
-		PVector v2 = PVector.add(this.vertices.get(this.vertices.size() - 1), this.parent.getPosition());
-		boolean calibrating = true;
-		for (int i = 0; i < this.vertices.size(); i++) {
-			PVector v1 = PVector.add(this.vertices.get(i), this.parent.getPosition());
-
-			PVector v1v2 = PVector.sub(v1, v2).mult(reverseFactor);
-			PVector normal = new PVector(-v1v2.y, v1v2.x).normalize();
-			int supportIndex = b.polygonSupportPoint(PVector.mult(normal, -1));
-			PVector support = PVector.add(b.vertices.get(supportIndex), b.parent.getPosition()).add(offset);
-			double dist = PVector.dot(PVector.sub(support, v1), normal);
-
-			if (calibrating && dist > 0) {
-				i = -1;
-				reverseFactor = -1.0f;
-				calibrating = false;
-				minPenetration = -Double.MAX_VALUE;
-				v2 = PVector.add(this.vertices.get(this.vertices.size() - 1), this.parent.getPosition());
-				continue;
-			}
-			if (dist > minPenetration) {
-				if (dist > 0) {
-					return m;
-				}
-				v1min = v1;
-				v2min = v2;
+		// Recompute AABB bounds, from the rotated corners of the base ones
+		float c = Math.abs(cos), s = Math.abs(sin);
+		AABBBounds.set(baseAABB.x * c + baseAABB.y * s, baseAABB.x * s + baseAABB.y * c);
+	}
 
-				minPenetration = dist;
-				bestNormal = normal;
-				bestSupport = support;
-				bestIndex = supportIndex;
-			}
-			v2 = v1;
-		}
-
-		// Get incident face
-		PVector adjacent0 = PVector
-				.add(b.vertices.get((b.vertices.size() + bestIndex - 1) % b.vertices.size()), b.parent.getPosition())
-				.add(offset);
-		PVector adjacent1 = PVector.add(b.vertices.get((bestIndex + 1) % b.vertices.size()), b.parent.getPosition())
-				.add(offset);
-		double dot0 = Math.abs(PVector.dot(PVector.sub(adjacent0, bestSupport).normalize(), bestNormal)),
-				dot1 = Math.abs(PVector.dot(PVector.sub(adjacent1, bestSupport).normalize(), bestNormal));
-		PVector adjacent = dot1 > dot0 ? adjacent0 : adjacent1;
-		PVector rayDir = PVector.sub(bestSupport, adjacent);
-
-		// Perform Sutherland Clipping
-		PVector i1 = PVector.add(this.vertices.get(this.vertices.size() - 1), this.parent.getPosition());
-		boolean isEdge = true;
-		PVector clip = clip(rayDir, bestSupport, new Pair<>(v1min, v2min));
-		if (clip != null) {
-			adjacent = clip;
-			isEdge = false;
-			rayDir = PVector.sub(bestSupport, adjacent);
-		}
-		for (PVector v : this.vertices) {
-			PVector i0 = PVector.add(v, this.parent.getPosition());
-			clip = clip(rayDir, bestSupport, new Pair<>(i0, i1));
-			if (clip != null) {
-				adjacent = clip;
-				isEdge = true;
-				rayDir = PVector.sub(bestSupport, adjacent);
-			}
+	// Get full collision manifold for contact between 2 polygon primitives, at
+	// (ax, ay) and (bx, by). The face of least penetration is the reference
+	// face, against which the incident face of the other polygon is clipped.
+	// Returns the separating or reference face, as a feature.
+	private int polygonToPolygonCollision(Primitive b, float ax, float ay, float bx, float by, int feature,
+			Manifold m) {
+		float dx = bx - ax, dy = by - ay;
+		float reach = this.boundingRadius + b.boundingRadius;
+		if (dx * dx + dy * dy > reach * reach) {
+			return feature;
 		}
-		if (isEdge) {
-			PVector avg = PVector.div(PVector.add(bestSupport, adjacent), 2);
-			m.addContactPoint(avg, bestNormal, minPenetration, this, b);
-		} else {
-			m.addContactPoint(bestSupport, bestNormal, minPenetration, this, b);
+
+		// Temporal coherence - the face that separated the pair last step most
+		// likely still does
+		if (feature != NO_FEATURE) {
+			int face = feature >> 1;
+			boolean onA = (feature & 1) == 0;
+			if (face < (onA ? this.vertexX.length : b.vertexX.length)
+					&& (onA ? this.faceSeparation(b, face, dx, dy) : b.faceSeparation(this, face, -dx, -dy)) > 0) {
+				return feature;
+			}
 		}
-		return m;
-	}
 
-	// Clips the incidence's 2nd point
-	private PVector clip(PVector dir, PVector p0, Pair<PVector> incident) {
-		PVector i0i1 = PVector.sub(incident.b, incident.a);
-		PVector normal = new PVector(-i0i1.y, i0i1.x).normalize();
-		if (Math.abs(PVector.dot(normal, dir)) < PARRALLEL_THRESHOLD) {
-			return null;
+		int faceA = this.findSeparatingFace(b, dx, dy);
+		float separationA = this.faceSeparation(b, faceA, dx, dy);
+		if (separationA > 0) {
+			return faceA << 1;
+		}
+		int faceB = b.findSeparatingFace(this, -dx, -dy);
+		float separationB = b.faceSeparation(this, faceB, -dx, -dy);
+		if (separationB > 0) {
+			return (faceB << 1) | 1;
 		}
 
-		double t = (PVector.dot(normal, p0) - PVector.dot(normal, incident.a)) / PVector.dot(normal, dir);
-		if (t < 1 && t >= 0) {
-			return PVector.add(p0, PVector.mult(dir, (float) t));
+		if (separationB > RELATIVE_TOLERANCE * separationA + ABSOLUTE_TOLERANCE) {
+			b.clipIncidentFace(this, faceB, bx, by, ax, ay, -1, m);
+			return (faceB << 1) | 1;
 		} else {
-			return null;
+			this.clipIncidentFace(b, faceA, ax, ay, bx, by, 1, m);
+			return faceA << 1;
 		}
 	}
 
-	// Get the support point of a circle primitive in a given direction.
-	private PVector circleSupportPoint(PVector direction) {
-		return PVector.add(this.parent.getPosition(), PVector.mult(direction, (float) this.radius));
-	}
-
-	// Get the support point of a polygon primitive in a given direction.
-	private int polygonSupportPoint(PVector direction) {
-		int max = 0;
-		double maxDot = PVector.dot(vertices.get(0), direction);
-		for (int i = 0; i < vertices.size(); i++) {
-			double dot = vertices.get(i).dot(direction);
-			if (dot > maxDot) {
-				max = i;
-				maxDot = dot;
+	// Find the face of this polygon b is the most separated from, b being at
+	// (dx, dy) from this polygon. Stops at the first separating face.
+	private int findSeparatingFace(Primitive b, float dx, float dy) {
+		int best = 0;
+		float bestSeparation = -Float.MAX_VALUE;
+		for (int i = 0; i < vertexX.length; i++) {
+			float separation = faceSeparation(b, i, dx, dy);
+			if (separation > bestSeparation) {
+				best = i;
+				bestSeparation = separation;
+				if (separation > 0) {
+					break;
+				}
 			}
 		}
-		return max;
+		return best;
 	}
 
-	// Generate a circle-to-polygon collision, where b is the polygon primitive.
-	private Manifold circleToPolygonCollision(Primitive b, PVector offset) {
-		Manifold m = new Manifold(this.parent, b.parent);
-
-		double minPenetration = -Double.MAX_VALUE;
-		PVector bestNormal = new PVector();
-		PVector bestSupport = new PVector();
+	// Signed distance from a face of this polygon to the support point of b
+	// against the face's normal, b being at (dx, dy) from this polygon.
+	private float faceSeparation(Primitive b, int face, float dx, float dy) {
+		float nx = normalX[face], ny = normalY[face];
+		float px = vertexX[face] - dx, py = vertexY[face] - dy;
+		float separation = Float.MAX_VALUE;
+		for (int j = 0; j < b.vertexX.length; j++) {
+			float d = (b.vertexX[j] - px) * nx + (b.vertexY[j] - py) * ny;
+			separation = d < separation ? d : separation;
+		}
+		return separation;
+	}
 
-		PVector v1min = new PVector(), v2min = new PVector();
+	// Clip the face of polygon b facing the reference face of this polygon to the
+	// sides of the reference face, and add the clipped points below it as
+	// contacts. The sign is 1 if this polygon is A in the manifold, -1 if B.
+	private void clipIncidentFace(Primitive b, int reference, float ax, float ay, float bx, float by, float sign,
+			Manifold m) {
+		float nx = normalX[reference], ny = normalY[reference];
+		int next = (reference + 1) % vertexX.length;
+		float v1x = ax + vertexX[reference], v1y = ay + vertexY[reference];
+		float v2x = ax + vertexX[next], v2y = ay + vertexY[next];
+
+		// Incident face - the face of b most opposed to the reference normal
+		int incident = 0;
+		float minDot = Float.MAX_VALUE;
+		for (int j = 0; j < b.vertexX.length; j++) {
+			float dot = b.normalX[j] * nx + b.normalY[j] * ny;
+			if (dot < minDot) {
+				incident = j;
+				minDot = dot;
+			}
+		}
+		int incidentNext = (incident + 1) % b.vertexX.length;
+		float p1x = bx + b.vertexX[incident], p1y = by + b.vertexY[incident];
+		float p2x = bx + b.vertexX[incidentNext], p2y = by + b.vertexY[incidentNext];
+
+		// Clip the incident face to the sides of the reference face, along its
+		// tangent
+		float tx = -ny, ty = nx;
+		float t1 = tx * v1x + ty * v1y, t2 = tx * v2x + ty * v2y;
+		float min = Math.min(t1, t2), max = Math.max(t1, t2);
+		float d1 = tx * p1x + ty * p1y, d2 = tx * p2x + ty * p2y;
+		if ((d1 < min && d2 < min) || (d1 > max && d2 > max)) {
+			return;
+		}
+		float e1x = p1x, e1y = p1y, e2x = p2x, e2y = p2y;
+		if (d1 < min) {
+			float t = (min - d1) / (d2 - d1);
+			e1x = p1x + t * (p2x - p1x);
+			e1y = p1y + t * (p2y - p1y);
+		} else if (d1 > max) {
+			float t = (d1 - max) / (d1 - d2);
+			e1x = p1x + t * (p2x - p1x);
+			e1y = p1y + t * (p2y - p1y);
+		}
+		if (d2 < min) {
+			float t = (min - d2) / (d1 - d2);
+			e2x = p2x + t * (p1x - p2x);
+			e2y = p2y + t * (p1y - p2y);
+		} else if (d2 > max) {
+			float t = (d2 - max) / (d2 - d1);
+			e2x = p2x + t * (p1x - p2x);
+			e2y = p2y + t * (p1y - p2y);
+		}
 
-		float reverseFactor = 1.0f;
-		PVector v2 = PVector.add(b.vertices.get(b.vertices.size() - 1), b.parent.getPosition());
-		boolean calibrating = true;
-		for (int i = 0; i < b.vertices.size(); i++) {
-			PVector v1 = PVector.add(b.vertices.get(i), b.parent.getPosition());
+		// Keep the clipped points that are below the reference face
+		float depth1 = (e1x - v1x) * nx + (e1y - v1y) * ny;
+		if (depth1 <= 0) {
+			m.addContact(e1x, e1y, sign * nx, sign * ny, depth1, surface, b.surface);
+		}
+		float depth2 = (e2x - v1x) * nx + (e2y - v1y) * ny;
+		if (depth2 <= 0) {
+			m.addContact(e2x, e2y, sign * nx, sign * ny, depth2, surface, b.surface);
+		}
+	}
 
-			PVector v1v2 = PVector.sub(v1, v2);
-			PVector normal = new PVector(-v1v2.y, v1v2.x).mult(reverseFactor).normalize();
-			PVector support = PVector.add(this.circleSupportPoint(PVector.mult(normal, -1)), offset);
-			double dist = PVector.dot(PVector.sub(support, v1), normal);
+	// Generate a circle-to-polygon collision, where this is the circle at (cx,
+	// cy), and b the polygon at (px, py). The sign is 1 if the circle is A in the
+	// manifold, -1 if B.
+	private void circleToPolygonCollision(Primitive b, float cx, float cy, float px, float py, float sign,
+			Manifold m) {
+		float r = (float) this.radius;
+		float dx = cx - px, dy = cy - py;
+		float reach = r + b.boundingRadius;
+		if (dx * dx + dy * dy > reach * reach) {
+			return;
+		}
 
-			if (calibrating && dist > 0) {
-				reverseFactor = -1.0f;
-				i--;
-				calibrating = false;
-				continue;
+		// Step 1 - Find the face of least penetration
+		int face = 0;
+		float maxSeparation = -Float.MAX_VALUE;
+		for (int i = 0; i < b.vertexX.length; i++) {
+			float separation = (dx - b.vertexX[i]) * b.normalX[i] + (dy - b.vertexY[i]) * b.normalY[i];
+			if (separation > r) {
+				return;
 			}
-			if (dist > minPenetration) {
-				if (dist > 0) {
-					return m;
-				}
-				v1min = v1;
-				v2min = v2;
-
-				minPenetration = dist;
-				bestNormal = normal;
-				bestSupport = support;
+			if (separation > maxSeparation) {
+				face = i;
+				maxSeparation = separation;
 			}
-			v2 = v1;
-			calibrating = false;
 		}
 
-		// Step 2 - Find the collision point with the edge
-		PVector tan1 = PVector.sub(v1min, v2min);
-		PVector tan2 = PVector.sub(v2min, v1min);
-
-		// If the center of the mass is in the voronoi region of the edge
-		PVector contactPoint = PVector.sub(this.parent.getPosition(), PVector.mult(bestNormal, (float) this.radius));
-		if (PVector.dot(PVector.sub(this.parent.getPosition(), v1min), tan1) > 0
-				&& PVector.dot(PVector.sub(this.parent.getPosition(), v2min), tan2) > 0) {
-		} else {
-			double distV0 = PVector.sub(this.parent.getPosition(), v1min).mag();
-			double distV1 = PVector.sub(this.parent.getPosition(), v2min).mag();
-			bestNormal = PVector.sub(this.parent.getPosition(), distV0 < distV1 ? v1min : v2min).normalize();
-			contactPoint = PVector.sub(this.parent.getPosition(), PVector.mult(bestNormal, (float) this.radius));
-			minPenetration = PVector.dot(PVector.sub(distV0 < distV1 ? v2min : v1min, contactPoint), bestNormal);
+		// Step 2 - Find the collision point with the face, or one of its vertices
+		// if the centre is outside of the face's voronoi region
+		int next = (face + 1) % b.vertexX.length;
+		float v1x = b.vertexX[face], v1y = b.vertexY[face];
+		float v2x = b.vertexX[next], v2y = b.vertexY[next];
+		float nx = b.normalX[face], ny = b.normalY[face];
+		float penetration = maxSeparation - r;
+		if (maxSeparation > 0) {
+			float vx = 0, vy = 0;
+			boolean corner = false;
+			if ((dx - v1x) * (v2x - v1x) + (dy - v1y) * (v2y - v1y) <= 0) {
+				vx = v1x;
+				vy = v1y;
+				corner = true;
+			} else if ((dx - v2x) * (v1x - v2x) + (dy - v2y) * (v1y - v2y) <= 0) {
+				vx = v2x;
+				vy = v2y;
+				corner = true;
+			}
+			if (corner) {
+				float distance = (float) Math.sqrt((dx - vx) * (dx - vx) + (dy - vy) * (dy - vy));
+				if (distance > r || distance == 0) {
+					return;
+				}
+				nx = (dx - vx) / distance;
+				ny = (dy - vy) / distance;
+				penetration = distance - r;
+			}
 		}
-		m.addContactPoint(contactPoint, bestNormal, minPenetration, this, b);
 
-		return m;
+		// The normal points out of the polygon, towards the circle
+		m.addContact(cx - nx * r, cy - ny * r, -sign * nx, -sign * ny, penetration, surface, b.surface);
 	}
 
-	// Generate a circle-to-circle collision between 2 primitives, and return a
-	// manifold.
-	private Manifold circleToCircleCollision(Primitive b, PVector offset) {
-		PVector dir = PVector.sub(PVector.add(b.parent.getPosition(), offset), this.parent.getPosition());
-		Manifold m = new Manifold(this.parent, b.parent);
-		if (dir.mag() < this.radius + b.radius) {
-			double penetration = this.radius + b.radius - dir.mag();
-			PVector normal = dir.normalize();
-			PVector contactPoint = PVector.add(this.parent.getPosition(), PVector.mult(normal, (float) this.radius));
-			m.addContactPoint(contactPoint, normal, penetration, this, b);
+	// Generate a circle-to-circle collision between 2 primitives, at (ax, ay) and
+	// (bx, by).
+	private void circleToCircleCollision(Primitive b, float ax, float ay, float bx, float by, Manifold m) {
+		float dx = bx - ax, dy = by - ay;
+		float reach = (float) (this.radius + b.radius);
+		float distanceSq = dx * dx + dy * dy;
+		if (distanceSq >= reach * reach) {
+			return;
 		}
-		return m;
+		float distance = (float) Math.sqrt(distanceSq);
+		float nx = distance > 0 ? dx / distance : 0, ny = distance > 0 ? dy / distance : 1;
+		float r = (float) this.radius;
+		m.addContact(ax + nx * r, ay + ny * r, nx, ny, distance - reach, surface, b.surface);
 	}
 
 	//////////////////
@@ -378,17 +512,43 @@ public class Primitive implements PhysicsMesh {
 		this.surface = surface;
 		this.baseVerts = vertices;
 
-		// Assemble AABB bounds
+		// Assemble AABB bounds and bounding radius
 		PVector min = new PVector(), max = new PVector();
 		for (PVector v : baseVerts) {
 			min.x = v.x < min.x ? v.x : min.x;
 			min.y = v.y < min.y ? v.y : min.y;
 			max.x = v.x > max.x ? v.x : max.x;
 			max.y = v.y > min.y ? v.y : max.y;
+			boundingRadius = Math.max(boundingRadius, v.mag());
 		}
 		baseAABB = PVector.sub(max, min);
 		AABBBounds = baseAABB.copy();
 
+		// Outward face normals, whichever way the polygon winds
+		int n = baseVerts.size();
+		float area = 0;
+		for (int i = 0; i < n; i++) {
+			PVector v1 = baseVerts.get(i), v2 = baseVerts.get((i + 1) % n);
+			area += v1.x * v2.y - v2.x * v1.y;
+		}
+		float winding = area > 0 ? 1 : -1;
+		baseNormalX = new float[n];
+		baseNormalY = new float[n];
+		for (int i = 0; i < n; i++) {
+			PVector v1 = baseVerts.get(i), v2 = baseVerts.get((i + 1) % n);
+			float ex = v2.x - v1.x, ey = v2.y - v1.y;
+			float length = (float) Math.sqrt(ex * ex + ey * ey);
+			if (length > 0) {
+				baseNormalX[i] = winding * ey / length;
+				baseNormalY[i] = -winding * ex / length;
+			}
+		}
+
+		vertexX = new float[n];
+		vertexY = new float[n];
+		normalX = new float[n];
+		normalY = new float[n];
+		rotate(0);
 	}
 
 	public Primitive(Surface surface, List<PVector> vertices, PVector AABBbounds) {
@@ -407,6 +567,7 @@ public class Primitive implements PhysicsMesh {
 		primitiveType = PrimitiveType.CIRCLE;
 		this.radius = radius;
 		this.surface = surface;
+		this.boundingRadius = (float) radius;
 		this.baseAABB = new PVector(2 * (float) radius, 2 * (float) radius);
 		this.AABBBounds = baseAABB;
 	}
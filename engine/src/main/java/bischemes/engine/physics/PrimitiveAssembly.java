@@ -74,7 +74,10 @@ public class PrimitiveAssembly implements PhysicsMesh {
 	public Manifold getCollision(PrimitiveAssembly b, PVector offset) {
 		Manifold m = new Manifold(this.parent, b.getParent());
 		for (PrimitiveInSet p : assembly) {
-			m.combine(p.primitive.getCollision(b, p.offset));
+			for (PrimitiveInSet q : b.getAssembly()) {
+				p.primitive.collide(q.primitive, q.offset.x - p.offset.x + offset.x,
+						q.offset.y - p.offset.y + offset.y, Primitive.NO_FEATURE, m);
+			}
 		}
 		return m;
 	}
@@ -82,7 +85,7 @@ public class PrimitiveAssembly implements PhysicsMesh {
 	public Manifold getCollision(Primitive b, PVector offset) {
 		Manifold m = new Manifold(this.parent, b.getParent());
 		for (PrimitiveInSet p : assembly) {
-			m.combine(p.primitive.getCollision(b, PVector.mult(p.offset, -1)));
+			p.primitive.collide(b, offset.x - p.offset.x, offset.y - p.offset.y, Primitive.NO_FEATURE, m);
 		}
 		return m;
 	}
@@ -91,7 +94,7 @@ public class PrimitiveAssembly implements PhysicsMesh {
 		if (this.parent == null) {
 			this.parent = parent;
 		}
-		for (PrimitiveInSet p : assembly) {
+		for (PrimitiveInSet p : baseAssembly) {
 			p.primitive.enable(parent);
 		}
 	}
@@ -1,15 +1,22 @@
 package bischemes.engine.physics;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import bischemes.engine.GObject;
 import processing.core.PMatrix;
 import processing.core.PMatrix2D;
 import processing.core.PVector;
 
+/**
+ * A rigid body, attached to a game object. Its velocity, angular rate, inverse
+ * masses and forces are kept in the slot of a {@link BodyStore}, that of the
+ * scene it is in. A body in no scene keeps its state itself, until it is added
+ * to one.
+ */
 public class RigidBody {
-	private PVector MOVE_THRESHOLD = new PVector(0.0001f, 0.0001f);
+	// Resting thresholds - a body slower than these for SLEEP_STEPS steps may sleep
+	public static final double SLEEP_VELOCITY = 0.05;
+	public static final double SLEEP_ROTATION = 0.05;
+	public static final int SLEEP_STEPS = 30;
+	private static final float WAKE_FORCE_THRESHOLD = 0.001f;
 
 	// Parent values - position, orientation
 	private GObject parent;
@@ -19,14 +26,26 @@ public class RigidBody {
 
 	// Derived Values
 	private PMatrix transformMatrix;
-	private double inverseMass;
-	private double inverseInertia;
 
-	// Force Bookkeeping
-	private List<PVector> forces = new ArrayList<>();
-	private PVector forceAccumulation = new PVector();
+	// Slot of the body's state, or null while the body is in no store
+	BodyStore store;
+	int index;
+	// State of the body while it is in no store - see BodyStore for its meaning
+	float velocityX, velocityY, forceX, forceY;
+	double rotation;
+	boolean sleeping, inFields, continuous;
+	// Set when the body moved since the broadphase last saw it
 	public boolean hasMoved = true;
-	// private double torqueAccumulation;
+
+	// Sleep Bookkeeping
+	private boolean sleepAllowed = true;
+	private int restingSteps = 0;
+	private PVector restingForce = new PVector();
+	// Island bookkeeping, see Islands
+	RigidBody island;
+	int islandRestingSteps;
+	// Earliest time of impact of a continuous body during a (sub)step, 1 if none
+	float impactTime = 1;
 
 	/////////////////////////
 	// Getters and Setters //
@@ -50,7 +69,7 @@ public class RigidBody {
 	 * @return The rigid body's inverse mass.
 	 */
 	public double getInverseMass() {
-		return properties.isMovable ? inverseMass : 0;
+		return store != null ? store.inverseMass[index] : inverseMass();
 	}
 
 	/**
@@ -60,13 +79,66 @@ public class RigidBody {
 	 * @return the rigid body's inverse inertia.
 	 */
 	public double getInverseInertia() {
-		return properties.isRotatable ? inverseInertia : 0;
+		return store != null ? store.inverseInertia[index] : inverseInertia();
+	}
+
+	/**
+	 * @return A copy of the linear velocity of the rigid body.
+	 */
+	public PVector getVelocity() {
+		return new PVector(velocityX(), velocityY());
+	}
+
+	public void setVelocity(PVector velocity) {
+		if (store != null) {
+			store.velocityX[index] = velocity.x;
+			store.velocityY[index] = velocity.y;
+		} else {
+			velocityX = velocity.x;
+			velocityY = velocity.y;
+		}
+	}
+
+	/**
+	 * @return The angular rate of the rigid body, in radians per second.
+	 */
+	public double getRotation() {
+		return store != null ? store.rotation[index] : rotation;
+	}
+
+	public void setRotation(double rotation) {
+		if (store != null) {
+			store.rotation[index] = rotation;
+		} else {
+			this.rotation = rotation;
+		}
+	}
+
+	/**
+	 * Let the rigid body move or not, e.g. to lock a block in place.
+	 *
+	 * @param movable Whether the body may move.
+	 */
+	public void setMovable(boolean movable) {
+		properties.isMovable = movable;
+		deriveMass();
+	}
+
+	/**
+	 * Let the rigid body rotate or not.
+	 *
+	 * @param rotatable Whether the body may rotate.
+	 */
+	public void setRotatable(boolean rotatable) {
+		properties.isRotatable = rotatable;
+		deriveMass();
 	}
 
 	/**
 	 * Get the global position of the rigid body, relative to world coordinates
 	 *
-	 * @return The global position of the rigid body.
+	 * @return The global position of the rigid body, read-only as it is the
+	 *         cached world position of its object, see {@link GObject#getPosition()}.
 	 */
 	public PVector getPosition() {
 		return parent.getPosition();
@@ -110,6 +182,48 @@ public class RigidBody {
 		return transformMatrix;
 	}
 
+	/**
+	 * @return Whether the body is asleep, i.e. neither integrated nor tested
+	 *         against static bodies until something wakes it.
+	 */
+	public boolean isSleeping() {
+		return store != null ? store.sleeping[index] : sleeping;
+	}
+
+	/**
+	 * @return Whether the body takes part in the simulation: it can move or rotate,
+	 *         and is not asleep.
+	 */
+	public boolean isAwake() {
+		return (properties.isMovable || properties.isRotatable) && !isSleeping();
+	}
+
+	/**
+	 * Allow or forbid the body to fall asleep, e.g. for bodies moved by input or
+	 * relying on their hit callbacks every step. Forbidding sleep wakes the body.
+	 *
+	 * @param sleepAllowed Whether the body may sleep.
+	 */
+	public void setSleepAllowed(boolean sleepAllowed) {
+		this.sleepAllowed = sleepAllowed;
+		if (!sleepAllowed) {
+			wake();
+			restingSteps = 0;
+		}
+	}
+
+	public boolean isSleepAllowed() {
+		return sleepAllowed;
+	}
+
+	/**
+	 * @return The number of steps the body has been resting for, or 0 if it may
+	 *         not sleep.
+	 */
+	public int getRestingSteps() {
+		return sleepAllowed ? restingSteps : 0;
+	}
+
 	////////////////////
 	// public Methods //
 	////////////////////
@@ -126,81 +240,251 @@ public class RigidBody {
 	 * lists, and deriving derived values.
 	 */
 	public void initUpdate() {
-		forces = new ArrayList<>();
-		forceAccumulation = new PVector();
-		// torqueAccumulation = 0;
+		clearForces();
 		derive();
 	}
 
 	/**
-	 * Integrate all forces into the velocity and position of the rigid body,
-	 * following d'Alembert's principle.
-	 *
-	 * @param duration The duration of the frame.
+	 * Clear the forces added to the rigid body for the current step.
 	 */
-	public void integrate(double duration) {
-		if (!properties.isMovable) {
-			return;
+	public void clearForces() {
+		if (store != null) {
+			store.forceX[index] = 0;
+			store.forceY[index] = 0;
+		} else {
+			forceX = 0;
+			forceY = 0;
 		}
-		hasMoved = false;
+	}
 
-		// Apply forces to accumulator
-		for (PVector f : forces) {
-			forceAccumulation.add(f);
+	/**
+	 * Derive derived values (mass, transform matrix, mesh) from real values.
+	 */
+	public void derive() {
+		deriveMass();
+
+		// Derive transform matrix from position and orientation
+		PVector pos = parent.getPosition();
+		if (transformMatrix == null) {
+			transformMatrix = new PMatrix2D();
+		} else {
+			transformMatrix.reset();
 		}
+		transformMatrix.translate(pos.x, pos.y);
+		transformMatrix.rotate((float) parent.getOrientation());
 
-		// Apply accumulator to velocity, velocity to position, and rotation to
-		// orientation
-		properties.velocity = PVector.add(properties.velocity,
-				PVector.mult(forceAccumulation, (float) (duration * inverseMass)));
-		PVector pos = parent.getPosition().copy();
-		parent.setLocalPosition(
-				PVector.add(parent.getLocalPosition(), PVector.mult(properties.velocity, (float) duration)));
-		parent.setLocalOrientation(parent.getLocalOrientation() + properties.rotation * duration);
-		pos.sub(parent.getPosition());
-		if (Math.abs(properties.velocity.x) > MOVE_THRESHOLD.x || Math.abs(properties.velocity.y) > MOVE_THRESHOLD.y) {
-			hasMoved = true;
+		// Derive mesh if it exists
+		if (properties.mesh != null) {
+			properties.mesh.derive();
 		}
 	}
 
 	/**
-	 * Add a force to the forces list of the object for the frame.
+	 * Add a force to the forces of the object for the step.
 	 *
-	 * @param force The force to add to the list.
+	 * @param force The force to add.
 	 */
 	public void addForce(PVector force) {
-		forces.add(force);
+		addForce(force.x, force.y);
+	}
+
+	public void addForce(float forceX, float forceY) {
+		if (store != null) {
+			store.forceX[index] += forceX;
+			store.forceY[index] += forceY;
+		} else {
+			this.forceX += forceX;
+			this.forceY += forceY;
+		}
+	}
+
+	/**
+	 * Let the force fields of the body's scene apply to it or not, e.g. for a
+	 * body applying its own gravity.
+	 *
+	 * @param inFields Whether the force fields apply to the body.
+	 */
+	public void setInFields(boolean inFields) {
+		if (store != null) {
+			store.inFields[index] = inFields;
+		} else {
+			this.inFields = inFields;
+		}
+	}
+
+	/**
+	 * Sweep the body along its moves or not, so that it stops at what it would
+	 * otherwise go through in a single step, e.g. for fast or small bodies.
+	 *
+	 * @param continuous Whether to detect the collisions of the body continuously.
+	 */
+	public void setContinuous(boolean continuous) {
+		if (store != null) {
+			store.continuous[index] = continuous;
+		} else {
+			this.continuous = continuous;
+		}
+	}
+
+	public boolean isContinuous() {
+		return store != null ? store.continuous[index] : continuous;
 	}
 
 	public void applyImpulse(PVector impulse, PVector applicationPoint) {
-		if (properties.isMovable) {
-			properties.velocity = PVector.add(properties.velocity, PVector.mult(impulse, (float) getInverseMass()));
+		applyImpulse(impulse.x, impulse.y, applicationPoint.x, applicationPoint.y);
+	}
+
+	/**
+	 * Put the body to sleep: it stops moving, and stays where it is until it is
+	 * hit by an awake body, given an impulse, moved, or the forces on it change.
+	 */
+	public void sleep() {
+		if (!sleepAllowed || isSleeping()) {
+			return;
+		}
+		if (store != null) {
+			store.sleeping[index] = true;
+			restingForce.set(store.forceX[index], store.forceY[index]);
+			store.velocityX[index] = 0;
+			store.velocityY[index] = 0;
+			store.rotation[index] = 0;
+		} else {
+			sleeping = true;
+			restingForce.set(forceX, forceY);
+			velocityX = 0;
+			velocityY = 0;
+			rotation = 0;
+		}
+	}
+
+	/**
+	 * Wake the body up, so that it is simulated again from the next (sub)step.
+	 */
+	public void wake() {
+		if (isSleeping()) {
+			if (store != null) {
+				store.sleeping[index] = false;
+			} else {
+				sleeping = false;
+			}
+			restingSteps = 0;
+			hasMoved = true;
+		}
+	}
+
+	/**
+	 * Count the steps the body has been resting for, from its velocity and
+	 * rotation at the end of a step. Sleeping bodies keep their count.
+	 */
+	public void updateResting() {
+		if (isSleeping()) {
+			return;
+		}
+		float vx = velocityX(), vy = velocityY();
+		if (vx * vx + vy * vy < SLEEP_VELOCITY * SLEEP_VELOCITY && Math.abs(getRotation()) < SLEEP_ROTATION) {
+			restingSteps = Math.min(restingSteps + 1, SLEEP_STEPS);
+		} else {
+			restingSteps = 0;
+		}
+	}
+
+	/**
+	 * Apply an impulse given by its components, without allocating, for the
+	 * contact solver.
+	 */
+	void applyImpulse(double impulseX, double impulseY, double pointX, double pointY) {
+		wake();
+		if (store != null) {
+			double inverseMass = store.inverseMass[index];
+			store.velocityX[index] += impulseX * inverseMass;
+			store.velocityY[index] += impulseY * inverseMass;
+			store.rotation[index] += store.inverseInertia[index] * (pointX * impulseY - pointY * impulseX);
+		} else {
+			double inverseMass = inverseMass();
+			velocityX += impulseX * inverseMass;
+			velocityY += impulseY * inverseMass;
+			rotation += inverseInertia() * (pointX * impulseY - pointY * impulseX);
+		}
+	}
+
+	float velocityX() {
+		return store != null ? store.velocityX[index] : velocityX;
+	}
+
+	float velocityY() {
+		return store != null ? store.velocityY[index] : velocityY;
+	}
+
+	/**
+	 * @return The displacement of the body over the last (sub)step, none if it is
+	 *         in no store.
+	 */
+	float motionX() {
+		return store != null ? store.motionX[index] : 0;
+	}
+
+	float motionY() {
+		return store != null ? store.motionY[index] : 0;
+	}
+
+	// Inverse masses derived from the properties, for bodies in no store
+	double inverseMass() {
+		return (properties.isMovable && properties.mass != 0) ? (1 / properties.mass) : 0;
+	}
+
+	double inverseInertia() {
+		return (properties.isRotatable && properties.inertia != 0) ? (1 / properties.inertia) : 0;
+	}
+
+	/**
+	 * @return Whether the forces on the body are those it fell asleep under.
+	 */
+	boolean isRestingForce(float forceX, float forceY) {
+		return Math.abs(forceX - restingForce.x) <= WAKE_FORCE_THRESHOLD
+				&& Math.abs(forceY - restingForce.y) <= WAKE_FORCE_THRESHOLD;
+	}
+
+	/**
+	 * Move the body's game object by an integration step.
+	 */
+	void moveBy(float dx, float dy, double dOrientation, boolean moved) {
+		PVector local = parent.getLocalPosition();
+		parent.setLocalPosition(local.x + dx, local.y + dy);
+		parent.setLocalOrientation(parent.getLocalOrientation() + dOrientation);
+		if (moved) {
+			hasMoved = true;
 		}
-		if (properties.isRotatable) {
-			properties.rotation += inverseInertia * applicationPoint.cross(impulse).z;
+	}
+
+	/**
+	 * Move the body back along its last integration step, e.g. to where it first
+	 * touched another body.
+	 *
+	 * @param t The fraction of the step to keep, between 0 and 1.
+	 */
+	void rewind(float t) {
+		if (store == null) {
+			return;
 		}
+		float dx = store.motionX[index], dy = store.motionY[index];
+		moveBy((t - 1) * dx, (t - 1) * dy, 0, true);
+		store.motionX[index] = t * dx;
+		store.motionY[index] = t * dy;
 	}
 
 	/////////////////////
 	// Private methods //
 	/////////////////////
 
-	// Derivate derived values (mass, transform matrix) from
-	// real values.
-	private void derive() {
-		inverseMass = (properties.isMovable && properties.mass != 0) ? (1 / properties.mass) : 0;
-		inverseInertia = (properties.isRotatable && properties.inertia != 0) ? (1 / properties.inertia) : 0;
-
-		// Derive transform matrix from position and orientation
-		PVector pos = parent.getPosition();
-		transformMatrix = new PMatrix2D(1, 0, 0, 0, 1, 0);
-		transformMatrix.translate(pos.x, pos.y);
-		transformMatrix.rotate((float) parent.getOrientation());
-
-		// Derive mesh if it exists
-		if (properties.mesh != null) {
-			properties.mesh.derive();
+	// Masses are only stored in a slot - bodies in no store derive them as needed
+	private void deriveMass() {
+		if (store == null) {
+			return;
 		}
+		store.mass[index] = properties.mass;
+		store.inverseMass[index] = inverseMass();
+		store.inverseInertia[index] = inverseInertia();
+		store.movable[index] = properties.isMovable;
 	}
 
 	//////////////////
@@ -214,6 +498,10 @@ public class RigidBody {
 	 */
 	public RigidBody(RigidBodyProperties properties) {
 		this.properties = properties;
+		setVelocity(properties.velocity);
+		setRotation(properties.rotation);
+		setInFields(true);
+		deriveMass();
 
 		if (properties.mesh != null) {
 			properties.mesh.enable(this);
@@ -11,9 +11,12 @@ public class RigidBodyProperties {
 	public double mass = 0;
 	public double inertia = 0;
 	public double damping = 0;
+	// Initial velocity and angular rate, see RigidBody#getVelocity()
 	public PVector velocity = new PVector();
 	public double rotation = 0;
 
+	// Changed through RigidBody#setMovable(boolean) and
+	// RigidBody#setRotatable(boolean) once the body is made
 	public boolean isMovable = false;
 	public boolean isRotatable = false;
 
@@ -0,0 +1,160 @@
+package bischemes.engine.physics;
+
+import java.util.Arrays;
+
+/**
+ * Incremental sort-and-sweep broadphase.
+ *
+ * The AABB endpoints of every primitive are kept sorted along both axes.
+ * Bodies move little from one frame to the next, so an update only
+ * insertion-sorts the endpoints of the moved primitive back into place, and
+ * every time two endpoints swap, the pair they belong to may start or stop
+ * overlapping. Memory is proportional to the number of primitives rather than
+ * to the area of the room.
+ */
+public class SweepAndPrune extends IndexedBroadphase {
+	private static final int X = 0;
+	private static final int Y = 1;
+
+	// World AABB of each primitive - minX, minY, maxX, maxY
+	private float[] bounds = new float[4 * INITIAL_STORE_CAPACITY];
+
+	// Sorted endpoints per axis, encoded as (index << 1 | isMax)
+	private int[][] endpoints = { new int[2 * INITIAL_STORE_CAPACITY], new int[2 * INITIAL_STORE_CAPACITY] };
+	private int endpointCount = 0;
+
+	// Position of each endpoint in its axis - minX, maxX, minY, maxY
+	private int[] positions = new int[4 * INITIAL_STORE_CAPACITY];
+
+	///////////////
+	// Overrides //
+	///////////////
+
+	@Override
+	protected void insert(int index, float minX, float minY, float maxX, float maxY) {
+		// Append both endpoints past every other one, then sort them into place
+		int b = 4 * index;
+		bounds[b] = bounds[b + 1] = bounds[b + 2] = bounds[b + 3] = Float.POSITIVE_INFINITY;
+		for (int axis = X; axis <= Y; axis++) {
+			endpoints[axis][endpointCount] = index << 1;
+			endpoints[axis][endpointCount + 1] = index << 1 | 1;
+			positions[4 * index + 2 * axis] = endpointCount;
+			positions[4 * index + 2 * axis + 1] = endpointCount + 1;
+		}
+		endpointCount += 2;
+		update(index, minX, minY, maxX, maxY);
+	}
+
+	@Override
+	protected void update(int index, float minX, float minY, float maxX, float maxY) {
+		int b = 4 * index;
+		float oldMinX = bounds[b], oldMinY = bounds[b + 1], oldMaxX = bounds[b + 2], oldMaxY = bounds[b + 3];
+		if (oldMinX == minX && oldMinY == minY && oldMaxX == maxX && oldMaxY == maxY) {
+			return;
+		}
+		bounds[b] = minX;
+		bounds[b + 1] = minY;
+		bounds[b + 2] = maxX;
+		bounds[b + 3] = maxY;
+
+		// An endpoint cannot pass the other end of its own box, so the leading one is
+		// sorted first
+		sortEndpoints(index, X, minX > oldMinX);
+		sortEndpoints(index, Y, minY > oldMinY);
+	}
+
+	@Override
+	protected void erase(int index) {
+		// Push the endpoints past every other one, ending all overlaps on the way
+		update(index, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+				Float.POSITIVE_INFINITY);
+
+		// Its endpoints are now the last ones on both axes
+		endpointCount -= 2;
+	}
+
+	@Override
+	protected void grow(int capacity) {
+		bounds = Arrays.copyOf(bounds, 4 * capacity);
+		positions = Arrays.copyOf(positions, 4 * capacity);
+		endpoints[X] = Arrays.copyOf(endpoints[X], 2 * capacity);
+		endpoints[Y] = Arrays.copyOf(endpoints[Y], 2 * capacity);
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	private void sortEndpoints(int index, int axis, boolean maxFirst) {
+		if (maxFirst) {
+			sort(index << 1 | 1, axis);
+			sort(index << 1, axis);
+		} else {
+			sort(index << 1, axis);
+			sort(index << 1 | 1, axis);
+		}
+	}
+
+	// Insertion-sort a single endpoint back into place, updating overlapping
+	// pairs on every swap.
+	private void sort(int endpoint, int axis) {
+		int[] axisEndpoints = endpoints[axis];
+		int pos = positions[4 * (endpoint >> 1) + 2 * axis + (endpoint & 1)];
+
+		// Move left
+		while (pos > 0 && isBefore(endpoint, axisEndpoints[pos - 1], axis)) {
+			swap(pos, pos - 1, axis);
+			pos--;
+		}
+
+		// Move right
+		while (pos < endpointCount - 1 && isBefore(axisEndpoints[pos + 1], endpoint, axis)) {
+			swap(pos, pos + 1, axis);
+			pos++;
+		}
+	}
+
+	// Swap two neighbouring endpoints, where the one at 'from' passes the other.
+	private void swap(int from, int to, int axis) {
+		workCount++;
+		int[] axisEndpoints = endpoints[axis];
+		int moving = axisEndpoints[from], passed = axisEndpoints[to];
+		int a = moving >> 1, b = passed >> 1;
+		boolean movingMax = (moving & 1) == 1, passedMax = (passed & 1) == 1;
+
+		if (a != b && movingMax != passedMax) {
+			// A minimum passing a maximum to its left, or a maximum passing a minimum to
+			// its right, starts an overlap on this axis; the opposite ends it
+			boolean starts = (to < from) != movingMax;
+			if (starts) {
+				if (!isSameBody(a, b) && isOverlapping(a, b) && !pairs.contains(a, b)) {
+					pairs.increment(a, b);
+				}
+			} else if (pairs.contains(a, b)) {
+				pairs.decrement(a, b);
+			}
+		}
+
+		axisEndpoints[from] = passed;
+		axisEndpoints[to] = moving;
+		positions[4 * a + 2 * axis + (moving & 1)] = to;
+		positions[4 * b + 2 * axis + (passed & 1)] = from;
+	}
+
+	// Endpoint ordering - by value, then minimums before maximums so that
+	// touching boxes overlap.
+	private boolean isBefore(int e1, int e2, int axis) {
+		float v1 = valueOf(e1, axis), v2 = valueOf(e2, axis);
+		return v1 < v2 || (v1 == v2 && (e1 & 1) == 0 && (e2 & 1) == 1);
+	}
+
+	private float valueOf(int endpoint, int axis) {
+		return bounds[4 * (endpoint >> 1) + 2 * (endpoint & 1) + axis];
+	}
+
+	private boolean isOverlapping(int a, int b) {
+		int ba = 4 * a, bb = 4 * b;
+		return bounds[ba] <= bounds[bb + 2] && bounds[bb] <= bounds[ba + 2] && bounds[ba + 1] <= bounds[bb + 3]
+				&& bounds[bb + 1] <= bounds[ba + 3];
+	}
+}
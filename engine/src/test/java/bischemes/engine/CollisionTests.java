@@ -1,5 +1,6 @@
 package bischemes.engine;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -10,6 +11,7 @@ import java.util.Map;
 import org.junit.jupiter.api.Test;
 
 import bischemes.engine.physics.*;
+import bischemes.engine.physics.ForceGenerators.DirectionalGravity;
 import processing.core.PVector;
 
 class CollisionTests {
@@ -105,7 +107,6 @@ class CollisionTests {
 		assertTrue(m.isCollision());
 
 		// Case 4 - no collision, with orientation, edge on B
-		System.out.println("\nCase4:");
 		bA.setLocalPosition(new PVector(0.7f, 0));
 		bA.setLocalOrientation(Math.PI / 4);
 		bB.setLocalOrientation(0);
@@ -115,6 +116,26 @@ class CollisionTests {
 		assertFalse(m.isCollision());
 	}
 
+	@Test
+	public void testPolygonContactsClipped() {
+		GObject bA = new GObject(null, new PVector(0, 0), 0);
+		GObject bB = new GObject(null, new PVector(0.2f, 0.9f), 0);
+		bA.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		bB.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+
+		// A box resting on another touches it along a face, at both clipped ends
+		Manifold m = bA.getRigidBody().getProperties().mesh.getCollision(bB.getRigidBody().getProperties().mesh);
+		assertEquals(2, m.getContactCount());
+		assertEquals(0, m.getNormal().x, 0.0001);
+		assertEquals(1, m.getNormal().y, 0.0001);
+		assertEquals(-0.1, m.getMaxPenetration(), 0.0001);
+
+		// The normal always points from A to B
+		m = bB.getRigidBody().getProperties().mesh.getCollision(bA.getRigidBody().getProperties().mesh);
+		assertEquals(2, m.getContactCount());
+		assertEquals(-1, m.getNormal().y, 0.0001);
+	}
+
 	@Test
 	public void testGridSector() {
 		GridSector g = new GridSector(new PVector(16, 9), new PVector(-8, -4.5f), 16, 9);
@@ -128,9 +149,283 @@ class CollisionTests {
 		g.move(bB.getRigidBody());
 		assertTrue(g.getCollisions().isEmpty());
 
-		// Case 2 - overlap
+		// Case 2 - overlap, the move being counted as work
+		long work = g.getWorkCount();
 		bA.setLocalPosition(new PVector(1.01f, 0));
 		g.move(bA.getRigidBody());
+		assertTrue(g.getWorkCount() > work);
+		assertFalse(g.getCollisions().isEmpty());
+
+		// Case 3 - moving within the same cells keeps the overlap
+		bA.setLocalPosition(new PVector(1.02f, 0));
+		g.move(bA.getRigidBody());
 		assertFalse(g.getCollisions().isEmpty());
+		assertEquals(1, g.getPairCount());
+
+		// Case 4 - leaving the shared cells removes the overlap
+		bA.setLocalPosition(new PVector(-5, 3));
+		g.move(bA.getRigidBody());
+		assertTrue(g.getCollisions().isEmpty());
+		assertEquals(0, g.getPairCount());
+
+		// Case 5 - removed bodies are no longer reported
+		bA.setLocalPosition(new PVector(1.01f, 0));
+		g.move(bA.getRigidBody());
+		g.remove(bB.getRigidBody());
+		assertTrue(g.getCollisions().isEmpty());
+		assertEquals(0, g.getPairCount());
+	}
+
+	@Test
+	public void testSweepAndPrune() {
+		SweepAndPrune s = new SweepAndPrune();
+		GObject bA = new GObject(null, new PVector(-2, 0), 0);
+		GObject bB = new GObject(null, new PVector(2, 0), 0);
+		bA.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		bB.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("move", true, "mesh", cube.copy()))));
+
+		// Case 1 - no overlap
+		s.move(bA.getRigidBody());
+		s.move(bB.getRigidBody());
+		assertTrue(s.getCollisions().isEmpty());
+		assertEquals(0, s.getPairCount());
+
+		// Case 2 - overlap, the move being counted as work
+		long work = s.getWorkCount();
+		bA.setLocalPosition(new PVector(1.01f, 0));
+		s.move(bA.getRigidBody());
+		assertTrue(s.getWorkCount() > work);
+		assertFalse(s.getCollisions().isEmpty());
+		assertEquals(1, s.getPairCount());
+
+		// Case 3 - passing over the other body ends the overlap
+		bA.setLocalPosition(new PVector(5, 0));
+		s.move(bA.getRigidBody());
+		assertTrue(s.getCollisions().isEmpty());
+		assertEquals(0, s.getPairCount());
+
+		// Case 4 - removed bodies are no longer reported
+		bA.setLocalPosition(new PVector(1.01f, 0));
+		s.move(bA.getRigidBody());
+		s.remove(bB.getRigidBody());
+		assertTrue(s.getCollisions().isEmpty());
+		assertEquals(0, s.getPairCount());
+	}
+
+	@Test
+	public void testAABBTreeBroadphase() {
+		AABBTreeBroadphase t = new AABBTreeBroadphase();
+		GObject bA = new GObject(null, new PVector(-2, 0), 0);
+		GObject bB = new GObject(null, new PVector(2, 0), 0);
+		bA.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		bB.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("move", true, "mesh", cube.copy()))));
+
+		// Case 1 - no overlap
+		t.move(bA.getRigidBody());
+		t.move(bB.getRigidBody());
+		assertTrue(t.getCollisions().isEmpty());
+		assertEquals(0, t.getPairCount());
+
+		// Case 2 - overlap, the move being counted as work
+		long work = t.getWorkCount();
+		bB.setLocalPosition(new PVector(-1.01f, 0));
+		t.move(bB.getRigidBody());
+		assertTrue(t.getWorkCount() > work);
+		assertFalse(t.getCollisions().isEmpty());
+		assertEquals(1, t.getPairCount());
+
+		// Case 3 - moving away drops the pair
+		bB.setLocalPosition(new PVector(5, 0));
+		t.move(bB.getRigidBody());
+		assertTrue(t.getCollisions().isEmpty());
+		assertEquals(0, t.getPairCount());
+
+		// Case 4 - removed bodies are no longer reported
+		bB.setLocalPosition(new PVector(-1.01f, 0));
+		t.move(bB.getRigidBody());
+		t.remove(bA.getRigidBody());
+		assertTrue(t.getCollisions().isEmpty());
+		assertEquals(0, t.getPairCount());
+
+		// Case 5 - a body added back pairs again, then separates cleanly
+		t.move(bA.getRigidBody());
+		assertEquals(1, t.getCollisions().size());
+		bB.setLocalPosition(new PVector(5, 0));
+		t.move(bB.getRigidBody());
+		assertTrue(t.getCollisions().isEmpty());
+		assertEquals(0, t.getPairCount());
+	}
+
+	@Test
+	public void testRestingBodiesSleep() {
+		DirectionalGravity gravity = new DirectionalGravity();
+		GObject scene = new GObject(null, new PVector(), 0);
+		GObject floor = new GObject(scene, new PVector(0, -1), 0);
+		floor.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		GObject box = new GObject(scene, new PVector(0, 0.5f), 0) {
+			@Override
+			public void update() {
+				gravity.updateForce(getRigidBody());
+			}
+		};
+		box.setRigidBody(
+				new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh", cube.copy()))));
+		EngineRuntime engine = new EngineRuntime();
+		engine.attachScene(new SceneGridPair(scene, new AABBTreeBroadphase()));
+		engine.setPause(false);
+
+		// The box lands on the floor and falls asleep once it rested for long enough
+		engine.simulate(2);
+		assertTrue(box.getRigidBody().isSleeping());
+		float y = box.getPosition().y;
+		engine.simulate(1);
+		assertEquals(y, box.getPosition().y, 0.0001);
+
+		// An impulse wakes it up
+		box.getRigidBody().applyImpulse(new PVector(0, 5), new PVector());
+		assertFalse(box.getRigidBody().isSleeping());
+		engine.simulate(0.1);
+		assertTrue(box.getPosition().y > y);
+
+		// So does a change of the forces it rests under
+		engine.simulate(3);
+		assertTrue(box.getRigidBody().isSleeping());
+		gravity.setDirection(new PVector(0, 1));
+		engine.simulate(0.1);
+		assertFalse(box.getRigidBody().isSleeping());
+		assertTrue(box.getPosition().y > y);
+	}
+
+	@Test
+	public void testContactSolverStacksBodies() {
+		DirectionalGravity gravity = new DirectionalGravity();
+		GObject scene = new GObject(null, new PVector(), 0);
+		GObject floor = new GObject(scene, new PVector(0, -1), 0);
+		floor.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		GObject[] boxes = new GObject[8];
+		for (int i = 0; i < boxes.length; i++) {
+			boxes[i] = new GObject(scene, new PVector(0.02f * (i % 2), i), 0);
+			boxes[i].setRigidBody(
+					new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh", cube.copy()))));
+		}
+		GObject floating = new GObject(scene, new PVector(5, 5), 0);
+		floating.setRigidBody(
+				new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh", cube.copy()))));
+		floating.getRigidBody().setInFields(false);
+		EngineRuntime engine = new EngineRuntime();
+		SceneGridPair pair = new SceneGridPair(scene, new AABBTreeBroadphase());
+		pair.addForceField(gravity);
+		engine.attachScene(pair);
+		engine.setPause(false);
+
+		// The stack holds, and comes to rest
+		engine.simulate(5);
+		for (int i = 0; i < boxes.length; i++) {
+			assertEquals(i, boxes[i].getPosition().y, 0.25);
+			assertTrue(boxes[i].getRigidBody().isSleeping());
+		}
+		// Bodies out of the scene's fields do not fall
+		assertEquals(5, floating.getPosition().y, 0.0001);
+
+		// Position correction only pushes the box out of the floor, which is neither
+		// moved nor flagged to be tracked again
+		RigidBody f = floor.getRigidBody(), b = boxes[0].getRigidBody();
+		Manifold sunk = new Manifold(b, f);
+		sunk.addContactPoint(new PVector(0, -0.5f), new PVector(0, -1), -0.2, cube, cube);
+		new ContactSolver().solve(Map.of(new Pair<>(b, f), sunk), 1);
+		assertEquals(-1, floor.getPosition().y, 0);
+		assertFalse(f.hasMoved);
+		assertTrue(b.hasMoved);
+	}
+
+	@Test
+	public void testWarmStartPairReportedInReverse() {
+		Primitive rough = new Primitive(new Surface(0, 1, 1), PrimitiveUtils.makeRect(new PVector(1, 1)));
+		GObject floor = new GObject(null, new PVector(0, -1), 0);
+		floor.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", rough))));
+		GObject box = new GObject(null, new PVector(0, 0), 0);
+		box.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh", rough.copy()))));
+		RigidBody f = floor.getRigidBody(), b = box.getRigidBody();
+		ContactSolver solver = new ContactSolver();
+
+		// The box lands on the floor, reported as (box, floor)
+		Manifold landing = new Manifold(b, f);
+		landing.addContactPoint(new PVector(0, -0.5f), new PVector(0, -1), -0.001, rough, rough);
+		b.setVelocity(new PVector(0, -1));
+		solver.solve(Map.of(new Pair<>(b, f), landing), 1);
+
+		// Reported as (floor, box) next step, the contact keeps its normal impulse,
+		// which bounds friction from the first iteration on
+		Manifold sliding = new Manifold(f, b);
+		sliding.addContactPoint(new PVector(0, -0.5f), new PVector(0, 1), -0.001, rough, rough);
+		b.setVelocity(new PVector(1, -1));
+		solver.solve(Map.of(new Pair<>(f, b), sliding), 1);
+		assertTrue(b.getVelocity().x < 1);
+		assertEquals(new Pair<>(b, f).hashCode(), new Pair<>(f, b).hashCode());
+	}
+
+	@Test
+	public void testContinuousBodiesDoNotTunnel() {
+		GObject scene = new GObject(null, new PVector(), 0);
+		GObject wall = new GObject(scene, new PVector(0, 0), 0);
+		wall.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh",
+				new Primitive(new Surface(0, 0, 0), PrimitiveUtils.makeRect(new PVector(0.1f, 10)))))));
+		GObject farWall = new GObject(scene, new PVector(1, 0), 0);
+		farWall.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh",
+				new Primitive(new Surface(0, 0, 0), PrimitiveUtils.makeRect(new PVector(0.1f, 10)))))));
+		GObject[] bodies = { new GObject(scene, new PVector(-2, 0), 0), new GObject(scene, new PVector(-2, 3), 0),
+				new GObject(scene, new PVector(-2, -3), 0) };
+		bodies[0].setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh",
+				new Primitive(new Surface(0, 0, 0), PrimitiveUtils.makeRect(new PVector(0.2f, 0.2f)))))));
+		bodies[1].setRigidBody(new RigidBody(new RigidBodyProperties(
+				Map.of("mass", 1.0, "move", true, "mesh", new Primitive(new Surface(0, 0, 0), 0.1)))));
+		bodies[2].setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh",
+				new Primitive(new Surface(0, 0, 0), PrimitiveUtils.makeRect(new PVector(0.2f, 0.2f)))))));
+		for (GObject b : bodies) {
+			b.getRigidBody().setVelocity(new PVector(100, 0));
+		}
+		bodies[0].getRigidBody().setContinuous(true);
+		bodies[1].getRigidBody().setContinuous(true);
+		EngineRuntime engine = new EngineRuntime();
+		SceneGridPair pair = new SceneGridPair(scene, new AABBTreeBroadphase());
+		engine.attachScene(pair);
+		engine.setPause(false);
+
+		// Continuous bodies stop at the first wall they meet, others may go through
+		engine.simulate(0.5);
+		assertTrue(bodies[0].getPosition().x < 0);
+		assertTrue(bodies[1].getPosition().x < 0);
+		assertTrue(bodies[2].getPosition().x > 0);
+
+		// Querying the collisions does not move bodies
+		float x = bodies[0].getPosition().x;
+		assertEquals(pair.grid.getCollisions().size(), pair.grid.getCollisions().size());
+		assertEquals(x, bodies[0].getPosition().x, 0);
+	}
+
+	@Test
+	public void testBodyAddedBackCollides() {
+		GObject scene = new GObject(null, new PVector(), 0);
+		GObject floor = new GObject(scene, new PVector(0, -1), 0);
+		floor.setRigidBody(new RigidBody(new RigidBodyProperties(Map.of("mesh", cube.copy()))));
+		GObject box = new GObject(scene, new PVector(0, -0.05f), 0);
+		box.setRigidBody(
+				new RigidBody(new RigidBodyProperties(Map.of("mass", 1.0, "move", true, "mesh", cube.copy()))));
+		box.getRigidBody().setVelocity(new PVector(0, -1));
+		SceneGridPair pair = new SceneGridPair(scene, new AABBTreeBroadphase());
+		assertFalse(pair.grid.getCollisions().isEmpty());
+
+		// A removed body leaves the scene, with its state
+		pair.removeRigidBody(box.getRigidBody());
+		assertFalse(pair.bodies.contains(box.getRigidBody()));
+		assertEquals(1, pair.store.size());
+		assertTrue(pair.grid.getCollisions().isEmpty());
+
+		// Added back, it collides again and keeps its velocity
+		pair.addRigidBody(box.getRigidBody());
+		assertTrue(pair.bodies.contains(box.getRigidBody()));
+		assertEquals(2, pair.store.size());
+		assertFalse(pair.grid.getCollisions().isEmpty());
+		assertEquals(-1, box.getRigidBody().getVelocity().y, 0.0001);
 	}
 }
@@ -11,6 +11,8 @@ import bischemes.level.util.LColour;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import processing.core.PApplet;
 import processing.core.PGraphics;
 import processing.core.PVector;
@@ -19,6 +21,9 @@ public class Game implements GameInterface {
 	// Constants
 	private static final double TRANSITION_DURATION = 0.5;
 
+	// Broadphase used by the scenes of every loaded room
+	public static Broadphase.Type broadphaseType = Broadphase.Type.AABB_TREE;
+
 	EngineRuntime engine;
 	GameState state = GameState.PLAY;
 
@@ -34,6 +39,11 @@ public class Game implements GameInterface {
 	boolean isPrimaryScene;
 	Pair<DirectionalGravity> gravities;
 
+	// Scenes of the rooms around the current one, built ahead of time
+	RoomCache roomCache = new RoomCache(this::buildRoom, RoomCache.DEFAULT_CAPACITY);
+	// Rooms whose objects were initialised, which is only done once
+	private final Set<Room> initialisedRooms = ConcurrentHashMap.newKeySet();
+
 	// States of a level/game - feel free to modify
 	enum GameState {
 		PAUSE, PLAY, INTRO, FINISH, END
@@ -45,16 +55,9 @@ public class Game implements GameInterface {
 			case PAUSE:
 				break;
 			case PLAY:
-				// Check for interact input
-				if (InputHandler.getInstance().getPressedCommands().contains(
-						InputCommand.INTERACT)) {
-					currentRoom.interact();
-				}
-
-				// Update forces on grav item
+				checkInteraction();
+				checkProfilerToggle();
 				setEngineCameraPosition();
-				if (InputHandler.getInstance().hasInteraction())
-					currentRoom.interact();
 				engine.update();
 				break;
 			case INTRO:
@@ -65,6 +68,23 @@ public class Game implements GameInterface {
 		}
 	}
 
+	/**
+	 * Advance the game by a number of physics steps without drawing, as fast as
+	 * possible. Input is read once per step, as the runner does once per frame.
+	 *
+	 * @param steps The number of steps to simulate.
+	 * @return The number of steps run, fewer if the level ended.
+	 */
+	public int simulate(int steps) {
+		int i = 0;
+		for (; i < steps && state == GameState.PLAY; i++) {
+			checkInteraction();
+			engine.simulate(engine.getTimestep());
+			InputHandler.getInstance().initFrame();
+		}
+		return i;
+	}
+
 	public void setEngineCameraPosition() {
 		PVector minCameraPosition = PVector.add(new PVector(), PVector.div(engine.getCameraBounds(), 2));
 		PVector maxCameraPosition = PVector.sub(
@@ -93,8 +113,14 @@ public class Game implements GameInterface {
 		colours = new Pair<>(level.getColourPrimary(), level.getColourSecondary());
 
 		Room initRoom = level.getInitRoom();
+		if (gravities != null) {
+			primaryScene.removeForceField(gravities.a);
+			secondaryScene.removeForceField(gravities.b);
+		}
 		gravities = new Pair<>(new DirectionalGravity(new PVector(0, 1)),
 				new DirectionalGravity(new PVector(0, -1)));
+		primaryScene.addForceField(gravities.a);
+		secondaryScene.addForceField(gravities.b);
 
 		loadRoom(initRoom, initRoom.getSpawnPosition());
 		secondaryScene.attachToGObject(secondaryScene.scene, player);
@@ -119,41 +145,70 @@ public class Game implements GameInterface {
 	}
 
 	public void loadRoom(Room room, PVector playerPosition) {
-
-		// Initialise scenes
-		currentRoom = room;
-		PVector extraDimensions = PVector.add(room.getDimensions(), new PVector(2, 2));
-
-		// Load primary scene
-		primaryScene.resetScene(new GridSector(extraDimensions, new PVector(-1, -1),
-				(int) extraDimensions.x, (int) extraDimensions.y));
-		VisualAttribute primaryBg = VisualUtils.makeRect(room.getDimensions(), colours.a);
-		primaryBg.setOffset(PVector.div(room.getDimensions(), 2));
-		primaryScene.scene.addVisualAttributes(primaryBg);
-
-		// Load secondary scene
-		secondaryScene.resetScene(new GridSector(extraDimensions, new PVector(-1, -1),
-				(int) extraDimensions.x, (int) extraDimensions.y));
-
 		// Load player
 		if (player == null) {
 			player = new Player(playerPosition, 0,
 					isPrimaryScene ? gravities.a : gravities.b,
 					level.getColourSecondary());
 		} else {
+			SceneGridPair playerScene = isPrimaryScene ? primaryScene : secondaryScene;
+			playerScene.removeRigidBody(player.getRigidBody());
+			playerScene.scene.removeChild(player);
 			player.setLocalPosition(playerPosition);
 		}
+
+		// Swap the scenes of the room in, keeping those of the room left
+		RoomCache.Scenes scenes = roomCache.take(room);
+		primaryScene.swap(scenes.primary);
+		secondaryScene.swap(scenes.secondary);
+		engine.setRenderList(primaryScene.getRenderList());
+		if (currentRoom != null) {
+			roomCache.put(currentRoom, scenes);
+		}
+		currentRoom = room;
+
 		if (isPrimaryScene) {
 			primaryScene.attachToGObject(primaryScene.scene, player);
 		} else {
 			secondaryScene.attachToGObject(secondaryScene.scene, player);
 		}
+		engine.setCameraPosition(PVector.div(room.getDimensions(), 2));
 
-		// Add geometries to both scenes
-		primaryScene.attachToGObject(primaryScene.scene, room.getPrimaryGeometry());
-		secondaryScene.attachToGObject(secondaryScene.scene, room.getSecondaryGeometry());
+		// Get the rooms the player can move to next ready
+		roomCache.prefetch(room.getLinkedRooms());
+	}
 
-		// Initialise and load objects into the game
+	/**
+	 * Build the scenes of a room, drawn through a render list of their own. Runs
+	 * on the room building thread, so it must only touch the room and the scenes.
+	 *
+	 * @param room The room to build the scenes of.
+	 * @return The scenes of the room, without the player.
+	 */
+	RoomCache.Scenes buildRoom(Room room) {
+		PVector extraDimensions = PVector.add(room.getDimensions(), new PVector(2, 2));
+		RenderList renderList = new RenderList();
+
+		// Primary scene
+		SceneGridPair primary = new SceneGridPair(
+				Broadphase.create(broadphaseType, extraDimensions, new PVector(-1, -1)), renderList);
+		VisualAttribute primaryBg = VisualUtils.makeRect(room.getDimensions(), colours.a);
+		primaryBg.setOffset(PVector.div(room.getDimensions(), 2));
+		primaryBg.setBackground(true);
+		primary.scene.addVisualAttributes(primaryBg);
+
+		// Secondary scene
+		SceneGridPair secondary = new SceneGridPair(
+				Broadphase.create(broadphaseType, extraDimensions, new PVector(-1, -1)), renderList);
+
+		// Add geometries to both scenes, merging their static shapes first
+		GeometryBaker.bake(room.getPrimaryGeometry());
+		GeometryBaker.bake(room.getSecondaryGeometry());
+		primary.attachToGObject(primary.scene, room.getPrimaryGeometry());
+		secondary.attachToGObject(secondary.scene, room.getSecondaryGeometry());
+
+		// Initialise objects the first time their room is built, and load them
+		boolean init = initialisedRooms.add(room);
 		ArrayDeque<RObject> q = new ArrayDeque<>(room.getObjects());
 		while (!q.isEmpty()) {
 			RObject o = q.pollFirst();
@@ -166,17 +221,21 @@ public class Game implements GameInterface {
 			} else {
 				switch (o.getLColour()) {
 					case PRIMARY -> {
-						o.init(player, gravities.a);
-						primaryScene.attachToGObject(primaryScene.scene, o);
+						if (init) {
+							o.init(player, gravities.a);
+						}
+						primary.attachToGObject(primary.scene, o);
 					}
 					case SECONDARY -> {
-						o.init(player, gravities.b);
-						secondaryScene.attachToGObject(secondaryScene.scene, o);
+						if (init) {
+							o.init(player, gravities.b);
+						}
+						secondary.attachToGObject(secondary.scene, o);
 					}
 				}
 			}
 		}
-		engine.setCameraPosition(PVector.div(room.getDimensions(), 2));
+		return new RoomCache.Scenes(primary, secondary);
 	}
 
 	public void loadNextRoom(Room room, PVector newPlayerPosition) {
@@ -205,10 +264,53 @@ public class Game implements GameInterface {
 		state = GameState.END;
 	}
 
+	/**
+	 * Release the rooms of the level being played, once the game is left for the
+	 * menu. The game must not be updated afterwards.
+	 */
+	public void releaseLevel() {
+		engine.removeScene(primaryScene);
+		engine.removeScene(secondaryScene);
+		if (level != null) {
+			level.releaseRooms();
+		}
+		roomCache.clear();
+		rooms = null;
+		currentRoom = null;
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Forward an interact input to the current room.
+	private void checkInteraction() {
+		if (InputHandler.getInstance().hasInteraction()) {
+			currentRoom.interact();
+		}
+	}
+
+	// Show or hide the profiler overlay, profiling only while it is shown.
+	private void checkProfilerToggle() {
+		if (InputHandler.getInstance().getPressedCommands().contains(InputCommand.PROFILE)) {
+			FrameProfiler profiler = engine.getProfiler();
+			profiler.setEnabled(!profiler.isEnabled());
+			profiler.setOverlayVisible(profiler.isEnabled());
+		}
+	}
+
 	//////////////////
 	// Constructors //
 	//////////////////
 
+	/**
+	 * Constructor for a headless game, simulated with {@link #simulate(int)}.
+	 */
+	public Game() {
+		engine = new EngineRuntime();
+		setup();
+	}
+
 	public Game(PApplet applet, PGraphics g) {
 		engine = new EngineRuntime(applet, g);
 		setup();
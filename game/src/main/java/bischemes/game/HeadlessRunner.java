@@ -0,0 +1,45 @@
+package bischemes.game;
+
+import bischemes.engine.EngineRuntime;
+import bischemes.game.Game.GameState;
+import bischemes.level.Level;
+import bischemes.level.Levels;
+
+/**
+ * Runs a level without a window, as fast as the machine allows. Meant for CI
+ * checks, bots and performance measurements, so the engine profile of the
+ * latest steps is printed at the end.
+ *
+ * Usage: HeadlessRunner [level id] [simulated seconds] [levels directory]
+ */
+public class HeadlessRunner {
+	private static final int DEFAULT_LEVEL = 1;
+	private static final double DEFAULT_DURATION = 60;
+	private static final String DEFAULT_DIRECTORY = "levels";
+
+	public static void main(String[] args) {
+		int id = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LEVEL;
+		double duration = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_DURATION;
+		String directory = args.length > 2 ? args[2] : DEFAULT_DIRECTORY;
+
+		Levels.loadLevels(true, directory);
+		Level level = Levels.getLevel(id);
+
+		Game game = new Game();
+		game.setLevel(level);
+		game.engine.getProfiler().setEnabled(true);
+		int steps = (int) Math.round(duration / EngineRuntime.DEFAULT_TIMESTEP);
+
+		long start = System.nanoTime();
+		int run = game.simulate(steps);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		double simulated = run * EngineRuntime.DEFAULT_TIMESTEP;
+		System.out.printf("Simulated %.2fs of %s (%d steps) in %.3fs, %.1fx real time%n", simulated,
+				level.getName(), run, elapsed, simulated / elapsed);
+		if (game.state == GameState.END) {
+			System.out.println("Level completed");
+		}
+		System.out.print(game.engine.getProfiler().getSummary());
+	}
+}
@@ -11,12 +11,12 @@ public class InputHandler {
 	private HashMap<Character, InputCommand> onHeldCommands = new HashMap<>(
 			Map.of('w', InputCommand.UP, 's', InputCommand.DOWN, 'a', InputCommand.LEFT, 'd', InputCommand.RIGHT));
 	private HashMap<Character, InputCommand> onPressCommands = new HashMap<>(
-			Map.of('p', InputCommand.PAUSE, 'e', InputCommand.INTERACT));
+			Map.of('p', InputCommand.PAUSE, 'e', InputCommand.INTERACT, 'o', InputCommand.PROFILE));
 	private TreeSet<Character> heldKeys = new TreeSet<>();
 	private TreeSet<Character> pressedKeys = new TreeSet<>();
 
 	public enum InputCommand {
-		UP, DOWN, LEFT, RIGHT, INTERACT, PAUSE, NONE
+		UP, DOWN, LEFT, RIGHT, INTERACT, PAUSE, PROFILE, NONE
 	}
 
 	public void initFrame() {
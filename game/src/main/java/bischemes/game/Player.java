@@ -11,6 +11,7 @@ import bischemes.engine.physics.*;
 import bischemes.engine.physics.ForceGenerators.DirectionalGravity;
 import bischemes.game.InputHandler.InputCommand;
 import bischemes.level.PlayerAbstract;
+import bischemes.level.util.SpriteLoader;
 import processing.core.PVector;
 
 public class Player extends PlayerAbstract {
@@ -67,7 +68,7 @@ public class Player extends PlayerAbstract {
 			} else {
 				// Hit floor
 				state = Math.abs(
-						PVector.dot(getRigidBody().getProperties().velocity, gravity.getTangent())) > RUN_THRESHOLD
+						PVector.dot(getRigidBody().getVelocity(), gravity.getTangent())) > RUN_THRESHOLD
 								? PlayerState.RUN
 								: PlayerState.IDLE;
 			}
@@ -99,7 +100,7 @@ public class Player extends PlayerAbstract {
 
 		// Set running state
 		PVector tangent = gravity.getTangent();
-		double projectedVelocity = PVector.dot(getRigidBody().getProperties().velocity, tangent);
+		double projectedVelocity = PVector.dot(getRigidBody().getVelocity(), tangent);
 		if (Math.abs(projectedVelocity) > RUN_THRESHOLD && state == PlayerState.IDLE) {
 			state = PlayerState.RUN;
 		} else if (Math.abs(projectedVelocity) <= RUN_THRESHOLD && state == PlayerState.RUN) {
@@ -159,7 +160,7 @@ public class Player extends PlayerAbstract {
 			case IDLE -> spriteIdle;
 			case RUN -> {
 				double projectedVelocity = Math
-						.abs(PVector.dot(getRigidBody().getProperties().velocity, gravity.getTangent()));
+						.abs(PVector.dot(getRigidBody().getVelocity(), gravity.getTangent()));
 				tAnimation += projectedVelocity / spritesRun.size() / 60;
 				tAnimation %= spritesRun.size();
 				int frame = (int) ((tAnimation * spritesRun.size()) % spritesRun.size());
@@ -187,7 +188,7 @@ public class Player extends PlayerAbstract {
 
 	// Generate a sprite for the player and add it to its list of visual attributes.
 	private int generateSprite(String fp) {
-		VisualAttribute a = VisualUtils.makeRect(new PVector(1.8f, 1.8f), color, EngineRuntime.applet.loadImage(fp));
+		VisualAttribute a = VisualUtils.makeRect(new PVector(1.8f, 1.8f), color, SpriteLoader.getPlayerFrame(fp));
 		a.visible = false;
 		a.setHighPriority(true);
 		return addVisualAttributes(a).get(0);
@@ -203,6 +204,12 @@ public class Player extends PlayerAbstract {
 		setRigidBody(new RigidBody(
 				new RigidBodyProperties(Map.of("mass", 35.0, "inertia", 20.0, "move", true, "rotate", false, "mesh",
 						new Primitive(new Surface(0.2, 1.0, 1.0), PrimitiveUtils.makeRect(PLAYER_SIZE))))));
+		// Moved by input, and grounded by its hit callbacks every step
+		getRigidBody().setSleepAllowed(false);
+		// Falls with its own gravity, whichever scene it is in
+		getRigidBody().setInFields(false);
+		// Falls and jumps fast enough to go through thin walls in a single step
+		getRigidBody().setContinuous(true);
 		this.gravity = gravity;
 		this.color = color;
 
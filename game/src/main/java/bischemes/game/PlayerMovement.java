@@ -14,7 +14,7 @@ public class PlayerMovement implements ForceGenerator {
 
 	public void updateForce(RigidBody b) {
 		// Set final vector
-		double projectedVelocity = PVector.dot(p.getRigidBody().getProperties().velocity, t);
+		double projectedVelocity = PVector.dot(p.getRigidBody().getVelocity(), t);
 		PVector fmb = PVector.mult(t, (float) (BASE_MOVEMENT_INTENSITY * p.getRigidBody().getMass()
 				* (1 - MAX_PROJECTED_VELOCITY + Math.abs(projectedVelocity))));
 		b.addForce(PVector.mult(fmb, isRight ? -1 : 1));
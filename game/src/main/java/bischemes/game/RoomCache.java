@@ -0,0 +1,162 @@
+package bischemes.game;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import bischemes.engine.SceneGridPair;
+import bischemes.level.Room;
+
+/**
+ * Scenes of rooms built ahead of time, so that moving to a room only swaps its
+ * scenes into the attached ones. The rooms the player can move to next are
+ * built in the background, and the most recently used rooms are kept up to a
+ * capacity.
+ *
+ * Rooms are only ever built by one thread at a time: a room being built in the
+ * background is waited for rather than built again, and is never evicted.
+ */
+public class RoomCache {
+	public static final int DEFAULT_CAPACITY = 4;
+
+	// Single background thread, shared by every cache
+	private static ExecutorService builder;
+
+	private final Function<Room, Scenes> build;
+	private final int capacity;
+	// Scenes of every room, least recently used first
+	private final LinkedHashMap<Room, CompletableFuture<Scenes>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The primary and secondary scenes of a room, drawn through a render list of
+	 * their own.
+	 */
+	public static class Scenes {
+		public final SceneGridPair primary;
+		public final SceneGridPair secondary;
+
+		public Scenes(SceneGridPair primary, SceneGridPair secondary) {
+			this.primary = primary;
+			this.secondary = secondary;
+		}
+	}
+
+	/////////////////////////
+	// Getters and Setters //
+	/////////////////////////
+
+	/**
+	 * @return Whether the scenes of a room are built or being built.
+	 */
+	public boolean contains(Room room) {
+		return entries.containsKey(room);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	////////////////////
+	// Public Methods //
+	////////////////////
+
+	/**
+	 * Start building the scenes of rooms in the background, unless they are
+	 * already cached.
+	 *
+	 * @param rooms The rooms to build.
+	 */
+	public void prefetch(Collection<Room> rooms) {
+		for (Room room : rooms) {
+			if (!entries.containsKey(room)) {
+				put(room, CompletableFuture.supplyAsync(() -> build.apply(room), getBuilder()));
+			}
+		}
+	}
+
+	/**
+	 * Take the scenes of a room out of the cache. Scenes still being built are
+	 * waited for, and those of a room that is not cached are built right away.
+	 *
+	 * @param room The room to take the scenes of.
+	 * @return The scenes of the room.
+	 */
+	public Scenes take(Room room) {
+		CompletableFuture<Scenes> scenes = entries.remove(room);
+		if (scenes == null) {
+			return build.apply(room);
+		}
+		try {
+			return scenes.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Keep the scenes of a room, e.g. those of the room just left, to be taken
+	 * again later.
+	 */
+	public void put(Room room, Scenes scenes) {
+		put(room, CompletableFuture.completedFuture(scenes));
+	}
+
+	/**
+	 * Forget every room. Rooms being built still finish in the background.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/////////////////////
+	// Private Methods //
+	/////////////////////
+
+	// Add scenes, then evict the least recently used other scenes that are built.
+	private void put(Room room, CompletableFuture<Scenes> scenes) {
+		entries.put(room, scenes);
+		Iterator<Map.Entry<Room, CompletableFuture<Scenes>>> it = entries.entrySet().iterator();
+		while (entries.size() > capacity && it.hasNext()) {
+			Map.Entry<Room, CompletableFuture<Scenes>> entry = it.next();
+			if (entry.getKey() != room && entry.getValue().isDone()) {
+				it.remove();
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getBuilder() {
+		if (builder == null) {
+			builder = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "room-builder");
+				t.setDaemon(true);
+				// Rooms are built ahead of time, frames come first
+				t.setPriority(Thread.MIN_PRIORITY);
+				return t;
+			});
+		}
+		return builder;
+	}
+
+	//////////////////
+	// Constructors //
+	//////////////////
+
+	/**
+	 * @param build    Builds the scenes of a room, on the background thread or the
+	 *                 caller's.
+	 * @param capacity The number of rooms to keep.
+	 */
+	public RoomCache(Function<Room, Scenes> build, int capacity) {
+		this.build = build;
+		this.capacity = capacity;
+	}
+}
@@ -43,6 +43,7 @@ public class Runner extends PApplet {
 				} else {
 					game.update(g);
 					if (game.state == GameState.END) {
+						game.releaseLevel();
 						game = null;
 						state = RunnerState.MENU;
 						mapUI.clearSelection();
@@ -7,14 +7,23 @@ import processing.core.PGraphics;
 import processing.core.PVector;
 import processing.event.MouseEvent;
 
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 
 /** MapUI works with a PApplet and PGraphics to draw and update a LevelMap */
 public class MapUI {
 
-    /** LevelMap that this MapUI is using */
-    private final LevelMap map;
+    /** LevelMap that this MapUI is using, null until the first levels are loaded */
+    private LevelMap map = null;
+    /** Number of loaded levels when map was last built, used to know when to rebuild it */
+    private int mapLevelCount = 0;
+    /** Whether map was built once all levels were loaded */
+    private boolean mapComplete = false;
+    /** Loading of the levels, running in the background as the MapUI is drawn */
+    private final CompletableFuture<Void> loading;
     /** Current position of the camera which is viewing the LevelMap */
     private final PVector cameraPosition = new PVector();
     /** Current scale of the LevelMap */
@@ -30,11 +39,51 @@ public class MapUI {
     /** Whether the user is currently moving the camera view of the LevelMap */
     private boolean moving = false;
 
-    /** Creates a new MapUI, calling loadLevels of the Levels class and using them to build a LevelMap */
+    /**
+     * Creates a new MapUI, calling loadLevelsAsync of the Levels class. The LevelMap is built and rebuilt from the
+     * levels loaded so far as draw() is called, so the map fills up as the levels finish loading
+     */
     public MapUI() {
-        Levels.loadLevels(true);
-        map = new LevelMap(Levels.getLevels());
-        System.out.println(map); // Debug usage
+        loading = Levels.loadLevelsAsync(true);
+    }
+
+    /**
+     * Whether all levels have been loaded
+     * @return true once the LevelMap shows every level
+     */
+    public boolean isLoaded() {
+        return mapComplete;
+    }
+
+    /**
+     * Rebuilds the LevelMap if levels were loaded since it was last built. While loading, levels whose prerequisites
+     * are not loaded yet are left out of the LevelMap, as it cannot place them
+     */
+    private void updateMap() {
+        // Whether loading is done is read first, so that no level loaded in between can be missed
+        boolean done = loading.isDone();
+        int count = Levels.getLoadedCount();
+        if (count == mapLevelCount && done == mapComplete) return;
+        HashMap<Integer, Level> levels = Levels.getLevels();
+        if (!done) removeUnreachable(levels);
+        if (!levels.isEmpty()) map = new LevelMap(levels);
+        mapLevelCount = count;
+        mapComplete = done;
+    }
+
+    /**
+     * Removes the levels which have a prerequisite missing from the provided levels, directly or through another level
+     * @param levels HashMap of Levels to filter (keys are Level ids)
+     */
+    private static void removeUnreachable(HashMap<Integer, Level> levels) {
+        boolean removed = true;
+        while (removed) {
+            removed = levels.values().removeIf(level -> {
+                for (int id : level.getPrerequisites())
+                    if (!levels.containsKey(id)) return true;
+                return false;
+            });
+        }
     }
 
     /**
@@ -71,6 +120,15 @@ public class MapUI {
      * @param g PGraphics to draw the LevelMap with
      */
     public void draw(PApplet a, PGraphics g) {
+        updateMap();
+        if (map == null) {
+            g.background(255);
+            g.fill(0);
+            g.textSize(50);
+            g.textAlign(PGraphics.CENTER, PGraphics.CENTER);
+            g.text(mapComplete ? "No levels found" : "Loading levels...", a.width / 2f, a.height / 2f);
+            return;
+        }
         // If the user is pressing and dragging the mouse/cursor, update camera view
         if (moving) {
             cameraPosition.x = cameraAnchor.x + (a.mouseX - pressLocation.x) / scale;
@@ -114,6 +172,7 @@ public class MapUI {
      * @param event Mousewheel event, whether direction of mouse wheel is positive or negative
      */
     public void mouseWheel(PApplet a, MouseEvent event) {
+        if (map == null) return;
         if (event.getCount() > 0) scale -= 0.2f;
         else scale += 0.2f;
         bindCameraPosition(a.width, a.height);
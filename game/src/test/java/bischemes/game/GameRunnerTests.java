@@ -4,7 +4,164 @@
 package bischemes.game;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import bischemes.engine.GObject;
+import bischemes.engine.VisualAttribute;
+import bischemes.engine.physics.RigidBody;
+import bischemes.level.Level;
+import bischemes.level.Room;
+import bischemes.level.parts.RObject;
+import bischemes.level.util.LevelCompiler;
+import processing.core.PVector;
+
+class GameRunnerTests {
+	private static final String[] LEVEL_DIRECTORIES = { "../levels", "levels" };
+
+	@Test
+	void testHeadlessGame() {
+		Game game = new Game();
+		game.setLevel(loadLevel("level_1"));
+		PVector spawn = game.player.getPosition().copy();
+
+		// The player falls onto the floor, and stays in the room
+		assertEquals(300, game.simulate(300));
+		PVector position = game.player.getPosition();
+		PVector dimensions = game.currentRoom.getDimensions();
+		assertTrue(position.x > 0 && position.x < dimensions.x);
+		assertTrue(position.y > 0 && position.y < dimensions.y);
+		assertEquals(spawn.x, position.x, 0.01);
+
+		// Holding right walks the player right
+		InputHandler.getInstance().keyPressed('d');
+		game.simulate(30);
+		InputHandler.getInstance().keyReleased('d');
+		assertTrue(game.player.getPosition().x > spawn.x);
+	}
+
+	@Test
+	void testLevelRoomsLoadedOnPlay() {
+		// Parsing a level only reads its header
+		Level level = loadLevel("level_1");
+		assertFalse(level.isRoomsInitialised());
+		assertNull(level.getRooms()[0]);
+
+		Game game = new Game();
+		game.setLevel(level);
+		assertTrue(level.isRoomsInitialised());
+		game.simulate(10);
+
+		// Going back to the menu releases the rooms, and they can be built again
+		game.releaseLevel();
+		assertFalse(level.isRoomsInitialised());
+		assertNull(level.getRooms()[0]);
+		game = new Game();
+		game.setLevel(level);
+		assertEquals(10, game.simulate(10));
+	}
+
+	@Test
+	void testRoomTransitionSwapsPrefetchedScenes() {
+		Game game = new Game();
+		game.setLevel(loadLevel("level_1"));
+		Room first = game.currentRoom;
+		assertFalse(first.getLinkedRooms().isEmpty());
+		Room next = first.getLinkedRooms().get(0);
+		assertTrue(game.roomCache.contains(next));
+
+		// The room left is kept, with the player moved out of it
+		game.loadNextRoom(next, next.getSpawnPosition());
+		assertEquals(next, game.currentRoom);
+		assertTrue(game.roomCache.contains(first));
+		assertTrue(game.secondaryScene.scene.getChildren().contains(game.player));
+		assertEquals(10, game.simulate(10));
+
+		// Going back swaps the scenes of the first room in again
+		game.loadNextRoom(first, first.getSpawnPosition());
+		assertTrue(game.primaryScene.scene.getChildren().contains(first.getPrimaryGeometry()));
+		assertTrue(game.secondaryScene.scene.getChildren().contains(game.player));
+		assertEquals(10, game.simulate(10));
+	}
+
+	@Test
+	void testCompiledLevelsBuildSameRooms(@TempDir Path dir) throws IOException {
+		for (String name : new String[] { "level_1", "level_2" }) {
+			// Compile a copy of the level, so that the compiled file is newer than its JSON
+			Path levelDir = dir.resolve(name);
+			Files.createDirectories(levelDir);
+			File[] files = findLevel(name).listFiles((d, f) -> f.endsWith(".json"));
+			for (File f : files) {
+				Files.copy(f.toPath(), levelDir.resolve(f.getName()));
+			}
+			assertTrue(Files.isRegularFile(LevelCompiler.compile(levelDir.toString(), "info.json")));
+
+			// Rooms from the JSON and from the compiled file have the same objects, in the same order
+			Level level = Level.parseLevel(levelDir.toString(), "info.json", false);
+			level.initialiseRooms(false);
+			List<String> fromJson = describe(level.getRooms());
+			level.releaseRooms();
+			level.initialiseRooms(true);
+			assertEquals(fromJson, describe(level.getRooms()));
+		}
+	}
+
+	private static Level loadLevel(String name) {
+		File dir = findLevel(name);
+		return Level.parseLevel(dir.getPath(), "info.json", false);
+	}
+
+	private static File findLevel(String name) {
+		for (String dir : LEVEL_DIRECTORIES) {
+			if (new File(dir, name).isDirectory()) {
+				return new File(dir, name);
+			}
+		}
+		throw new IllegalStateException("Could not find level directory " + name);
+	}
+
+	// One line per object of the rooms, depth first, with what the game uses of it
+	private static List<String> describe(Room[] rooms) {
+		List<String> lines = new ArrayList<>();
+		for (Room room : rooms) {
+			lines.add("room " + room.getId() + " " + room.getDimensions() + " " + room.getSpawnPosition());
+			describe(room, "", lines);
+			for (RObject o : room.getObjects()) {
+				lines.add("object " + o.getId() + " " + o.getClass().getSimpleName());
+			}
+		}
+		return lines;
+	}
 
-class GameRunnerTests {}
+	private static void describe(GObject o, String indent, List<String> lines) {
+		StringBuilder line = new StringBuilder(indent).append(o.getClass().getSimpleName()).append(' ')
+				.append(o.getLocalPosition()).append(' ').append((float) o.getLocalOrientation());
+		if (o instanceof RObject r) {
+			line.append(" id ").append(r.getId()).append(' ').append(r.getLColour()).append(' ').append(r.getState());
+		}
+		for (VisualAttribute a : o.getVisualAttributes()) {
+			line.append(" visual ").append(a.getVisualKind()).append(' ').append(a.getColour()).append(' ')
+					.append(a.getOffset()).append(' ').append(a.getScaling());
+		}
+		RigidBody rb = o.getRigidBody();
+		if (rb != null) {
+			line.append(" body ").append(rb.getProperties().mass).append(' ').append(rb.getProperties().isMovable)
+					.append(' ').append(rb.getProperties().mesh == null ? "none" : rb.getProperties().mesh.getClass().getSimpleName());
+		}
+		lines.add(line.toString());
+		for (GObject child : o.getChildren()) {
+			describe(child, indent + "  ", lines);
+		}
+	}
+}
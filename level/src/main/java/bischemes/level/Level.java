@@ -1,6 +1,8 @@
 package bischemes.level;
 
 import bischemes.level.parts.Adjacency;
+import bischemes.level.util.BFormat;
+import bischemes.level.util.BParser;
 import bischemes.level.util.InvalidIdException;
 import bischemes.level.util.JParser;
 import bischemes.level.util.LColour;
@@ -10,10 +12,16 @@ import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.json.stream.JsonParser;
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /** Holds the information of a Level in the game, including its individual Rooms */
 public class Level {
@@ -28,8 +36,10 @@ public class Level {
     private final int colourPrimary;
     /** secondary colour of the Level's geometry/objects */
     private final int colourSecondary;
-    /** array of individual Room objects which comprise the Level */
+    /** array of individual Room objects which comprise the Level, filled by initialiseRooms() when it is played */
     private final Room[] rooms;
+    /** whether 'rooms' currently holds parsed Room objects */
+    private boolean roomsInitialised = false;
     /** id of the initial Room of the Level */
     private final int initRoomId;
     /** String array of Room JSON filenames used to load 'rooms' from */
@@ -70,6 +80,7 @@ public class Level {
             case SECONDARY -> colourSecondary;
         };
     }
+    public boolean isRoomsInitialised() { return roomsInitialised; }
     public void setCompleted(boolean completed) { this.completed = completed; }
     public boolean isCompleted() { return completed; }
 
@@ -134,18 +145,91 @@ public class Level {
         String[] roomFiles = null;
         if (! (jRooms.get(0) instanceof JsonObject)) roomFiles = JParser.parseStrs(jRooms, "rooms");
 
-        Level level = new Level(filename, roomDir, name, id, prqs, cPri, cSec, jRooms.size(), roomFiles, initId);
+        // Only the header is kept, Rooms are parsed by initialiseRooms() once the Level is played
+        return new Level(filename, roomDir, name, id, prqs, cPri, cSec, jRooms.size(), roomFiles, initId);
+    }
 
-        level.initialiseRooms();
+    /**
+     * Builds the Rooms of this Level, from its compiled level file if there is an up to date one, otherwise from its
+     * Room JSON. This must be called before the Level is played, and can be used to reload Room data (e.g. reset Rooms
+     * to their original state)
+     */
+    public void initialiseRooms() {
+        initialiseRooms(true);
+    }
 
-        return level;
+    /**
+     * Builds the Rooms of this Level
+     * @param useCompiled whether to use the compiled level file of this Level if it is up to date, rather than always
+     *                    parsing the Room JSON
+     */
+    public void initialiseRooms(boolean useCompiled) {
+        ByteBuffer[] compiled = useCompiled ? mapCompiledRooms() : null;
+        if (compiled != null)
+            for (int i = 0; i < rooms.length; i++) rooms[i] = Room.parseRoom(this, compiled[i]);
+        else streamRooms();
+        // Checks that no Room ids are repeated
+        for(int i = 0; i < rooms.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (rooms[i].getId() == rooms[j].getId())
+                    throw new InvalidIdException("\"id\" " + id + " for room in level (" + id + ", " + name + ") " +
+                            "is repeated (indexes " + j + ", " + i + ")");
+            }
+        }
+        // Initialises Adjacency objects within Room (links them between Rooms)
+        for (Room room : rooms)
+            for (Adjacency adjacency : room.getAdjacencies())
+                adjacency.init();
+        roomsInitialised = true;
     }
 
     /**
-     * Parses the Room JSON which corresponds to this Level's Level JSON
-     * This can be used to reload Room data (e.g. reset Rooms to their original state)
+     * Parses the Room JSON which corresponds to this Level's Level JSON with a JsonParser, building each Room as its
+     * JSON is read
      */
-    public void initialiseRooms() {
+    private void streamRooms() {
+        // Parses Room JSON from "rooms" array of the Level JSON file, the rest of which is skipped
+        if (roomFiles == null) {
+            try (JsonParser parser = openParser(filename)) {
+                JParser.startObj(parser, filename);
+                for (String key = JParser.nextKey(parser); key != null; key = JParser.nextKey(parser)) {
+                    if (!key.equals("rooms")) {
+                        JParser.skipValue(parser);
+                        continue;
+                    }
+                    JParser.startArr(parser, "rooms");
+                    for (int i = 0; i < rooms.length; i++) {
+                        JParser.startObj(parser, "rooms");
+                        rooms[i] = Room.parseRoom(this, parser);
+                    }
+                    return;
+                }
+            }
+            throw new LevelParseException("\"rooms\" does not have a mapping");
+        }
+        // Parses Room JSON from individual files
+        for (int i = 0; i < rooms.length; i++) {
+            try (JsonParser parser = openParser(roomFiles[i])) {
+                JParser.startObj(parser, roomFiles[i]);
+                rooms[i] = Room.parseRoom(this, parser);
+            }
+        }
+    }
+
+    // Opens a JsonParser over a file in the directory of this Level, which closes the file when it is closed
+    private JsonParser openParser(String file) {
+        try {
+            return Json.createParser(new BufferedInputStream(new FileInputStream(directory + "/" + file)));
+        } catch (FileNotFoundException e) {
+            throw new LevelParseException("FileNotFoundException, could not find \"" + directory + "/" + file + "\"");
+        }
+    }
+
+    /**
+     * Reads the Room JSON which corresponds to this Level's Level JSON
+     * @return the JsonObject of every Room, in order
+     */
+    public JsonObject[] readRoomJson() {
         JsonObject[] roomObjs = new JsonObject[rooms.length];
         // Parses Room JSON from individual files
         if (roomFiles == null) {
@@ -187,19 +271,38 @@ public class Level {
                 } catch (IOException ignored) {}
             }
         }
-        // Checks that no Room ids are repeated
-        for(int i = 0; i < rooms.length; i++) {
-            rooms[i] = Room.parseRoom(this, roomObjs[i]);
-            for (int j = 0; j < i; j++) {
-                if (rooms[i].getId() == rooms[j].getId())
-                    throw new InvalidIdException("\"id\" " + id + " for room in level (" + id + ", " + name + ") " +
-                            "is repeated (indexes " + j + ", " + i + ")");
-            }
-        }
-        // Initialises Adjacency objects within Room (links them between Rooms)
-        for (Room room : rooms)
-            for (Adjacency adjacency : room.getAdjacencies())
-                adjacency.init();
+        return roomObjs;
+    }
+
+    /** Gets the path of the compiled level file of this Level, next to its Level JSON file */
+    public Path getCompiledPath() {
+        return Paths.get(directory, BFormat.compiledName(filename));
+    }
+
+    /**
+     * Maps the compiled level file of this Level into memory
+     * @return the buffer of every Room, or null if there is no compiled level file, or if it is out of date
+     */
+    private ByteBuffer[] mapCompiledRooms() {
+        File compiled = getCompiledPath().toFile();
+        if (!compiled.isFile()) return null;
+        // The compiled level file is out of date if any of the JSON files it was compiled from changed since
+        long compiledTime = compiled.lastModified();
+        if (new File(directory, filename).lastModified() > compiledTime) return null;
+        if (roomFiles != null)
+            for (String roomFile : roomFiles)
+                if (new File(directory, roomFile).lastModified() > compiledTime) return null;
+        return BParser.mapLevel(compiled.toPath(), rooms.length);
+    }
+
+    /**
+     * Releases the Room objects of this Level, and with them all their geometry, rigid bodies and behaviours, leaving
+     * only the header information used by the level menu. initialiseRooms() must be called again to play the Level
+     */
+    public void releaseRooms() {
+        Arrays.fill(rooms, null);
+        roomsInitialised = false;
+        game = null;
     }
 
 }
@@ -1,26 +1,49 @@
 package bischemes.level;
 
+import bischemes.level.util.BFormat;
 import bischemes.level.util.InvalidIdException;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 /** Class to start the parsing of all Level objects and handle storing all those objects */
 public final class Levels {
 
     /** Static collection of all parsed Level objects with their ids as keys in the HashMap (easy lookup)*/
-    private static final HashMap<Integer, Level> levels = new HashMap<>();
+    private static final ConcurrentHashMap<Integer, Level> levels = new ConcurrentHashMap<>();
     /** Default directory name for where level JSON files are stored */
     private final static String DEFAULT_LEVEL_DIR = "levels";
     /** Default name for level JSON files when the level is contained in a subdirectory*/
     private final static String DEFAULT_INFO_FILE = "info.json";
 
+    /** Worker pool parsing Level JSON files, created on first use. Its threads never keep the program alive */
+    private static ExecutorService loaders = null;
+
     private Levels() {}
 
+    /** Gets the worker pool for Level parsing, creating it with one thread per available processor */
+    private static synchronized ExecutorService getLoaders() {
+        if (loaders == null) {
+            loaders = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "level-loader");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return loaders;
+    }
+
     /**
      * Gets a Level with the provided id from the levels HashMap
      * @param id id of the Level to get
@@ -37,6 +60,11 @@ public final class Levels {
         return levels;
     }
 
+    /** Returns the number of Level objects loaded so far, which grows while levels are loaded asynchronously */
+    public static int getLoadedCount() {
+        return levels.size();
+    }
+
     /**
      * Checks whether a Level with the provided id exists
      * @param id id of the Level to look for
@@ -61,6 +89,33 @@ public final class Levels {
      *                       if false, exceptions stop all Level parsing
      */
     public static void loadLevels(boolean skipOnLoadFail, String directory) {
+        try {
+            loadLevelsAsync(skipOnLoadFail, directory).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Calls loadLevelsAsync() but uses the DEFAULT_DIRECTORY instead of a user provided directory
+     * @param skipOnLoadFail if true, exceptions are caught and the Level parsing is skipped.
+     *                       if false, exceptions complete the returned future exceptionally
+     */
+    public static CompletableFuture<Void> loadLevelsAsync(boolean skipOnLoadFail) {
+        return loadLevelsAsync(skipOnLoadFail, DEFAULT_LEVEL_DIR);
+    }
+    /**
+     * Starts parsing all Level JSON files in the provided directory in parallel on a worker pool. Each Level is added
+     * to the private Level collection as soon as it is parsed, so getLevels() and getLoadedCount() can be polled to
+     * show levels progressively. When two files share an id, the first one in path order is kept, whichever finishes
+     * parsing first. Duplicate ids are reported once every file has been handled.
+     * @param directory the directory to look for Level JSON files in
+     * @param skipOnLoadFail if true, exceptions are caught and the Level parsing is skipped.
+     *                       if false, exceptions complete the returned future exceptionally
+     * @return a future completed once every Level JSON file in the directory has been handled
+     */
+    public static CompletableFuture<Void> loadLevelsAsync(boolean skipOnLoadFail, String directory) {
         Stream<Path> stream = null;
         try {
             try {
@@ -70,28 +125,78 @@ public final class Levels {
                 directory = "game/" + directory;
                 stream = Files.list(Paths.get(directory));
             }
-            for(Path p : stream.toList()) {
-                Level level;
-                // Each item in the directory is either a subdirectory containing level information or a full level file
-                if (p.toFile().isFile()) level = Level.parseLevel(directory, p.toFile().getName(), skipOnLoadFail);
-                else level = Level.parseLevel(p.toString(), DEFAULT_INFO_FILE, skipOnLoadFail);
-                if (level == null) continue;
-                // Handle duplicate ids
-                if (idExists(level.getId())) {
-                    String errMsg = "\"id\" " + level.getId() + " from " + getLevel(level.getId()).getName() +
-                            " is repeated in " + level.getName();
-                    if (skipOnLoadFail) System.out.println(errMsg + ". " + level.getName() + " will be skipped");
-                    else throw new InvalidIdException(errMsg);
-                }
-                // Add loaded Level into levels
-                else {
-                    levels.put(level.getId(), level);
-                    System.out.println("Loaded level from \"" + p + "\", id = " + level.getId() + ", name = " + level.getName());
-                }
-            }
-        }catch(IOException e) {
+        } catch(IOException e) {
             throw new RuntimeException(e);
         }
+        String levelDir = directory;
+        // Compiled level files are read by the Level of their JSON file
+        List<Path> paths = stream.filter(p -> !p.toString().endsWith(BFormat.EXTENSION)).sorted().toList();
+        stream.close();
+        Level[] parsed = new Level[paths.size()];
+        // Position in paths of the Level holding each id, the lowest one of all parsed so far
+        ConcurrentHashMap<Integer, Integer> holders = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            int index = i;
+            loads.add(CompletableFuture.runAsync(() ->
+                    loadLevel(paths, index, parsed, holders, levelDir, skipOnLoadFail), getLoaders()));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]))
+                .thenRun(() -> reportLevels(paths, parsed, holders, skipOnLoadFail));
+    }
+
+    /**
+     * Parses a single Level from an item of the level directory and adds it to the private Level collection, unless
+     * an item earlier in path order already holds its id
+     * @param paths the items of the level directory, in path order
+     * @param index the position of the item to parse in paths, either a subdirectory containing level information or
+     *              a full level file
+     * @param parsed the Level parsed from each item, filled at index
+     * @param holders the position in paths of the Level holding each id
+     * @param directory the directory the items are in
+     * @param skipOnLoadFail if true, exceptions are caught and the Level parsing is skipped.
+     *                       if false, exceptions are thrown
+     */
+    private static void loadLevel(List<Path> paths, int index, Level[] parsed, ConcurrentHashMap<Integer, Integer> holders,
+                                  String directory, boolean skipOnLoadFail) {
+        Path p = paths.get(index);
+        Level level;
+        // Each item in the directory is either a subdirectory containing level information or a full level file
+        if (p.toFile().isFile()) level = Level.parseLevel(directory, p.toFile().getName(), skipOnLoadFail);
+        else level = Level.parseLevel(p.toString(), DEFAULT_INFO_FILE, skipOnLoadFail);
+        if (level == null) return;
+        parsed[index] = level;
+        // Atomically as other levels are added concurrently, the earlier item keeps the id
+        holders.compute(level.getId(), (id, holder) -> {
+            if (holder != null && holder < index) return holder;
+            levels.put(id, level);
+            return index;
+        });
+    }
+
+    /**
+     * Reports the Level parsed from each item of the level directory in path order, once all of them are handled
+     * @param paths the items of the level directory, in path order
+     * @param parsed the Level parsed from each item, or null if it was skipped
+     * @param holders the position in paths of the Level holding each id
+     * @param skipOnLoadFail if true, Levels with a duplicate id are skipped.
+     *                       if false, a duplicate id throws an InvalidIdException
+     */
+    private static void reportLevels(List<Path> paths, Level[] parsed, ConcurrentHashMap<Integer, Integer> holders,
+                                     boolean skipOnLoadFail) {
+        for (int i = 0; i < parsed.length; i++) {
+            Level level = parsed[i];
+            if (level == null) continue;
+            int holder = holders.get(level.getId());
+            if (holder != i) {
+                String errMsg = "\"id\" " + level.getId() + " from " + parsed[holder].getName() +
+                        " is repeated in " + level.getName();
+                if (skipOnLoadFail) System.out.println(errMsg + ". " + level.getName() + " will be skipped");
+                else throw new InvalidIdException(errMsg);
+            }
+            else System.out.println("Loaded level from \"" + paths.get(i) + "\", id = " + level.getId() +
+                    ", name = " + level.getName());
+        }
     }
 
 }
@@ -4,12 +4,18 @@ import bischemes.engine.GObject;
 import bischemes.level.parts.Adjacency;
 import bischemes.level.parts.PartFactory;
 import bischemes.level.parts.RObject;
+import bischemes.level.util.BFormat;
+import bischemes.level.util.BParser;
 import bischemes.level.util.InvalidIdException;
 import bischemes.level.util.JParser;
 import bischemes.level.util.LevelParseException;
 import processing.core.PVector;
 
+import javax.json.Json;
 import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.stream.JsonParser;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +39,8 @@ public class Room extends GObject {
     private final List<RObject> roomObjects;
     /** List of all Adjacency objects (sub-list of roomObjects)*/
     private final List<Adjacency> adjacencies;
+    /** Other Rooms which Teleporters of this Room (including those of Adjacency objects) lead to */
+    private final List<Room> linkedRooms = new ArrayList<>();
 
     /**
      * Recursively finds the Room that any GObject belongs to
@@ -64,6 +72,15 @@ public class Room extends GObject {
     public GObject getSecondaryGeometry() { return secondaryGeometry; }
     public List<RObject> getObjects() { return roomObjects; }
     public List<Adjacency> getAdjacencies() { return adjacencies; }
+    public List<Room> getLinkedRooms() { return linkedRooms; }
+
+    /**
+     * Records that a Teleporter of this Room leads to another Room, so that it may be prepared ahead of time
+     * @param room the Room led to
+     */
+    public void addLinkedRoom(Room room) {
+        if (room != this && !linkedRooms.contains(room)) linkedRooms.add(room);
+    }
 
     /**
      * Searches for and returns the RObject with the provided id or throws an InvalidIdException if it doesn't exist
@@ -122,29 +139,13 @@ public class Room extends GObject {
         int id = -1; //id is declared outside of try{} so that it may be used in exception messages
         try {
             id = JParser.parseInt(roomJson, "id");
-            if (id < 0)
-                throw new InvalidIdException("\"id\" is invalid with " + id + " as id cannot be negative");
-            PVector dims = JParser.parsePVec(roomJson, "dimensions");
-             if (dims.x < 0 || dims.y < 0)
-                 throw new LevelParseException("\"dimensions\" is invalid with [" + dims.x + ", " + dims.y + "]. Dimensions cannot be negative");
-             PVector spawnPos = JParser.parsePVec(roomJson, "spawnPosition");
-             if (spawnPos.x < 0 || spawnPos.x > dims.x || spawnPos.y < 0 || spawnPos.y > dims.y)
-                 throw new LevelParseException("\"spawnPosition\" is invalid with [" + spawnPos.x + ", " + spawnPos.y + "]. Spawn position must be within the room");
-            room = new Room(parent, id, dims, spawnPos);
+            room = createRoom(parent, roomJson);
 
             JsonObject geometry = JParser.parseObj(roomJson, "geometry");
             JParser.parseGeometryArr(geometry, "primary", room.primaryGeometry);
             JParser.parseGeometryArr(geometry, "secondary", room.secondaryGeometry);
 
-            PartFactory pf = new PartFactory();
-            pf.createCornerRect(room.primaryGeometry, new PVector(-1, 0), new PVector(1, dims.y), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.primaryGeometry, new PVector(0,-1), new PVector(dims.x, -1), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.primaryGeometry, new PVector(dims.x, 0), new PVector(1, dims.y), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.primaryGeometry, new PVector(0, dims.y), new PVector(dims.x, -1), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.secondaryGeometry, new PVector(-1, 0), new PVector(1, dims.y), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.secondaryGeometry, new PVector(0, -1), new PVector(dims.x, 1), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.secondaryGeometry, new PVector(dims.x, 0), new PVector(1, dims.y), 0).removeAllVisualAttributes();
-            pf.createCornerRect(room.secondaryGeometry, new PVector(0, dims.y), new PVector(dims.x, 1), 0).removeAllVisualAttributes();
+            room.addBoundaries();
 
             for (GObject g : room.primaryGeometry.getChildren()) g.removeAllVisualAttributes();
 
@@ -159,26 +160,189 @@ public class Room extends GObject {
         } catch (InvalidIdException e) {
             throw new InvalidIdException("parseRoom(" + ((id!=-1) ? id : "") + "), encountered an InvalidIdException \n\t"+e.getLocalizedMessage());
         }
+        room.finishParse();
+        return room;
+    }
+
+    /**
+     * Parses Room JSON from a JsonParser and creates a Room object if successful. Geometry, objects and adjacencies are
+     * built from each element of their arrays as it is read, rather than from the whole Room JSON at once
+     * @param parent The Level which the parsed Room belongs to
+     * @param parser The JsonParser, positioned at the start of the Room JSON object
+     * @return a newly parsed Room
+     */
+    public static Room parseRoom(Level parent, JsonParser parser) {
+        Room room = null;
+        int id = -1; //id is declared outside of try{} so that it may be used in exception messages
+        JsonObjectBuilder header = Json.createObjectBuilder();
+        int headerKeys = 0;
+        // Arrays found before the header is complete, or adjacencies found before objects, parsed once the Room exists
+        JsonObjectBuilder deferred = Json.createObjectBuilder();
+        boolean geometry = false, objects = false, adjacent = false;
+        // Adjacencies are built after objects, as they are from a JsonObject or a compiled level file, so that the
+        // children of a Room are in the same order whatever the order of its keys
+        boolean objectsBuilt = false;
+        try {
+            for (String key = JParser.nextKey(parser); key != null; key = JParser.nextKey(parser)) {
+                switch (key) {
+                    case "id", "dimensions", "spawnPosition" -> {
+                        parser.next();
+                        header.add(key, parser.getValue());
+                        headerKeys++;
+                    }
+                    case "geometry", "objects", "adjacent" -> {
+                        if (room == null || (key.equals("adjacent") && !objectsBuilt)) {
+                            parser.next();
+                            deferred.add(key, parser.getValue());
+                        }
+                        else {
+                            room.parseSection(key, parser);
+                            objectsBuilt |= key.equals("objects");
+                        }
+                        geometry |= key.equals("geometry");
+                        objects |= key.equals("objects");
+                        adjacent |= key.equals("adjacent");
+                    }
+                    default -> JParser.skipValue(parser);
+                }
+                if (room == null && headerKeys == 3) {
+                    JsonObject roomJson = header.build();
+                    id = JParser.parseInt(roomJson, "id");
+                    room = createRoom(parent, roomJson);
+                }
+            }
+            if (room == null) room = createRoom(parent, header.build());
+            if (!geometry) throw new LevelParseException("\"geometry\" does not have a mapping");
+            if (!objects) throw new LevelParseException("\"objects\" does not have a mapping");
+            if (!adjacent) throw new LevelParseException("\"adjacent\" does not have a mapping");
+
+            JsonObject roomJson = deferred.build();
+            if (roomJson.containsKey("geometry")) {
+                JsonObject geometryJson = JParser.parseObj(roomJson, "geometry");
+                JParser.parseGeometryArr(geometryJson, "primary", room.primaryGeometry);
+                JParser.parseGeometryArr(geometryJson, "secondary", room.secondaryGeometry);
+            }
+            if (roomJson.containsKey("objects"))
+                JParser.parseRObjectArr(roomJson, "objects", room, room.roomObjects);
+            if (roomJson.containsKey("adjacent"))
+                JParser.parseAdjacencyArr(roomJson, "adjacent", room, room.adjacencies);
+
+            room.addBoundaries();
+
+            for (GObject g : room.primaryGeometry.getChildren()) g.removeAllVisualAttributes();
+
+            room.roomObjects.addAll(room.adjacencies);
+
+        } catch (LevelParseException e) {
+            throw new LevelParseException("parseRoom(" + ((id!=-1) ? id : "") + "), encountered a LevelParseException\n\t"+e.getLocalizedMessage());
+        } catch (InvalidIdException e) {
+            throw new InvalidIdException("parseRoom(" + ((id!=-1) ? id : "") + "), encountered an InvalidIdException \n\t"+e.getLocalizedMessage());
+        }
+        room.finishParse();
+        return room;
+    }
+
+    // Parses the geometry, objects or adjacencies of the Room from a JsonParser positioned at their key
+    private void parseSection(String key, JsonParser parser) {
+        switch (key) {
+            case "geometry" -> {
+                boolean primary = false, secondary = false;
+                JParser.startObj(parser, "geometry");
+                for (String k = JParser.nextKey(parser); k != null; k = JParser.nextKey(parser)) {
+                    switch (k) {
+                        case "primary" -> {
+                            JParser.parseGeometryArr(parser, k, primaryGeometry);
+                            primary = true;
+                        }
+                        case "secondary" -> {
+                            JParser.parseGeometryArr(parser, k, secondaryGeometry);
+                            secondary = true;
+                        }
+                        default -> JParser.skipValue(parser);
+                    }
+                }
+                if (!primary) throw new LevelParseException("\"primary\" does not have a mapping");
+                if (!secondary) throw new LevelParseException("\"secondary\" does not have a mapping");
+            }
+            case "objects" -> JParser.parseRObjectArr(parser, key, this, roomObjects);
+            case "adjacent" -> JParser.parseAdjacencyArr(parser, key, this, adjacencies);
+        }
+    }
+
+    /**
+     * Creates an empty Room from the id, dimensions and spawn position of its Room JSON
+     * @param parent The Level which the Room belongs to
+     * @param roomJson The JsonObject holding (at least) the id, dimensions and spawn position of the Room
+     * @return a Room without geometry or objects
+     */
+    private static Room createRoom(Level parent, JsonObject roomJson) {
+        int id = JParser.parseInt(roomJson, "id");
+        if (id < 0)
+            throw new InvalidIdException("\"id\" is invalid with " + id + " as id cannot be negative");
+        PVector dims = JParser.parsePVec(roomJson, "dimensions");
+        if (dims.x < 0 || dims.y < 0)
+            throw new LevelParseException("\"dimensions\" is invalid with [" + dims.x + ", " + dims.y + "]. Dimensions cannot be negative");
+        PVector spawnPos = JParser.parsePVec(roomJson, "spawnPosition");
+        if (spawnPos.x < 0 || spawnPos.x > dims.x || spawnPos.y < 0 || spawnPos.y > dims.y)
+            throw new LevelParseException("\"spawnPosition\" is invalid with [" + spawnPos.x + ", " + spawnPos.y + "]. Spawn position must be within the room");
+        return new Room(parent, id, dims, spawnPos);
+    }
+
+    /**
+     * Builds a Room from its block in a compiled level file (see BFormat)
+     * @param parent The Level which the Room belongs to
+     * @param roomBin The buffer holding the Room block
+     * @return a newly built Room
+     */
+    public static Room parseRoom(Level parent, ByteBuffer roomBin) {
+        BParser.checkRoomHeader(roomBin);
+        Room room = new Room(parent, BParser.parseRoomId(roomBin), BParser.parseRoomDimensions(roomBin),
+                BParser.parseRoomSpawnPosition(roomBin));
+        BParser.parseGeometryArr(roomBin, BFormat.SECTION_PRIMARY, room.primaryGeometry);
+        BParser.parseGeometryArr(roomBin, BFormat.SECTION_SECONDARY, room.secondaryGeometry);
+        BParser.parseRObjectArr(roomBin, room, room.roomObjects);
+        BParser.parseAdjacencyArr(roomBin, room, room.adjacencies);
+        room.addBoundaries();
+        for (GObject g : room.primaryGeometry.getChildren()) g.removeAllVisualAttributes();
+        room.roomObjects.addAll(room.adjacencies);
+        room.finishParse();
+        return room;
+    }
+
+    /** Adds invisible walls around the Room to both geometry colours, so that nothing can leave it */
+    private void addBoundaries() {
+        PartFactory pf = new PartFactory();
+        pf.createCornerRect(primaryGeometry, new PVector(-1, 0), new PVector(1, dimensions.y), 0).removeAllVisualAttributes();
+        pf.createCornerRect(primaryGeometry, new PVector(0,-1), new PVector(dimensions.x, -1), 0).removeAllVisualAttributes();
+        pf.createCornerRect(primaryGeometry, new PVector(dimensions.x, 0), new PVector(1, dimensions.y), 0).removeAllVisualAttributes();
+        pf.createCornerRect(primaryGeometry, new PVector(0, dimensions.y), new PVector(dimensions.x, -1), 0).removeAllVisualAttributes();
+        pf.createCornerRect(secondaryGeometry, new PVector(-1, 0), new PVector(1, dimensions.y), 0).removeAllVisualAttributes();
+        pf.createCornerRect(secondaryGeometry, new PVector(0, -1), new PVector(dimensions.x, 1), 0).removeAllVisualAttributes();
+        pf.createCornerRect(secondaryGeometry, new PVector(dimensions.x, 0), new PVector(1, dimensions.y), 0).removeAllVisualAttributes();
+        pf.createCornerRect(secondaryGeometry, new PVector(0, dimensions.y), new PVector(dimensions.x, 1), 0).removeAllVisualAttributes();
+    }
+
+    /** Sets the colour of all geometry and RObjects, then validates that RObject ids are unique */
+    private void finishParse() {
         // calls setColour() for all geometry and RObjects
-        room.primaryGeometry.setColour(room.parent.getColourPrimary());
-        room.secondaryGeometry.setColour(room.parent.getColourSecondary());
-        for (RObject rObject : room.roomObjects) {
+        primaryGeometry.setColour(parent.getColourPrimary());
+        secondaryGeometry.setColour(parent.getColourSecondary());
+        for (RObject rObject : roomObjects) {
             if (rObject.getLColour() == null) continue;
             switch (rObject.getLColour()) {
-                case PRIMARY -> rObject.setColour(room.parent.getColourPrimary());
-                case SECONDARY -> rObject.setColour(room.parent.getColourSecondary());
+                case PRIMARY -> rObject.setColour(parent.getColourPrimary());
+                case SECONDARY -> rObject.setColour(parent.getColourSecondary());
             }
         }
         // validates that ids are unique for every RObject
-        for (int j = 0; j < room.roomObjects.size(); j++) {
-            for (int k = j + 1; k < room.roomObjects.size(); k++) {
-                if (room.roomObjects.get(j).getId() == room.roomObjects.get(k).getId())
-                    throw new InvalidIdException("\"id\" " + room.roomObjects.get(j).getId() + " is repeated in room " +
-                            "(id = " + room.getId() + ") in level (" + parent.getId() + ", " + parent.getName() + ") " +
+        for (int j = 0; j < roomObjects.size(); j++) {
+            for (int k = j + 1; k < roomObjects.size(); k++) {
+                if (roomObjects.get(j).getId() == roomObjects.get(k).getId())
+                    throw new InvalidIdException("\"id\" " + roomObjects.get(j).getId() + " is repeated in room " +
+                            "(id = " + id + ") in level (" + parent.getId() + ", " + parent.getName() + ") " +
                             "is repeated (indexes " + j + ", " + k + ")");
             }
         }
-        return room;
     }
 
 }
@@ -85,12 +85,13 @@ public class RObject extends GObject {
 
     /**
      * Sets the RObject's state to the boolean value and the state of all its RObject children.
-     * Calls the on-state-change (BState) Behaviour run() methods if state changes.
+     * Calls the on-state-change (BState) Behaviour run() methods if state changes, waking the RObject's RigidBody.
      * @param state the state to set this RObject's state to
      */
     public void setState(boolean state) {
         if (state ^ this.state) {
             this.state = state;
+            if (rigidBody != null) rigidBody.wake();
             if (bState != null)
                 for (BState o : bState)
                     o.run();
@@ -102,10 +103,11 @@ public class RObject extends GObject {
 
     /**
      * Switches the state of the RObject and the state of all its RObject children.
-     * Calls the on-state-change (BState) Behaviour run() methods.
+     * Calls the on-state-change (BState) Behaviour run() methods, waking the RObject's RigidBody.
      */
     public void switchState() {
         state = !state;
+        if (rigidBody != null) rigidBody.wake();
         if (bState != null)
             for (BState o : bState)
                 o.run();
@@ -114,22 +116,14 @@ public class RObject extends GObject {
                 r.switchState();
     }
 
+    /**
+     * Initialises the RObject for a game. Gravity itself is a force field of the scene the RObject is loaded in
+     * @param player the player of the game
+     * @param gravity the gravity of the RObject's colour, which the RObject may flip
+     */
 	public void init(PlayerAbstract player, DirectionalGravity gravity) {
 		this.player = player;
 		this.gravity = gravity;
-
-		// Add gravity if movable or rotatable.
-		if (rigidBody != null && (rigidBody.getProperties().isMovable ||
-                getRigidBody().getProperties().isRotatable || rigidBody.getProperties().mass != 0)) {
-			addOnUpdate(new BUpdate(null) {
-					public void run() {
-						gravity.updateForce(getRigidBody());
-					}
-					public void setColour(int c) {
-						// Placeholder
-					}
-				});
-		}
 	}
 
     /**
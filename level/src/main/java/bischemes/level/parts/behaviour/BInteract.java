@@ -1,11 +1,11 @@
 package bischemes.level.parts.behaviour;
 
+import bischemes.engine.TextureRegion;
 import bischemes.engine.VisualAttribute;
 import bischemes.engine.VisualUtils;
 import bischemes.level.PlayerAbstract;
 import bischemes.level.parts.RObject;
 import bischemes.level.util.SpriteLoader;
-import processing.core.PImage;
 import processing.core.PVector;
 
 public abstract class BInteract extends BUpdate {
@@ -24,7 +24,7 @@ public abstract class BInteract extends BUpdate {
 	private boolean stateActivity;
 
 	protected PVector indicatorDimension;
-	protected PImage indicatorTexture;
+	protected TextureRegion indicatorTexture;
 	protected PVector indicatorOffset;
 
 	protected BInteract(RObject interactable, float x, float y) {
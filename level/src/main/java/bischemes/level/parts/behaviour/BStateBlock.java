@@ -45,15 +45,14 @@ public class BStateBlock extends BState {
     private void makeMovable() {
         baseObj.addVisualAttributes(blockSymbol);
         // TODO Alter RigidBody properties of block to make movable
-        baseObj.getRigidBody().getProperties().isMovable = true;
-        baseObj.getRigidBody().getProperties().isMovable = true;
+        baseObj.getRigidBody().setMovable(true);
     }
 
     private void makeImmovable() {
         baseObj.addVisualAttributes(lockSymbol);
         // TODO Alter RigidBody properties of block to make immovable
-        baseObj.getRigidBody().getProperties().isMovable = false;
-        baseObj.getRigidBody().getProperties().isRotatable = false;
+        baseObj.getRigidBody().setMovable(false);
+        baseObj.getRigidBody().setRotatable(false);
     }
 
     @Override
@@ -1,6 +1,7 @@
 package bischemes.level.parts.behaviour;
 
 import bischemes.engine.GObject;
+import bischemes.engine.TextureRegion;
 import bischemes.engine.VisualAttribute;
 import bischemes.engine.VisualUtils;
 import bischemes.level.Level;
@@ -9,7 +10,6 @@ import bischemes.level.Room;
 import bischemes.level.parts.RObject;
 import bischemes.level.util.LColour;
 import bischemes.level.util.SpriteLoader;
-import processing.core.PImage;
 import processing.core.PVector;
 
 import javax.crypto.interfaces.PBEKey;
@@ -29,7 +29,7 @@ public class Teleporter {
 
     private VisualAttribute teleportIcon = null;
     private PVector iconDimensions;
-    private PImage iconTexture;
+    private TextureRegion iconTexture;
 
     private boolean mirrorX = false;
     private boolean mirrorY = false;
@@ -48,8 +48,10 @@ public class Teleporter {
         this.room = Room.getRoom(base);
         if (swapColour) //TODO eventually it would be nice for swapColour to be possible on all RObjects
             makePlayerOnly();
-        if (destination != null)
+        if (destination != null) {
             playerOnly = destination.getLevel().getId() != room.getLevel().getId();
+            room.addLinkedRoom(destination);
+        }
         Level l = room.getLevel();
         colourPrimary = l.getColourPrimary();
         colourSecondary = l.getColourSecondary();
@@ -60,7 +62,7 @@ public class Teleporter {
     }
 
 
-    public void addIcon(PVector maxDimension, PImage iconTexture) {
+    public void addIcon(PVector maxDimension, TextureRegion iconTexture) {
         iconDimensions = new PVector(
                 min(maxDimension.x, 1),
                 min(maxDimension.y, 1));
@@ -0,0 +1,170 @@
+package bischemes.level.util;
+
+/**
+ * Layout of compiled level files, written from Level JSON by LevelCompiler and read back by BParser.
+ *
+ * A compiled level file starts with a level header (magic, version, room count) followed by the offset and length of
+ * every Room block. A Room block holds a room header (magic, version, id, dimensions, spawn position and the length
+ * of each section) followed by its sections in order: primary geometry, secondary geometry, objects, adjacencies,
+ * behaviours and ints. Every section is an array of fixed size records, so any record is found from its index alone.
+ * Strings of the JSON (types, colours, sides...) are stored as the codes below, and all numbers are big-endian.
+ */
+public final class BFormat {
+
+    private BFormat() {}
+
+    /** Magic number starting a compiled level file, "BSLV" */
+    public static final int LEVEL_MAGIC = 0x42534C56;
+    /** Magic number starting a Room block, "BSRM" */
+    public static final int ROOM_MAGIC = 0x4253524D;
+    /** Version of the format. Files of another version are ignored and the Level JSON is parsed instead */
+    public static final short VERSION = 1;
+    /** Extension of compiled level files, which replaces ".json" in the name of the Level JSON file */
+    public static final String EXTENSION = ".bsl";
+
+    /** Level header: magic (int), version (short), reserved (short), room count (int) */
+    public static final int LEVEL_HEADER_SIZE = 12;
+    public static final int LEVEL_COUNT = 8;
+    /** Entry of every Room block after the level header: offset (int), length (int) */
+    public static final int LEVEL_ENTRY_SIZE = 8;
+
+    /** Room header: magic, version, reserved, id, dimensions, spawn position, then the record count of every section */
+    public static final int ROOM_HEADER_SIZE = 52;
+    public static final int ROOM_VERSION = 4;
+    public static final int ROOM_ID = 8;
+    public static final int ROOM_DIMENSIONS = 12;
+    public static final int ROOM_SPAWN = 20;
+    public static final int ROOM_COUNTS = 28;
+
+    /** Sections of a Room block, in order */
+    public static final int SECTION_PRIMARY = 0;
+    public static final int SECTION_SECONDARY = 1;
+    public static final int SECTION_OBJECTS = 2;
+    public static final int SECTION_ADJACENCIES = 3;
+    public static final int SECTION_BEHAVIOURS = 4;
+    public static final int SECTION_INTS = 5;
+    public static final int SECTION_COUNT = 6;
+
+    /** Part record, for geometry and RObjects alike */
+    public static final int PART_SIZE = 76;
+    public static final int PART_TYPE = 0;      // byte, RObjType ordinal
+    public static final int PART_SHAPE = 1;     // byte, SHAPE_ code of geometry
+    public static final int PART_COLOUR = 2;    // byte, LColour ordinal or NO_COLOUR
+    public static final int PART_FLAGS = 3;     // byte, F_ flags
+    public static final int PART_ID = 4;        // int
+    public static final int PART_AUX = 8;       // int: polygon sides, spike length, portal width or custom RB_ code
+    public static final int PART_SCALAR = 12;   // float: mass
+    public static final int PART_SURFACE = 16;  // 3 floats: restitution, static and dynamic friction
+    public static final int PART_PARAMS = 28;   // 8 floats, see P_ indices
+    public static final int PART_INTS = 60;     // int offset and int count in the ints section
+    public static final int PART_BEHAVIOURS = 68; // int offset and int count in the behaviours section
+
+    /** Indices of the part parameters */
+    public static final int P_ANCHOR = 0;       // anchor or corner, or range of an exit
+    public static final int P_DIMENSIONS = 2;   // dimensions, radius of a circle, or first vertex of a triangle
+    public static final int P_ORIENTATION = 4;  // orientation, or second vertex of a triangle
+    public static final int P_HEIGHT = 5;       // height of a trapezium
+    public static final int P_WIDTHS = 6;       // widths of a trapezium, or third vertex of a triangle
+    public static final int P_VERTEX1 = 2;
+    public static final int P_VERTEX2 = 4;
+    public static final int P_VERTEX3 = 6;
+
+    /** Adjacency record */
+    public static final int ADJACENCY_SIZE = 24;
+    public static final int ADJACENCY_ID = 0;           // int
+    public static final int ADJACENCY_COLOUR = 4;       // byte, LColour ordinal
+    public static final int ADJACENCY_FLAGS = 5;        // byte, F_ flags
+    public static final int ADJACENCY_RANGE = 8;        // 2 floats
+    public static final int ADJACENCY_DEST_ROOM = 16;   // int
+    public static final int ADJACENCY_LINK = 20;        // int
+
+    /** Behaviour record */
+    public static final int BEHAVIOUR_SIZE = 48;
+    public static final int BEHAVIOUR_TYPE = 0;         // byte, B_ code
+    public static final int BEHAVIOUR_FLAGS = 1;        // byte, BF_ flags
+    public static final int BEHAVIOUR_OFFSET_FLAGS = 2; // byte, BO_ flags
+    public static final int BEHAVIOUR_INDICATOR = 3;    // byte, INDICATOR_ code
+    public static final int BEHAVIOUR_AUX = 4;          // int: destination room id, or timer offset (-1 if none)
+    public static final int BEHAVIOUR_INTS = 8;         // int offset and int count in the ints section
+    public static final int BEHAVIOUR_PARAMS = 16;      // 8 floats, see BP_ indices
+
+    /** Indices of the behaviour parameters */
+    public static final int BP_DESTINATION = 0;
+    public static final int BP_RADIUS = 2;              // radius, or x and y distances
+    public static final int BP_ICON_SIZE = 4;           // -1 if there is no icon
+    public static final int BP_INDICATOR_OFFSET = 5;
+
+    /** Colour of parts without one */
+    public static final int NO_COLOUR = 0xFF;
+
+    /** Geometry shapes */
+    public static final int SHAPE_RECT = 0;
+    public static final int SHAPE_TRIANGLE = 1;
+    public static final int SHAPE_TRAPEZIUM = 2;
+    public static final int SHAPE_POLYGON = 3;
+    public static final int SHAPE_ELLIPSE = 4;
+    public static final int SHAPE_CIRCLE = 5;
+
+    /** Rigid bodies of custom RObjects */
+    public static final int RB_GEOMETRY = 0;
+    public static final int RB_NO_COLLISION = 1;
+    public static final int RB_ROTATEABLE = 2;
+    public static final int RB_MOVEABLE = 3;
+    public static final int RB_BLOCK = 4;
+
+    /** Part and adjacency flags */
+    public static final int F_CORNER = 1;       // positioned by "corner" rather than "anchor"
+    public static final int F_STATE = 2;        // "initState", or "startOpen" of a portal
+    public static final int F_ONE_WAY = 4;
+    public static final int F_VERTICAL = 8;
+    public static final int F_FLIP_FACE = 16;
+    public static final int F_ZERO_AXIS = 32;
+    public static final int F_LINKED = 64;      // adjacency with a destination room
+
+    /** Behaviours */
+    public static final int B_HIT_KILL = 0;
+    public static final int B_HIT_STATE_SWITCH = 1;
+    public static final int B_HIT_TELEPORT = 2;
+    public static final int B_INTERACT_TELEPORT = 3;
+    public static final int B_INTERACT_STATE_SWITCH = 4;
+    public static final int B_STATE_BLOCK = 5;
+    public static final int B_STATE_FLIP = 6;
+    public static final int B_STATE_HIDE = 7;
+    public static final int B_STATE_SWAP_COLOUR = 8;
+    public static final int B_STATE_SWITCH_STATES = 9;
+    public static final int B_UPDATE_TIMER = 10;
+
+    /** Behaviour flags */
+    public static final int BF_SWAP_COLOUR = 1;
+    public static final int BF_FLIP_GRAVITY = 2;
+    public static final int BF_HAS_ACTIVE_STATE = 4;
+    public static final int BF_ACTIVE_STATE = 8;
+    public static final int BF_PLAYER_ONLY = 16;
+    public static final int BF_RADIUS = 32;     // uses a radius rather than x and y distances
+    public static final int BF_INDICATOR = 64;
+    public static final int BF_STATE = 128;     // "initialState"
+
+    /** Behaviour offset flags, and the single period flag of timers */
+    public static final int BO_OFFSET = 1;      // offsetX, offsetY, mirrorX and mirrorY are provided
+    public static final int BO_OFFSET_X = 2;
+    public static final int BO_OFFSET_Y = 4;
+    public static final int BO_MIRROR_X = 8;
+    public static final int BO_MIRROR_Y = 16;
+    public static final int BO_SINGLE_PERIOD = 32;
+
+    /** Indicators of BInteractTeleport */
+    public static final int INDICATOR_INTERACT = 0;
+    public static final int INDICATOR_TELEPORT = 1;
+    public static final int INDICATOR_COLOUR_SWITCH = 2;
+
+    /**
+     * Gets the name of the compiled level file of a Level JSON file
+     * @param levelFile name of the Level JSON file
+     * @return the name with ".json" replaced by EXTENSION
+     */
+    public static String compiledName(String levelFile) {
+        if (levelFile.endsWith(".json")) levelFile = levelFile.substring(0, levelFile.length() - 5);
+        return levelFile + EXTENSION;
+    }
+
+}
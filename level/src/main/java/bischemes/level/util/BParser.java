@@ -0,0 +1,445 @@
+package bischemes.level.util;
+
+import bischemes.engine.GObject;
+import bischemes.level.Room;
+import bischemes.level.parts.Adjacency;
+import bischemes.level.parts.PartFactory;
+import bischemes.level.parts.RObjType;
+import bischemes.level.parts.RObject;
+import bischemes.level.parts.behaviour.*;
+import processing.core.PVector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static bischemes.level.util.BFormat.*;
+
+/**
+ * Builds Rooms from compiled level files (see BFormat), the binary counterpart of JParser. Compiled files are
+ * validated by LevelCompiler, so records are read as they are, without defaults or per field error handling.
+ */
+public final class BParser {
+
+    private static final RObjType[] TYPES = RObjType.values();
+    private static final LColour[] COLOURS = LColour.values();
+
+    private BParser(){}
+
+    /**
+     * Memory-maps a compiled level file and splits it into its Room blocks
+     * @param file the compiled level file
+     * @param totalRooms the number of Rooms the Level JSON file has
+     * @return a buffer for every Room block, or null if the file is of another version or room count
+     */
+    public static ByteBuffer[] mapLevel(Path file, int totalRooms) {
+        MappedByteBuffer b;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new LevelParseException("mapLevel(" + file + "), could not map compiled level file", e);
+        }
+        if (b.limit() < LEVEL_HEADER_SIZE || b.getInt(0) != LEVEL_MAGIC || b.getShort(4) != VERSION
+                || b.getInt(LEVEL_COUNT) != totalRooms) return null;
+        ByteBuffer[] rooms = new ByteBuffer[totalRooms];
+        for (int i = 0; i < totalRooms; i++) {
+            int entry = LEVEL_HEADER_SIZE + i * LEVEL_ENTRY_SIZE;
+            rooms[i] = b.slice(b.getInt(entry), b.getInt(entry + 4));
+        }
+        return rooms;
+    }
+
+    public static void checkRoomHeader(ByteBuffer b) {
+        if (b.limit() < ROOM_HEADER_SIZE || b.getInt(0) != ROOM_MAGIC)
+            throw new LevelParseException("compiled room does not start with a room header");
+        if (b.getShort(ROOM_VERSION) != VERSION)
+            throw new LevelParseException("compiled room is of version " + b.getShort(ROOM_VERSION) + ", expected " + VERSION);
+    }
+    public static int parseRoomId(ByteBuffer b) {
+        return b.getInt(ROOM_ID);
+    }
+    public static PVector parseRoomDimensions(ByteBuffer b) {
+        return parsePVec(b, ROOM_DIMENSIONS);
+    }
+    public static PVector parseRoomSpawnPosition(ByteBuffer b) {
+        return parsePVec(b, ROOM_SPAWN);
+    }
+
+    /** Gets the number of records in a section of a Room block */
+    public static int sectionCount(ByteBuffer b, int section) {
+        return b.getInt(ROOM_COUNTS + 4 * section);
+    }
+    /** Gets the position of a record in a section of a Room block */
+    public static int recordPosition(ByteBuffer b, int section, int index) {
+        int position = ROOM_HEADER_SIZE;
+        for (int s = 0; s < section; s++) position += sectionCount(b, s) * recordSize(s);
+        return position + index * recordSize(section);
+    }
+    private static int recordSize(int section) {
+        return switch (section) {
+            case SECTION_PRIMARY, SECTION_SECONDARY, SECTION_OBJECTS -> PART_SIZE;
+            case SECTION_ADJACENCIES -> ADJACENCY_SIZE;
+            case SECTION_BEHAVIOURS -> BEHAVIOUR_SIZE;
+            default -> 4;
+        };
+    }
+
+    private static PVector parsePVec(ByteBuffer b, int at) {
+        return new PVector(b.getFloat(at), b.getFloat(at + 4));
+    }
+    private static float parseParam(ByteBuffer b, int at, int param) {
+        return b.getFloat(at + PART_PARAMS + 4 * param);
+    }
+    private static PVector parseParamPVec(ByteBuffer b, int at, int param) {
+        return parsePVec(b, at + PART_PARAMS + 4 * param);
+    }
+    // Gets the anchor of an RObject, marking corners with a z of 1 as JParser does
+    private static PVector parseAnchor(ByteBuffer b, int at) {
+        PVector anchor = parseParamPVec(b, at, P_ANCHOR);
+        if (hasFlag(b, at + PART_FLAGS, F_CORNER)) anchor.z = 1;
+        return anchor;
+    }
+    private static boolean hasFlag(ByteBuffer b, int at, int flag) {
+        return (b.get(at) & flag) != 0;
+    }
+    private static LColour parseLColour(ByteBuffer b, int at) {
+        int colour = b.get(at) & 0xFF;
+        return colour == NO_COLOUR ? null : COLOURS[colour];
+    }
+    private static int[] parseInts(ByteBuffer b, int at) {
+        int[] ints = new int[b.getInt(at + 4)];
+        int position = recordPosition(b, SECTION_INTS, b.getInt(at));
+        for (int i = 0; i < ints.length; i++) ints[i] = b.getInt(position + 4 * i);
+        return ints;
+    }
+    private static void setSurfaceProperties(ByteBuffer b, int at, PartFactory pF) {
+        pF.setSurfaceProperties(b.getFloat(at + PART_SURFACE), b.getFloat(at + PART_SURFACE + 4),
+                b.getFloat(at + PART_SURFACE + 8));
+    }
+
+    public static void parseGeometryArr(ByteBuffer b, int section, GObject parent) {
+        PartFactory partFactory = new PartFactory();
+        for (int i = 0; i < sectionCount(b, section); i++)
+            parseGeometry(b, recordPosition(b, section, i), parent, partFactory);
+    }
+
+    public static GObject parseGeometry(ByteBuffer b, int at, GObject parent, PartFactory pF) {
+        setSurfaceProperties(b, at, pF);
+        PVector anchor = parseParamPVec(b, at, P_ANCHOR);
+        int shape = b.get(at + PART_SHAPE);
+        if (hasFlag(b, at + PART_FLAGS, F_CORNER)) {
+            return switch (shape) {
+                case SHAPE_RECT ->
+                        pF.createCornerRect(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                parseParam(b, at, P_ORIENTATION));
+                case SHAPE_TRIANGLE ->
+                        pF.createCornerTriangle(parent, anchor, parseParamPVec(b, at, P_VERTEX1),
+                                parseParamPVec(b, at, P_VERTEX2));
+                case SHAPE_TRAPEZIUM ->
+                        pF.createCornerTrapezium(parent, anchor, parseParam(b, at, P_ORIENTATION),
+                                parseParam(b, at, P_HEIGHT), parseParamPVec(b, at, P_WIDTHS));
+                default ->
+                        throw new LevelParseException("geometry shape " + shape + " is unknown");
+            };
+        }
+        else {
+            return switch (shape) {
+                case SHAPE_RECT ->
+                        pF.createRect(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                parseParam(b, at, P_ORIENTATION));
+                case SHAPE_TRIANGLE ->
+                        pF.createTriangle(parent, anchor, parseParamPVec(b, at, P_VERTEX1),
+                                parseParamPVec(b, at, P_VERTEX2), parseParamPVec(b, at, P_VERTEX3));
+                case SHAPE_TRAPEZIUM ->
+                        pF.createTrapezium(parent, anchor, parseParam(b, at, P_ORIENTATION),
+                                parseParam(b, at, P_HEIGHT), parseParamPVec(b, at, P_WIDTHS));
+                default ->
+                        throw new LevelParseException("geometry shape " + shape + " is unknown");
+            };
+        }
+    }
+
+    public static void parseRObjectArr(ByteBuffer b, GObject parent, List<RObject> roomObjects) {
+        PartFactory partFactory = new PartFactory();
+        for (int i = 0; i < sectionCount(b, SECTION_OBJECTS); i++)
+            roomObjects.add(parseRObject(b, recordPosition(b, SECTION_OBJECTS, i), parent, partFactory));
+    }
+
+    public static RObject parseRObject(ByteBuffer b, int at, GObject parent, PartFactory pF) {
+        RObjType type = TYPES[b.get(at + PART_TYPE)];
+        int id = b.getInt(at + PART_ID);
+
+        if (type == RObjType.EXIT)
+            return parseExit(b, at, parent, pF, id);
+
+        setSurfaceProperties(b, at, pF);
+
+        return switch (type) {
+            case GEOMETRY -> parseGeometryRObj(b, at, parent, pF, id, true);
+            case BLOCK -> parseBlock(b, at, parent, pF, id);
+            case DOOR -> parseDoor(b, at, parent, pF, id);
+            case LEVER -> pF.makeLever(parent, parseAnchor(b, at), parseParam(b, at, P_ORIENTATION),
+                    parseInts(b, at + PART_INTS), parseLColour(b, at + PART_COLOUR), id);
+            case SPIKE -> pF.makeSpike(parent, parseAnchor(b, at), parseParam(b, at, P_ORIENTATION),
+                    b.getInt(at + PART_AUX), parseLColour(b, at + PART_COLOUR), id);
+            case PORTAL -> parsePortal(b, at, parent, pF, id);
+            case CUSTOM -> parseCustom(b, at, parent, pF, id);
+            default -> throw new IllegalStateException("Unexpected value: " + type);
+        };
+    }
+
+    public static RObject parseGeometryRObj(ByteBuffer b, int at, GObject parent, PartFactory pF, int id,
+                                            boolean resetRB) {
+        LColour colour = parseLColour(b, at + PART_COLOUR);
+        PVector anchor = parseAnchor(b, at);
+        int shape = b.get(at + PART_SHAPE);
+
+        if (resetRB) pF.initRBGeometry();
+
+        if (hasFlag(b, at + PART_FLAGS, F_CORNER)) {
+            return switch (shape) {
+                case SHAPE_RECT ->
+                        pF.createCornerRect(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                parseParam(b, at, P_ORIENTATION), colour, id);
+                case SHAPE_TRIANGLE ->
+                        pF.createCornerTriangle(parent, anchor, parseParamPVec(b, at, P_VERTEX1),
+                                parseParamPVec(b, at, P_VERTEX2), colour, id);
+                case SHAPE_TRAPEZIUM ->
+                        pF.createCornerTrapezium(parent, anchor, parseParam(b, at, P_ORIENTATION),
+                                parseParam(b, at, P_HEIGHT), parseParamPVec(b, at, P_WIDTHS), colour, id);
+                default ->
+                        throw new LevelParseException("geometry shape " + shape + " is unknown when defining by corner");
+            };
+        }
+        else {
+            return switch (shape) {
+                case SHAPE_RECT ->
+                        pF.createRect(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                parseParam(b, at, P_ORIENTATION), colour, id);
+                case SHAPE_TRIANGLE ->
+                        pF.createTriangle(parent, anchor, parseParamPVec(b, at, P_VERTEX1),
+                                parseParamPVec(b, at, P_VERTEX2), parseParamPVec(b, at, P_VERTEX3), colour, id);
+                case SHAPE_POLYGON ->
+                        pF.createPolygon(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                b.getInt(at + PART_AUX), parseParam(b, at, P_ORIENTATION), colour, id);
+                case SHAPE_ELLIPSE ->
+                        pF.createEllipse(parent, anchor, parseParamPVec(b, at, P_DIMENSIONS),
+                                parseParam(b, at, P_ORIENTATION), colour, id);
+                case SHAPE_CIRCLE ->
+                        pF.createCircle(parent, anchor, parseParam(b, at, P_DIMENSIONS), colour, id);
+                case SHAPE_TRAPEZIUM ->
+                        pF.createTrapezium(parent, anchor, parseParam(b, at, P_ORIENTATION),
+                                parseParam(b, at, P_HEIGHT), parseParamPVec(b, at, P_WIDTHS), colour, id);
+                default ->
+                        throw new LevelParseException("geometry shape " + shape + " is unknown");
+            };
+        }
+    }
+
+    public static RObject parseBlock(ByteBuffer b, int at, GObject parent, PartFactory pF, int id) {
+        LColour colour = parseLColour(b, at + PART_COLOUR);
+        PVector anchor = parseAnchor(b, at);
+        PVector dimensions = parseParamPVec(b, at, P_DIMENSIONS);
+        boolean initState = hasFlag(b, at + PART_FLAGS, F_STATE);
+        double mass = b.getFloat(at + PART_SCALAR);
+        if (hasFlag(b, at + PART_FLAGS, F_CORNER))
+            return pF.makeCornerBlock(parent, anchor, dimensions, initState, mass, colour, id);
+        else return pF.makeBlock(parent, anchor, dimensions, initState, mass, colour, id);
+    }
+
+    public static RObject parseDoor(ByteBuffer b, int at, GObject parent, PartFactory pF, int id) {
+        LColour colour = parseLColour(b, at + PART_COLOUR);
+        PVector anchor = parseAnchor(b, at);
+        PVector dimensions = parseParamPVec(b, at, P_DIMENSIONS);
+        boolean initState = hasFlag(b, at + PART_FLAGS, F_STATE);
+        if (hasFlag(b, at + PART_FLAGS, F_CORNER))
+            return pF.makeCornerDoor(parent, anchor, dimensions, initState, colour, id);
+        else return pF.makeDoor(parent, anchor, dimensions, initState, colour, id);
+    }
+
+    public static RObject parsePortal(ByteBuffer b, int at, GObject parent, PartFactory pF, int id) {
+        PVector anchor = parseAnchor(b, at);
+        int width = b.getInt(at + PART_AUX);
+        LColour colour = parseLColour(b, at + PART_COLOUR);
+        boolean initialState = hasFlag(b, at + PART_FLAGS, F_STATE);
+        boolean isVertical = hasFlag(b, at + PART_FLAGS, F_VERTICAL);
+        if (hasFlag(b, at + PART_FLAGS, F_ONE_WAY))
+            return pF.makeOnewayPortal(parent, anchor, width, isVertical, hasFlag(b, at + PART_FLAGS, F_FLIP_FACE),
+                    initialState, colour, id);
+        else return pF.makePortal(parent, anchor, width, isVertical, initialState, colour, id);
+    }
+
+    public static RObject parseExit(ByteBuffer b, int at, GObject parent, PartFactory pF, int id) {
+        return pF.makeExit(parent, parseParamPVec(b, at, P_ANCHOR), hasFlag(b, at + PART_FLAGS, F_VERTICAL),
+                hasFlag(b, at + PART_FLAGS, F_ZERO_AXIS), id, parseLColour(b, at + PART_COLOUR));
+    }
+
+    public static RObject parseCustom(ByteBuffer b, int at, GObject parent, PartFactory pF, int id) {
+        double mass = b.getFloat(at + PART_SCALAR);
+        switch (b.getInt(at + PART_AUX)) {
+            case RB_GEOMETRY -> pF.initRBGeometry();
+            case RB_NO_COLLISION -> pF.initRBNoCollision();
+            case RB_ROTATEABLE -> pF.initRBRotateable(mass);
+            case RB_MOVEABLE -> pF.initRBMoveable(mass);
+            case RB_BLOCK -> pF.initRBBlock(mass);
+            default -> throw new LevelParseException("custom rigid body " + b.getInt(at + PART_AUX) + " is unknown");
+        }
+
+        RObject customObj = parseGeometryRObj(b, at, parent, pF, id, false);
+        int first = b.getInt(at + PART_BEHAVIOURS);
+        for (int i = 0; i < b.getInt(at + PART_BEHAVIOURS + 4); i++)
+            parseBehaviour(b, recordPosition(b, SECTION_BEHAVIOURS, first + i), customObj);
+        return customObj;
+    }
+
+    public static Behaviour parseBehaviour(ByteBuffer b, int at, RObject customObj) {
+        int type = b.get(at + BEHAVIOUR_TYPE);
+        return switch (type) {
+            case B_HIT_KILL -> BHitKill.assign(customObj);
+            case B_HIT_STATE_SWITCH -> BHitStateSwitch.assign(customObj);
+            case B_HIT_TELEPORT -> parseBHitTeleport(b, at, customObj);
+            case B_INTERACT_TELEPORT -> parseBInteractTeleport(b, at, customObj);
+            case B_INTERACT_STATE_SWITCH -> parseBInteractStateSwitch(b, at, customObj);
+            case B_STATE_BLOCK -> {
+                float iconSize = parseBehaviourParam(b, at, BP_ICON_SIZE);
+                yield BStateBlock.assign(customObj, hasFlag(b, at + BEHAVIOUR_FLAGS, BF_STATE),
+                        new PVector(iconSize, iconSize));
+            }
+            case B_STATE_FLIP -> BStateFlip.assign(customObj, hasFlag(b, at + BEHAVIOUR_FLAGS, BF_STATE));
+            case B_STATE_HIDE -> {
+                BStateHide h = BStateHide.assign(customObj, hasFlag(b, at + BEHAVIOUR_FLAGS, BF_STATE));
+                float iconSize = parseBehaviourParam(b, at, BP_ICON_SIZE);
+                if (iconSize != -1) h.addLockIcon(new PVector(iconSize, iconSize));
+                yield h;
+            }
+            case B_STATE_SWAP_COLOUR -> {
+                BStateSwapColour s = BStateSwapColour.assign(customObj);
+                float iconSize = parseBehaviourParam(b, at, BP_ICON_SIZE);
+                if (iconSize != -1) s.addSwitchIcon(new PVector(iconSize, iconSize));
+                yield s;
+            }
+            case B_STATE_SWITCH_STATES -> BStateSwitchStates.assign(customObj, parseInts(b, at + BEHAVIOUR_INTS));
+            case B_UPDATE_TIMER -> parseBUpdateTimer(b, at, customObj);
+            default -> throw new LevelParseException("behaviour " + type + " is unknown");
+        };
+    }
+
+    private static float parseBehaviourParam(ByteBuffer b, int at, int param) {
+        return b.getFloat(at + BEHAVIOUR_PARAMS + 4 * param);
+    }
+    private static PVector parseBehaviourPVec(ByteBuffer b, int at, int param) {
+        return parsePVec(b, at + BEHAVIOUR_PARAMS + 4 * param);
+    }
+
+    public static BHitTeleport parseBHitTeleport(ByteBuffer b, int at, RObject customObj) {
+        PVector link = parseBehaviourPVec(b, at, BP_DESTINATION);
+        int flags = b.get(at + BEHAVIOUR_FLAGS), offsetFlags = b.get(at + BEHAVIOUR_OFFSET_FLAGS);
+        boolean swapColour = (flags & BF_SWAP_COLOUR) != 0;
+        int roomId = b.getInt(at + BEHAVIOUR_AUX);
+
+        BHitTeleport t;
+        if (roomId == -1) t = BHitTeleport.assign(customObj, link, swapColour);
+        else t = BHitTeleport.assign(customObj, Room.getRoom(customObj).getLevel().getRoom(roomId), link, swapColour);
+
+        t.configureGravityFlip((flags & BF_FLIP_GRAVITY) != 0);
+        if ((flags & BF_HAS_ACTIVE_STATE) != 0) t.setActiveOnState((flags & BF_ACTIVE_STATE) != 0);
+        if ((flags & BF_PLAYER_ONLY) != 0) t.makePlayerOnly();
+        float iconSize = parseBehaviourParam(b, at, BP_ICON_SIZE);
+        if (iconSize != -1) t.addTeleportIcon(new PVector(iconSize, iconSize));
+        if ((offsetFlags & BO_OFFSET) != 0)
+            t.configureOffset((offsetFlags & BO_OFFSET_X) != 0, (offsetFlags & BO_OFFSET_Y) != 0,
+                    (offsetFlags & BO_MIRROR_X) != 0, (offsetFlags & BO_MIRROR_Y) != 0);
+        return t;
+    }
+
+    public static BInteractTeleport parseBInteractTeleport(ByteBuffer b, int at, RObject customObj) {
+        PVector link = parseBehaviourPVec(b, at, BP_DESTINATION);
+        int flags = b.get(at + BEHAVIOUR_FLAGS), offsetFlags = b.get(at + BEHAVIOUR_OFFSET_FLAGS);
+        boolean swapColour = (flags & BF_SWAP_COLOUR) != 0;
+        int roomId = b.getInt(at + BEHAVIOUR_AUX);
+        Room destination = roomId == -1 ? null : Room.getRoom(customObj).getLevel().getRoom(roomId);
+        float x = parseBehaviourParam(b, at, BP_RADIUS), y = parseBehaviourParam(b, at, BP_RADIUS + 1);
+
+        BInteractTeleport t;
+        if ((flags & BF_RADIUS) != 0) {
+            if (destination == null) t = BInteractTeleport.assign(customObj, x, link, swapColour);
+            else t = BInteractTeleport.assign(customObj, x, destination, link, swapColour);
+        }
+        else {
+            if (destination == null) t = BInteractTeleport.assign(customObj, x, y, link, swapColour);
+            else t = BInteractTeleport.assign(customObj, x, y, destination, link, swapColour);
+        }
+
+        t.configureGravityFlip((flags & BF_FLIP_GRAVITY) != 0);
+        if ((flags & BF_HAS_ACTIVE_STATE) != 0) t.setActiveOnState((flags & BF_ACTIVE_STATE) != 0);
+        t.makePlayerOnly();
+        float iconSize = parseBehaviourParam(b, at, BP_ICON_SIZE);
+        if (iconSize != -1) t.addTeleportIcon(new PVector(iconSize, iconSize));
+        if ((flags & BF_INDICATOR) != 0) {
+            PVector indicatorOffset = parseBehaviourPVec(b, at, BP_INDICATOR_OFFSET);
+            switch (b.get(at + BEHAVIOUR_INDICATOR)) {
+                case INDICATOR_TELEPORT -> t.addTeleportIndicator(indicatorOffset);
+                case INDICATOR_COLOUR_SWITCH -> t.addColourSwitchIndicator(indicatorOffset);
+                default -> t.addIndicator(indicatorOffset);
+            }
+        }
+        if ((offsetFlags & BO_OFFSET) != 0)
+            t.configureOffset((offsetFlags & BO_OFFSET_X) != 0, (offsetFlags & BO_OFFSET_Y) != 0,
+                    (offsetFlags & BO_MIRROR_X) != 0, (offsetFlags & BO_MIRROR_Y) != 0);
+        return t;
+    }
+
+    public static BInteractStateSwitch parseBInteractStateSwitch(ByteBuffer b, int at, RObject customObj) {
+        BInteractStateSwitch s;
+        if (hasFlag(b, at + BEHAVIOUR_FLAGS, BF_RADIUS))
+            s = BInteractStateSwitch.assign(customObj, parseBehaviourParam(b, at, BP_RADIUS));
+        else
+            s = BInteractStateSwitch.assign(customObj, parseBehaviourParam(b, at, BP_RADIUS),
+                    parseBehaviourParam(b, at, BP_RADIUS + 1));
+        if (hasFlag(b, at + BEHAVIOUR_FLAGS, BF_INDICATOR))
+            s.addIndicator(parseBehaviourPVec(b, at, BP_INDICATOR_OFFSET));
+        if (hasFlag(b, at + BEHAVIOUR_FLAGS, BF_HAS_ACTIVE_STATE))
+            s.setActiveOnState(hasFlag(b, at + BEHAVIOUR_FLAGS, BF_ACTIVE_STATE));
+        return s;
+    }
+
+    public static BUpdateTimer parseBUpdateTimer(ByteBuffer b, int at, RObject customObj) {
+        int[] periods = parseInts(b, at + BEHAVIOUR_INTS);
+        int offset = b.getInt(at + BEHAVIOUR_AUX);
+
+        BUpdateTimer t;
+        if (hasFlag(b, at + BEHAVIOUR_OFFSET_FLAGS, BO_SINGLE_PERIOD)) {
+            if (offset == -1) t = BUpdateTimer.assign(customObj, periods[0]);
+            else t = BUpdateTimer.assign(customObj, periods[0], offset);
+        }
+        else {
+            if (offset == -1) t = BUpdateTimer.assign(customObj, periods);
+            else t = BUpdateTimer.assign(customObj, periods, offset);
+        }
+        if (hasFlag(b, at + BEHAVIOUR_FLAGS, BF_HAS_ACTIVE_STATE))
+            t.setActiveOnState(hasFlag(b, at + BEHAVIOUR_FLAGS, BF_ACTIVE_STATE));
+        return t;
+    }
+
+    public static void parseAdjacencyArr(ByteBuffer b, GObject parent, List<Adjacency> adjacencies) {
+        for (int i = 0; i < sectionCount(b, SECTION_ADJACENCIES); i++)
+            adjacencies.add(parseAdjacency(b, recordPosition(b, SECTION_ADJACENCIES, i), parent));
+    }
+
+    public static Adjacency parseAdjacency(ByteBuffer b, int at, GObject parent) {
+        int id = b.getInt(at + ADJACENCY_ID);
+        LColour colour = parseLColour(b, at + ADJACENCY_COLOUR);
+        PVector range = parsePVec(b, at + ADJACENCY_RANGE);
+        boolean isVertical = hasFlag(b, at + ADJACENCY_FLAGS, F_VERTICAL);
+        boolean zeroAxis = hasFlag(b, at + ADJACENCY_FLAGS, F_ZERO_AXIS);
+        if (hasFlag(b, at + ADJACENCY_FLAGS, F_LINKED))
+            return new Adjacency(parent, range, b.getInt(at + ADJACENCY_DEST_ROOM), b.getInt(at + ADJACENCY_LINK),
+                    isVertical, zeroAxis, id, colour);
+        return new Adjacency(parent, range, isVertical, zeroAxis, id, colour);
+    }
+
+}
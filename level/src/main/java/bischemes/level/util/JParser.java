@@ -11,6 +11,7 @@ import processing.core.PVector;
 
 import javax.json.JsonArray;
 import javax.json.JsonObject;
+import javax.json.stream.JsonParser;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -446,7 +447,7 @@ public final class JParser {
         RObject customObj = parseGeometryRObj(obj, parent, pF, anchor, id, false);
         parseBehaviours(obj, "behaviours", customObj);
 
-        return null;
+        return customObj;
     }
 
     public static List<Behaviour> parseBehaviours(JsonObject obj, String name, RObject customObj) {
@@ -457,7 +458,7 @@ public final class JParser {
         int i = 0;
         try {
             for (; i < arr.size(); i++)
-                behaviours.add(parseBehaviour(obj, customObj));
+                behaviours.add(parseBehaviour(arr.getJsonObject(i), customObj));
         }
         catch (ClassCastException e) { throw new LevelParseException("parseBehaviours(obj, " + name + ", parent), encountered an exception: \n\t\"" + name + "\" array does not contain assignable JsonObjects at index " + i); }
         catch (LevelParseException e) { throw new LevelParseException("parseBehaviours(obj, " + name + ", parent), encountered an exception at index " + i + ":\n\t" + e.getLocalizedMessage()); }
@@ -772,4 +773,75 @@ public final class JParser {
         return adjacency;
     }
 
+    // Streaming parsing, for a JsonParser positioned within Room JSON. Only the element of an array which is being
+    // parsed is read into a JsonObject, so that large Rooms are never held in memory whole
+
+    /**
+     * Advances a JsonParser, positioned within a JsonObject, to its next key
+     * @param parser the JsonParser
+     * @return the name of the key, or null if the end of the JsonObject was reached instead
+     */
+    public static String nextKey(JsonParser parser) {
+        JsonParser.Event event = parser.next();
+        if (event == JsonParser.Event.END_OBJECT) return null;
+        if (event != JsonParser.Event.KEY_NAME)
+            throw new LevelParseException("expected a key but encountered " + event);
+        return parser.getString();
+    }
+    /** Advances a JsonParser past the value of the key it is positioned at */
+    public static void skipValue(JsonParser parser) {
+        switch (parser.next()) {
+            case START_OBJECT -> parser.skipObject();
+            case START_ARRAY -> parser.skipArray();
+            default -> {}
+        }
+    }
+    public static void startObj(JsonParser parser, String name) {
+        if (parser.next() != JsonParser.Event.START_OBJECT)
+            throw new LevelParseException("\"" + name + "\" is not a JsonObject");
+    }
+    public static void startArr(JsonParser parser, String name) {
+        if (parser.next() != JsonParser.Event.START_ARRAY)
+            throw new LevelParseException("\"" + name + "\" is not a JsonArray");
+    }
+    // Advances to the next element of an array, returning false at the end of the array
+    private static boolean nextElement(JsonParser parser, String name, int i) {
+        JsonParser.Event event = parser.next();
+        if (event == JsonParser.Event.END_ARRAY) return false;
+        if (event != JsonParser.Event.START_OBJECT)
+            throw new LevelParseException("\"" + name + "\" array does not contain assignable JsonObjects at index " + i);
+        return true;
+    }
+
+    public static void parseGeometryArr(JsonParser parser, String name, GObject parent) {
+        startArr(parser, name);
+        PartFactory partFactory = new PartFactory();
+        int i = 0;
+        try { for (; nextElement(parser, name, i); i++) parseGeometry(parser.getObject(), parent, partFactory); }
+        catch (LevelParseException e) { throw new LevelParseException("parseGeometryArr(parser, " + name + ", parent), encountered an exception at index " + i + ":\n\t" + e.getLocalizedMessage()); }
+    }
+
+    public static void parseRObjectArr(JsonParser parser, String name, GObject parent, List<RObject> roomObjects) {
+        startArr(parser, name);
+        PartFactory partFactory = new PartFactory();
+        int i = 0;
+        try {
+            for (; nextElement(parser, name, i); i++)
+                roomObjects.add(parseRObject(parser.getObject(), parent, partFactory));
+        }
+        catch (LevelParseException e) {
+            throw new LevelParseException("parseRObjectArr(parser, " + name + ", parent), encountered an exception at index " + i + ":\n\t" + e.getLocalizedMessage()); }
+    }
+
+    public static void parseAdjacencyArr(JsonParser parser, String name, GObject parent, List<Adjacency> adjacencies) {
+        startArr(parser, name);
+        int i = 0;
+        try {
+            for (; nextElement(parser, name, i); i++)
+                adjacencies.add(parseAdjacency(parser.getObject(), parent));
+        }
+        catch (LevelParseException e) {
+            throw new LevelParseException("parseAdjacencyArr(parser, " + name + ", parent), encountered an exception at index " + i + ":\n\t" + e.getLocalizedMessage()); }
+    }
+
 }
@@ -0,0 +1,451 @@
+package bischemes.level.util;
+
+import bischemes.level.Level;
+import bischemes.level.parts.RObjType;
+import processing.core.PVector;
+
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static bischemes.level.util.BFormat.*;
+import static bischemes.level.util.JParser.*;
+
+/**
+ * Compiles Level JSON into compiled level files (see BFormat), written next to the Level JSON files they come from.
+ * Every Level is first built from its JSON as the game would, so a Level which fails to load is never compiled, and
+ * compiled files can be read back without any validation.
+ *
+ * Usage: LevelCompiler [levels directory]
+ */
+public final class LevelCompiler {
+
+    /** Default directory name for where level JSON files are stored */
+    private final static String DEFAULT_LEVEL_DIR = "levels";
+    /** Default name for level JSON files when the level is contained in a subdirectory*/
+    private final static String DEFAULT_INFO_FILE = "info.json";
+
+    private LevelCompiler() {}
+
+    public static void main(String[] args) {
+        String directory = args.length > 0 ? args[0] : DEFAULT_LEVEL_DIR;
+        int failures = 0;
+        List<Path> items;
+        try (Stream<Path> stream = Files.list(Paths.get(directory))) {
+            items = stream.sorted().toList();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (Path p : items) {
+            if (p.toString().endsWith(EXTENSION)) continue;
+            try {
+                Path compiled;
+                if (p.toFile().isFile()) compiled = compile(directory, p.toFile().getName());
+                else compiled = compile(p.toString(), DEFAULT_INFO_FILE);
+                System.out.println("Compiled \"" + p + "\" to \"" + compiled + "\"");
+            } catch (RuntimeException e) {
+                System.out.println("Could not compile \"" + p + "\":\n\t" + e.getLocalizedMessage());
+                failures++;
+            }
+        }
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * Validates a Level JSON file and the Room JSON it refers to, then writes its compiled level file
+     * @param levelDir the directory of the Level JSON file
+     * @param infoFile the filename of the Level JSON file
+     * @return the path of the compiled level file
+     */
+    public static Path compile(String levelDir, String infoFile) {
+        Level level = Level.parseLevel(levelDir, infoFile, false);
+        level.initialiseRooms(false);
+        level.releaseRooms();
+
+        JsonObject[] roomObjs = level.readRoomJson();
+        byte[][] blocks = new byte[roomObjs.length][];
+        int size = LEVEL_HEADER_SIZE + roomObjs.length * LEVEL_ENTRY_SIZE;
+        for (int i = 0; i < roomObjs.length; i++) {
+            blocks[i] = compileRoom(roomObjs[i]);
+            size += blocks[i].length;
+        }
+
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(LEVEL_MAGIC).putShort(VERSION).putShort((short) 0).putInt(roomObjs.length);
+        int offset = LEVEL_HEADER_SIZE + roomObjs.length * LEVEL_ENTRY_SIZE;
+        for (byte[] block : blocks) {
+            b.putInt(offset).putInt(block.length);
+            offset += block.length;
+        }
+        for (byte[] block : blocks) b.put(block);
+
+        try {
+            Files.write(level.getCompiledPath(), b.array());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return level.getCompiledPath();
+    }
+
+    /**
+     * Compiles the Room JSON of a single Room into a Room block
+     * @param roomJson the JsonObject holding the Room JSON, already validated
+     * @return the Room block
+     */
+    public static byte[] compileRoom(JsonObject roomJson) {
+        RoomBlock block = new RoomBlock();
+        JsonObject geometry = parseObj(roomJson, "geometry");
+        JsonArray arr = parseArr(geometry, "primary");
+        for (int i = 0; i < arr.size(); i++)
+            block.sections.get(SECTION_PRIMARY).add(compileGeometry(arr.getJsonObject(i)));
+        arr = parseArr(geometry, "secondary");
+        for (int i = 0; i < arr.size(); i++)
+            block.sections.get(SECTION_SECONDARY).add(compileGeometry(arr.getJsonObject(i)));
+        arr = parseArr(roomJson, "objects");
+        for (int i = 0; i < arr.size(); i++)
+            block.sections.get(SECTION_OBJECTS).add(compileRObject(arr.getJsonObject(i), block));
+        arr = parseArr(roomJson, "adjacent");
+        for (int i = 0; i < arr.size(); i++)
+            block.sections.get(SECTION_ADJACENCIES).add(compileAdjacency(arr.getJsonObject(i)));
+
+        int size = ROOM_HEADER_SIZE + block.ints.size() * 4;
+        for (int s = 0; s < SECTION_INTS; s++)
+            for (ByteBuffer record : block.sections.get(s)) size += record.capacity();
+
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(ROOM_MAGIC).putShort(VERSION).putShort((short) 0).putInt(parseInt(roomJson, "id"));
+        putPVec(b, parsePVec(roomJson, "dimensions"));
+        putPVec(b, parsePVec(roomJson, "spawnPosition"));
+        for (int s = 0; s < SECTION_INTS; s++) b.putInt(block.sections.get(s).size());
+        b.putInt(block.ints.size());
+        for (int s = 0; s < SECTION_INTS; s++)
+            for (ByteBuffer record : block.sections.get(s)) b.put(record.array());
+        for (int i : block.ints) b.putInt(i);
+        return b.array();
+    }
+
+    /** Records of a Room block being compiled, by section */
+    private static final class RoomBlock {
+        private final List<List<ByteBuffer>> sections = new ArrayList<>(SECTION_COUNT);
+        private final List<Integer> ints = new ArrayList<>();
+
+        private RoomBlock() {
+            for (int s = 0; s < SECTION_INTS; s++) sections.add(new ArrayList<>());
+        }
+
+        /** Appends ints to the ints section and writes their offset and count at a position of a record */
+        private void putInts(ByteBuffer record, int at, int[] values) {
+            record.putInt(at, ints.size()).putInt(at + 4, values.length);
+            for (int value : values) ints.add(value);
+        }
+    }
+
+    private static void putPVec(ByteBuffer b, PVector v) {
+        b.putFloat(v.x).putFloat(v.y);
+    }
+    private static void putPVec(ByteBuffer b, int at, PVector v) {
+        b.putFloat(at, v.x).putFloat(at + 4, v.y);
+    }
+    private static void putParam(ByteBuffer part, int param, float value) {
+        part.putFloat(PART_PARAMS + 4 * param, value);
+    }
+    private static void putParam(ByteBuffer part, int param, PVector value) {
+        putPVec(part, PART_PARAMS + 4 * param, value);
+    }
+    private static void putFlag(ByteBuffer record, int at, int flag, boolean value) {
+        if (value) record.put(at, (byte) (record.get(at) | flag));
+    }
+    private static void putSurface(ByteBuffer part, JsonObject obj) {
+        part.putFloat(PART_SURFACE, (float) parseDouble(obj, "restitution", 0));
+        part.putFloat(PART_SURFACE + 4, (float) parseDouble(obj, "staticFriction", 1));
+        part.putFloat(PART_SURFACE + 8, (float) parseDouble(obj, "dynamicFriction", 1));
+    }
+    private static ByteBuffer newPart(RObjType type, LColour colour) {
+        ByteBuffer part = ByteBuffer.allocate(PART_SIZE);
+        part.put(PART_TYPE, (byte) type.ordinal());
+        part.put(PART_COLOUR, (byte) (colour == null ? NO_COLOUR : colour.ordinal()));
+        return part;
+    }
+
+    // Writes the position, shape and shape parameters of a geometry part
+    private static void putShape(ByteBuffer part, JsonObject obj, String typeKey) {
+        PVector corner = parsePVecOrNull(obj, "corner");
+        putFlag(part, PART_FLAGS, F_CORNER, corner != null);
+        putParam(part, P_ANCHOR, corner != null ? corner : parsePVec(obj, "anchor"));
+        String type = parseStr(obj, typeKey).toUpperCase();
+        switch (type) {
+            case "RECT" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_RECT);
+                putParam(part, P_DIMENSIONS, parsePVec(obj, "dimensions"));
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+            }
+            case "TRIANGLE" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_TRIANGLE);
+                putParam(part, P_VERTEX1, parsePVec(obj, "vertex1"));
+                putParam(part, P_VERTEX2, parsePVec(obj, "vertex2"));
+                if (corner == null) putParam(part, P_VERTEX3, parsePVec(obj, "vertex3"));
+            }
+            case "TRAPEZIUM" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_TRAPEZIUM);
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+                putParam(part, P_HEIGHT, parseFloat(obj, "height", 1f));
+                putParam(part, P_WIDTHS, parsePVec(obj, "widths"));
+            }
+            case "POLYGON" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_POLYGON);
+                putParam(part, P_DIMENSIONS, parsePVec(obj, "dimensions"));
+                part.putInt(PART_AUX, parseInt(obj, "sides"));
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+            }
+            case "ELLIPSE" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_ELLIPSE);
+                putParam(part, P_DIMENSIONS, parsePVec(obj, "dimensions"));
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+            }
+            case "CIRCLE" -> {
+                part.put(PART_SHAPE, (byte) SHAPE_CIRCLE);
+                putParam(part, P_DIMENSIONS, parseFloat(obj, "radius"));
+            }
+            default -> throw new LevelParseException("\"" + typeKey + "\" of \"" + type + "\" is unknown");
+        }
+    }
+
+    // Writes the flags of a side of the room, as JParser reads them for adjacencies and exits
+    private static void putSide(ByteBuffer record, int at, String side) {
+        switch (side.toUpperCase()) {
+            case "RIGHT" -> {}
+            case "LEFT" -> putFlag(record, at, F_ZERO_AXIS, true);
+            case "TOP" -> putFlag(record, at, F_VERTICAL, true);
+            case "BOTTOM" -> putFlag(record, at, F_VERTICAL | F_ZERO_AXIS, true);
+            default -> throw new LevelParseException("\"side\" of \"" + side + "\" is unknown");
+        }
+    }
+
+    public static ByteBuffer compileGeometry(JsonObject obj) {
+        ByteBuffer part = newPart(RObjType.GEOMETRY, null);
+        putSurface(part, obj);
+        putShape(part, obj, "type");
+        return part;
+    }
+
+    private static ByteBuffer compileRObject(JsonObject obj, RoomBlock block) {
+        RObjType type = parseRObjType(obj, "type");
+        int id = parseInt(obj, "id");
+
+        if (type == RObjType.EXIT) {
+            ByteBuffer part = newPart(type, parseLColour(obj, "colour", LColour.SECONDARY));
+            part.putInt(PART_ID, id);
+            putParam(part, P_ANCHOR, parsePVec(obj, "range"));
+            putSide(part, PART_FLAGS, parseStr(obj, "side"));
+            return part;
+        }
+
+        ByteBuffer part;
+        switch (type) {
+            case GEOMETRY -> {
+                part = newPart(type, parseLColour(obj, "colour"));
+                putShape(part, obj, "gType");
+            }
+            case BLOCK, DOOR -> {
+                part = newPart(type, parseLColour(obj, "colour"));
+                putBox(part, obj);
+                putFlag(part, PART_FLAGS, F_STATE, parseBoolean(obj, "initState", false));
+                if (type == RObjType.BLOCK) part.putFloat(PART_SCALAR, (float) parseDouble(obj, "mass", 1));
+            }
+            case LEVER -> {
+                part = newPart(type, parseLColour(obj, "colour"));
+                putParam(part, P_ANCHOR, parsePVec(obj, "anchor"));
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+                block.putInts(part, PART_INTS, parseInts(obj, "linkedTo"));
+            }
+            case SPIKE -> {
+                part = newPart(type, parseLColour(obj, "colour"));
+                putParam(part, P_ANCHOR, parsePVec(obj, "anchor"));
+                putParam(part, P_ORIENTATION, parseFloat(obj, "orientation", 0f));
+                part.putInt(PART_AUX, parseInt(obj, "length", 1));
+            }
+            case PORTAL -> part = compilePortal(obj);
+            case CUSTOM -> {
+                part = newPart(type, parseLColour(obj, "colour"));
+                putShape(part, obj, "gType");
+                String rbType = parseStr(obj, "rbType", "GEOMETRY");
+                part.putInt(PART_AUX, switch (rbType.toUpperCase()) {
+                    case "GEOMETRY" -> RB_GEOMETRY;
+                    case "NO COLLISION" -> RB_NO_COLLISION;
+                    case "ROTATEABLE" -> RB_ROTATEABLE;
+                    case "MOVEABLE" -> RB_MOVEABLE;
+                    case "BLOCK" -> RB_BLOCK;
+                    default -> throw new LevelParseException("\"rbType\" of \"" + rbType + "\" is unknown");
+                });
+                part.putFloat(PART_SCALAR, (float) parseDouble(obj, "mass", 1));
+                JsonArray behaviours = parseArrOrNull(obj, "behaviours");
+                List<ByteBuffer> section = block.sections.get(SECTION_BEHAVIOURS);
+                part.putInt(PART_BEHAVIOURS, section.size());
+                part.putInt(PART_BEHAVIOURS + 4, behaviours == null ? 0 : behaviours.size());
+                if (behaviours != null)
+                    for (int i = 0; i < behaviours.size(); i++)
+                        section.add(compileBehaviour(behaviours.getJsonObject(i), block));
+            }
+            default -> throw new IllegalStateException("Unexpected value: " + type);
+        }
+        part.putInt(PART_ID, id);
+        putSurface(part, obj);
+        return part;
+    }
+
+    // Writes the position and dimensions of a block or door, which may be positioned by corner
+    private static void putBox(ByteBuffer part, JsonObject obj) {
+        PVector corner = parsePVecOrNull(obj, "corner");
+        putFlag(part, PART_FLAGS, F_CORNER, corner != null);
+        putParam(part, P_ANCHOR, corner != null ? corner : parsePVec(obj, "anchor"));
+        putParam(part, P_DIMENSIONS, parsePVec(obj, "dimensions"));
+    }
+
+    private static ByteBuffer compilePortal(JsonObject obj) {
+        boolean oneWay = parseBoolean(obj, "isOneWay", false);
+        LColour colour;
+        boolean isVertical, flipFace = false;
+        if (oneWay) {
+            colour = parseLColour(obj, "colour");
+            String side = parseStr(obj, "side").toUpperCase();
+            switch (side) {
+                case "LEFT", "RIGHT", "TOP", "BOTTOM" -> {}
+                default -> throw new LevelParseException("\"side\" of \"" + side + "\" is unknown");
+            }
+            isVertical = side.equals("TOP") || side.equals("BOTTOM");
+            flipFace = side.equals("RIGHT") || side.equals("TOP");
+        }
+        else {
+            isVertical = parseBoolean(obj, "isVertical");
+            colour = parseLColour(obj, isVertical ? "topColour" : "leftColour");
+        }
+        ByteBuffer part = newPart(RObjType.PORTAL, colour);
+        putParam(part, P_ANCHOR, parsePVec(obj, "anchor"));
+        part.putInt(PART_AUX, parseInt(obj, "width", 1));
+        putFlag(part, PART_FLAGS, F_STATE, parseBoolean(obj, "startOpen", true));
+        putFlag(part, PART_FLAGS, F_ONE_WAY, oneWay);
+        putFlag(part, PART_FLAGS, F_VERTICAL, isVertical);
+        putFlag(part, PART_FLAGS, F_FLIP_FACE, flipFace);
+        return part;
+    }
+
+    private static ByteBuffer compileBehaviour(JsonObject obj, RoomBlock block) {
+        ByteBuffer behaviour = ByteBuffer.allocate(BEHAVIOUR_SIZE);
+        String type = parseStr(obj, "bType").toUpperCase();
+        int code = switch (type) {
+            case "BHITKILL" -> B_HIT_KILL;
+            case "BHITSTATESWITCH" -> B_HIT_STATE_SWITCH;
+            case "BHITTELEPORT" -> B_HIT_TELEPORT;
+            case "BINTERACTTELEPORT" -> B_INTERACT_TELEPORT;
+            case "BINTERACTSTATESWITCH" -> B_INTERACT_STATE_SWITCH;
+            case "BSTATEBLOCK" -> B_STATE_BLOCK;
+            case "BSTATEFLIP" -> B_STATE_FLIP;
+            case "BSTATEHIDE" -> B_STATE_HIDE;
+            case "BSTATESWAPCOLOUR" -> B_STATE_SWAP_COLOUR;
+            case "BSTATESWITCHSTATES" -> B_STATE_SWITCH_STATES;
+            case "BUPDATETIMER" -> B_UPDATE_TIMER;
+            default -> throw new LevelParseException("\"bType\" of \"" + type + "\" is unknown");
+        };
+        behaviour.put(BEHAVIOUR_TYPE, (byte) code);
+
+        switch (code) {
+            case B_HIT_TELEPORT, B_INTERACT_TELEPORT -> {
+                putPVec(behaviour, BEHAVIOUR_PARAMS + 4 * BP_DESTINATION, parsePVec(obj, "destination"));
+                putFlag(behaviour, BEHAVIOUR_FLAGS, BF_SWAP_COLOUR, parseBoolean(obj, "swapColour", false));
+                putFlag(behaviour, BEHAVIOUR_FLAGS, BF_FLIP_GRAVITY, parseBoolean(obj, "flipGravity", false));
+                behaviour.putInt(BEHAVIOUR_AUX, parseInt(obj, "destRoomId", -1));
+                behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * BP_ICON_SIZE, parseFloat(obj, "iconSize", -1f));
+                if (code == B_HIT_TELEPORT)
+                    putFlag(behaviour, BEHAVIOUR_FLAGS, BF_PLAYER_ONLY, parseBoolean(obj, "playerOnly"));
+                else {
+                    putDistance(behaviour, obj);
+                    if (parseBoolean(obj, "addIndicator", false)) {
+                        putFlag(behaviour, BEHAVIOUR_FLAGS, BF_INDICATOR, true);
+                        putPVec(behaviour, BEHAVIOUR_PARAMS + 4 * BP_INDICATOR_OFFSET,
+                                parsePVec(obj, "indicatorOffset", new PVector(0, 0)));
+                        String indicator = parseStr(obj, "indicatorType", "INTERACT").toUpperCase();
+                        behaviour.put(BEHAVIOUR_INDICATOR, (byte) switch (indicator) {
+                            case "INTERACT" -> INDICATOR_INTERACT;
+                            case "TELEPORT" -> INDICATOR_TELEPORT;
+                            case "COLOURSWITCH" -> INDICATOR_COLOUR_SWITCH;
+                            default -> throw new LevelParseException("\"indicatorType\" of \"" + indicator + "\" is unknown");
+                        });
+                    }
+                }
+                Boolean offsetX = parseBooleanOrNull(obj, "offsetX");
+                if (offsetX != null) {
+                    putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_OFFSET, true);
+                    putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_OFFSET_X, offsetX);
+                    putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_OFFSET_Y, parseBoolean(obj, "offsetY"));
+                    putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_MIRROR_X, parseBoolean(obj, "mirrorX"));
+                    putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_MIRROR_Y, parseBoolean(obj, "mirrorY"));
+                }
+            }
+            case B_INTERACT_STATE_SWITCH -> {
+                putDistance(behaviour, obj);
+                PVector indicator = parsePVecOrNull(obj, "indicatorOffset");
+                if (indicator != null) {
+                    putFlag(behaviour, BEHAVIOUR_FLAGS, BF_INDICATOR, true);
+                    putPVec(behaviour, BEHAVIOUR_PARAMS + 4 * BP_INDICATOR_OFFSET, indicator);
+                }
+            }
+            case B_STATE_BLOCK -> {
+                putFlag(behaviour, BEHAVIOUR_FLAGS, BF_STATE, parseBoolean(obj, "initialState", false));
+                behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * BP_ICON_SIZE, parseFloat(obj, "iconSize", 1f));
+            }
+            case B_STATE_FLIP, B_STATE_HIDE, B_STATE_SWAP_COLOUR -> {
+                putFlag(behaviour, BEHAVIOUR_FLAGS, BF_STATE, parseBoolean(obj, "initialState", false));
+                behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * BP_ICON_SIZE, parseFloat(obj, "iconSize", -1f));
+            }
+            case B_STATE_SWITCH_STATES -> block.putInts(behaviour, BEHAVIOUR_INTS, parseInts(obj, "linkedTo"));
+            case B_UPDATE_TIMER -> {
+                int period = parseInt(obj, "period", -1);
+                putFlag(behaviour, BEHAVIOUR_OFFSET_FLAGS, BO_SINGLE_PERIOD, period != -1);
+                block.putInts(behaviour, BEHAVIOUR_INTS, period != -1 ? new int[] { period } : parseInts(obj, "periods"));
+                behaviour.putInt(BEHAVIOUR_AUX, parseInt(obj, "offset", -1));
+            }
+            default -> {}
+        }
+
+        Boolean activeState = parseBooleanOrNull(obj, "activeOnState");
+        putFlag(behaviour, BEHAVIOUR_FLAGS, BF_HAS_ACTIVE_STATE, activeState != null);
+        putFlag(behaviour, BEHAVIOUR_FLAGS, BF_ACTIVE_STATE, activeState != null && activeState);
+        return behaviour;
+    }
+
+    // Writes the radius, or x and y distances, of an interaction behaviour
+    private static void putDistance(ByteBuffer behaviour, JsonObject obj) {
+        float r = parseFloat(obj, "radius", -1);
+        if (r == -1) {
+            behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * BP_RADIUS, parseFloat(obj, "xDist"));
+            behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * (BP_RADIUS + 1), parseFloat(obj, "yDist"));
+        }
+        else {
+            putFlag(behaviour, BEHAVIOUR_FLAGS, BF_RADIUS, true);
+            behaviour.putFloat(BEHAVIOUR_PARAMS + 4 * BP_RADIUS, r);
+        }
+    }
+
+    private static ByteBuffer compileAdjacency(JsonObject obj) {
+        ByteBuffer adjacency = ByteBuffer.allocate(ADJACENCY_SIZE);
+        adjacency.putInt(ADJACENCY_ID, parseInt(obj, "id"));
+        adjacency.put(ADJACENCY_COLOUR, (byte) parseLColour(obj, "colour").ordinal());
+        putSide(adjacency, ADJACENCY_FLAGS, parseStr(obj, "side"));
+        putPVec(adjacency, ADJACENCY_RANGE, parsePVec(obj, "range"));
+        int roomId = parseInt(obj, "destRoomId", -1);
+        adjacency.putInt(ADJACENCY_DEST_ROOM, roomId);
+        if (roomId != -1) {
+            putFlag(adjacency, ADJACENCY_FLAGS, F_LINKED, true);
+            adjacency.putInt(ADJACENCY_LINK, parseInt(obj, "linkId"));
+        }
+        return adjacency;
+    }
+
+}
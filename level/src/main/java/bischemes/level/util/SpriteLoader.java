@@ -1,8 +1,13 @@
 package bischemes.level.util;
 
+import bischemes.engine.TextureAtlas;
+import bischemes.engine.TextureRegion;
+import processing.core.PConstants;
 import processing.core.PGraphics;
 import processing.core.PImage;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,12 +17,14 @@ import java.nio.file.Paths;
 
 public final class SpriteLoader {
 
-    private static PImage blockSymbol = null;
-    private static PImage lever = null;
-    private static PImage lockSymbol = null;
-    private static PImage interactSymbol = null;
-    private static PImage switchSymbol = null;
-    private static PImage teleportSymbol = null;
+    private static final String[] SPRITES = { "BlockSymbol.tga", "Lever.tga", "LockSymbol.tga",
+            "InteractSymbol.tga", "SwitchSymbol.tga", "TeleportSymbol.tga" };
+    // Animation frames of the player, shipped as resources of the game
+    private static final String[] PLAYER_FRAMES = { "char_idle.png", "char_jump.png", "char_wall.png",
+            "char_run1.png", "char_run2.png", "char_run3.png" };
+
+    // All the sprites, packed into a single texture on first use
+    private static TextureAtlas atlas = null;
 
     private static final String DIRECTORY = "sprites/";
 
@@ -31,7 +38,13 @@ public final class SpriteLoader {
             try {
                 i = new FileInputStream(file);
             } catch (IOException ignored) {}
-            if (i == null) i = new FileInputStream("game/" + file);
+            if (i == null) {
+                try {
+                    i = new FileInputStream("game/" + file);
+                } catch (IOException ignored) {}
+            }
+            // Sibling modules (e.g. the benchmarks) run from their own directory
+            if (i == null) i = new FileInputStream("../game/" + file);
             PImage img = PImage.loadTGA(i);
             i.close();
             return img;
@@ -41,46 +54,69 @@ public final class SpriteLoader {
         }
     }
 
-    public static PImage getBlockSymbol() {
-        if (blockSymbol == null) {
-            blockSymbol = loadImage(getSpritePath("BlockSymbol.tga"));
+    private static PImage loadResource(String name) {
+        try (InputStream i = SpriteLoader.class.getResourceAsStream("/" + name)) {
+            if (i == null) {
+                throw new IOException("No resource named " + name);
+            }
+            BufferedImage image = ImageIO.read(i);
+            PImage img = new PImage(image.getWidth(), image.getHeight(), PConstants.ARGB);
+            image.getRGB(0, 0, img.width, img.height, img.pixels, 0, img.width);
+            return img;
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e.getLocalizedMessage());
         }
-        return blockSymbol;
     }
 
-    public static PImage getLockSymbol() {
-        if (lockSymbol == null) {
-            lockSymbol = loadImage(getSpritePath("LockSymbol.tga"));
+    /**
+     * @return The atlas holding every sprite and player frame, loading and packing them if not done yet.
+     */
+    public static synchronized TextureAtlas getAtlas() {
+        if (atlas == null) {
+            TextureAtlas a = new TextureAtlas();
+            for (String sprite : SPRITES) {
+                a.add(sprite, loadImage(getSpritePath(sprite)));
+            }
+            for (String frame : PLAYER_FRAMES) {
+                a.add(frame, loadResource(frame));
+            }
+            a.pack();
+            atlas = a;
         }
-        return lockSymbol;
+        return atlas;
     }
 
-    public static PImage getLever() {
-        if (lever == null) {
-            lever = loadImage(getSpritePath("Lever.tga"));
-        }
-        return lever;
+    public static TextureRegion getBlockSymbol() {
+        return getAtlas().getRegion("BlockSymbol.tga");
     }
 
-    public static PImage getInteractSymbol() {
-        if (interactSymbol == null) {
-            interactSymbol = loadImage(getSpritePath("InteractSymbol.tga"));
-        }
-        return interactSymbol;
+    public static TextureRegion getLockSymbol() {
+        return getAtlas().getRegion("LockSymbol.tga");
     }
 
-    public static PImage getSwitchSymbol() {
-        if (switchSymbol == null) {
-            switchSymbol = loadImage(getSpritePath("SwitchSymbol.tga"));
-        }
-        return switchSymbol;
+    public static TextureRegion getLever() {
+        return getAtlas().getRegion("Lever.tga");
     }
 
-    public static PImage getTeleportSymbol() {
-        if (teleportSymbol == null) {
-            teleportSymbol = loadImage(getSpritePath("TeleportSymbol.tga"));
-        }
-        return teleportSymbol;
+    public static TextureRegion getInteractSymbol() {
+        return getAtlas().getRegion("InteractSymbol.tga");
+    }
+
+    public static TextureRegion getSwitchSymbol() {
+        return getAtlas().getRegion("SwitchSymbol.tga");
+    }
+
+    public static TextureRegion getTeleportSymbol() {
+        return getAtlas().getRegion("TeleportSymbol.tga");
+    }
+
+    /**
+     * @param filename The file name of the frame, e.g. "char_idle.png".
+     * @return The region of the atlas holding an animation frame of the player.
+     */
+    public static TextureRegion getPlayerFrame(String filename) {
+        return getAtlas().getRegion(filename);
     }
 
 